@@ -4,6 +4,14 @@ setlocal
 :: Launch the CO2 calculator JAR that was produced by the Maven build.
 set SCRIPT_DIR=%~dp0
 set JAR_PATH=%SCRIPT_DIR%target\co2-calculator-1.0.0.jar
+set CDS_ARCHIVE=%SCRIPT_DIR%target\co2-calculator-1.0.0.jsa
+set NATIVE_PATH=%SCRIPT_DIR%target\co2-calculator.exe
+
+:: Prefer the native executable built with .\mvnw -Pnative package, which starts without a JVM.
+if exist "%NATIVE_PATH%" (
+  "%NATIVE_PATH%" %*
+  exit /b %ERRORLEVEL%
+)
 
 :: Prompt the user to build the project when the jar is missing.
 if not exist "%JAR_PATH%" (
@@ -11,5 +19,9 @@ if not exist "%JAR_PATH%" (
   exit /b 1
 )
 
+:: Use the class data archive built with .\mvnw -Pappcds package when present; the JVM ignores it if it does not match.
+set JAVA_OPTS=
+if exist "%CDS_ARCHIVE%" set JAVA_OPTS=-XX:SharedArchiveFile="%CDS_ARCHIVE%" -Xlog:cds=off
+
 :: Forward the original command-line arguments to the JVM.
-java -jar "%JAR_PATH%" %*
+java %JAVA_OPTS% -jar "%JAR_PATH%" %*
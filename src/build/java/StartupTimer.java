@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the wall-clock startup time of a command, e.g. the CLI's {@code --version}. Used by the "appcds" and
+ * "native" Maven profiles and runnable on its own with {@code java src/build/java/StartupTimer.java <command...>}.
+ */
+public final class StartupTimer {
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("usage: StartupTimer <command> [args...]");
+            System.exit(2);
+        }
+        var command = List.of(args);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(command);
+        }
+        var millis = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            var startedAt = System.nanoTime();
+            run(command);
+            millis[i] = (System.nanoTime() - startedAt) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        System.out.printf("Startup of %s: median %d ms, min %d ms, max %d ms over %d runs%n",
+                String.join(" ", command), millis[MEASURED_RUNS / 2], millis[0], millis[MEASURED_RUNS - 1],
+                MEASURED_RUNS);
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        var exitCode = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start()
+                .waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " exited with " + exitCode
+                    + "; run it directly to see its output");
+        }
+    }
+}
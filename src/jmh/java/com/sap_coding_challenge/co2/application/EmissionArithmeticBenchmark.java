@@ -0,0 +1,49 @@
+package com.sap_coding_challenge.co2.application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BigDecimal steps every trip goes through: meters from the matrix to kilometers, kilometers times the
+ * emission factor to kilograms, and rounding to one decimal for output, next to the fixed-point path of
+ * {@link OpenRouteServiceTripCalculator#computeRounded}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmissionArithmeticBenchmark {
+
+    private double meters = 289_876.4;
+    private int gramsPerKm = 171;
+    private long millimeters = 289_876_400L;
+
+    @Benchmark
+    public BigDecimal metersToKilometers() {
+        return BigDecimal.valueOf(meters).movePointLeft(3);
+    }
+
+    @Benchmark
+    public BigDecimal kilogramsRounded() {
+        var distanceKm = BigDecimal.valueOf(meters).movePointLeft(3);
+        return BigDecimal.valueOf(gramsPerKm).multiply(distanceKm).movePointLeft(3).setScale(1, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public long tenthsOfKgFixedPoint() {
+        return FixedPointEmissions.roundedTenthsOfKg(gramsPerKm, millimeters);
+    }
+}
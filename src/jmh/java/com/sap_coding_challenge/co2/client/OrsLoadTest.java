@@ -0,0 +1,212 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap_coding_challenge.co2.application.CityPair;
+import com.sap_coding_challenge.co2.application.DistanceCache;
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load driver that runs the calculator against an {@link OrsSimulator} with configurable latency, failures and
+ * matrix limits, and reports throughput, trip latency percentiles and ORS requests per trip. Trips are random pairs
+ * of a fixed set of cities, so later trips profit from the coordinates and distances earlier ones resolved, as in a
+ * real batch. The HTTP client, retries and circuit breaker are configured through the same {@code ORS_*}
+ * environment variables as the CLI.
+ * <p>
+ * Run from the benchmarks jar: {@code java -cp target/co2-calculator-1.0.0-benchmarks.jar
+ * com.sap_coding_challenge.co2.client.OrsLoadTest --help}.
+ */
+@Command(name = "ors-load-test",
+        mixinStandardHelpOptions = true,
+        description = "Run trips against a local ORS simulator and report trips/s, latency percentiles and ORS requests per trip.")
+public final class OrsLoadTest implements Callable<Integer> {
+
+    @Option(names = "--mode", paramLabel = "<mode>",
+            description = "sync (compute on virtual threads), async (computeAsync) or prefetch (one prefetchDistances call, then compute) (default: ${DEFAULT-VALUE})")
+    String mode = "sync";
+
+    @Option(names = "--trips", paramLabel = "<count>", description = "Trips to compute (default: ${DEFAULT-VALUE})")
+    int trips = 2_000;
+
+    @Option(names = "--cities", paramLabel = "<count>", description = "Distinct cities the trips are drawn from (default: ${DEFAULT-VALUE})")
+    int cities = 50;
+
+    @Option(names = "--concurrency", paramLabel = "<count>", description = "Trips in flight at a time (default: ${DEFAULT-VALUE})")
+    int concurrency = 32;
+
+    @Mixin
+    OrsSimulator.Options simulatorOptions;
+
+    @Option(names = "--client-matrix-routes", paramLabel = "<routes>",
+            description = "Routes per matrix request the client sends (default: --max-matrix-routes, or ORS' limit without one)")
+    Integer clientMatrixRoutes;
+
+    @Option(names = "--seed", paramLabel = "<seed>", description = "Seed of the random trips (default: ${DEFAULT-VALUE})")
+    long seed = 42;
+
+    @Option(names = "--metrics", paramLabel = "<file>",
+            description = "Also write the client and calculator metrics to this file (JSON summary for .json, Prometheus text otherwise)")
+    Path metricsFile;
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new OrsLoadTest()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        if (trips < 1 || cities < 2 || concurrency < 1) {
+            throw new CommandLine.ParameterException(new CommandLine(this),
+                    "--trips and --concurrency must be positive and --cities at least 2");
+        }
+        var settings = simulatorOptions.settings();
+        var maxMatrixRoutes = settings.maxMatrixRoutes();
+        var routesPerRequest = clientMatrixRoutes != null ? clientMatrixRoutes
+                : maxMatrixRoutes > 0 ? maxMatrixRoutes : OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES;
+        var metrics = new Metrics();
+        try (var simulator = new OrsSimulator(settings)) {
+            var clientSettings = OrsClientSettings.fromEnvironment(System.getenv());
+            var client = new OpenRouteServiceClient("load-test", clientSettings.http().createHttpClient(),
+                    new ObjectMapper(), simulator.baseUrl(), routesPerRequest, clientSettings, GeocodeCache.NONE,
+                    metrics);
+            var calculator = new OpenRouteServiceTripCalculator(client,
+                    new DistanceCache(DistanceCache.DEFAULT_MAX_ENTRIES, false), metrics);
+            var cityPairs = cityPairs();
+            var latencies = new AtomicLongArray(trips);
+            var failures = new LongAdder();
+
+            var startedAt = System.nanoTime();
+            switch (mode) {
+                case "sync" -> runSync(calculator, cityPairs, latencies, failures);
+                case "async" -> runAsync(calculator, cityPairs, latencies, failures);
+                case "prefetch" -> {
+                    try {
+                        calculator.prefetchDistances(cityPairs);
+                    } catch (Exception e) {
+                        System.out.println("prefetch failed, trips fetch their distances one by one: " + e);
+                    }
+                    runSync(calculator, cityPairs, latencies, failures);
+                }
+                default -> throw new CommandLine.ParameterException(new CommandLine(this),
+                        "Unknown --mode '" + mode + "' (expected sync, async or prefetch)");
+            }
+            var elapsedNanos = System.nanoTime() - startedAt;
+
+            report(simulator, metrics, latencies, failures.sum(), elapsedNanos);
+        }
+        if (metricsFile != null) {
+            metrics.write(metricsFile);
+        }
+        return 0;
+    }
+
+    private List<CityPair> cityPairs() {
+        var random = new Random(seed);
+        var cityPairs = new ArrayList<CityPair>(trips);
+        for (int i = 0; i < trips; i++) {
+            var start = random.nextInt(cities);
+            var end = (start + 1 + random.nextInt(cities - 1)) % cities;
+            cityPairs.add(new CityPair("City " + start, "City " + end));
+        }
+        return cityPairs;
+    }
+
+    private void runSync(OpenRouteServiceTripCalculator calculator, List<CityPair> cityPairs,
+                         AtomicLongArray latencies, LongAdder failures) throws InterruptedException {
+        var permits = new Semaphore(concurrency);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < cityPairs.size(); i++) {
+                var trip = i;
+                var cityPair = cityPairs.get(i);
+                permits.acquire();
+                executor.submit(() -> {
+                    var startedAt = System.nanoTime();
+                    try {
+                        calculator.compute(cityPair.startCity(), cityPair.endCity(), "diesel-car-medium");
+                    } catch (Exception e) {
+                        failures.increment();
+                    } finally {
+                        latencies.set(trip, System.nanoTime() - startedAt);
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void runAsync(OpenRouteServiceTripCalculator calculator, List<CityPair> cityPairs,
+                          AtomicLongArray latencies, LongAdder failures) throws InterruptedException {
+        var permits = new Semaphore(concurrency);
+        var pending = new ArrayList<CompletableFuture<?>>(cityPairs.size());
+        for (int i = 0; i < cityPairs.size(); i++) {
+            var trip = i;
+            var cityPair = cityPairs.get(i);
+            permits.acquire();
+            var startedAt = System.nanoTime();
+            pending.add(calculator.computeAsync(cityPair.startCity(), cityPair.endCity(), "diesel-car-medium")
+                    .whenComplete((emissions, failure) -> {
+                        if (failure != null) {
+                            failures.increment();
+                        }
+                        latencies.set(trip, System.nanoTime() - startedAt);
+                        permits.release();
+                    }));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).exceptionally(failure -> null).join();
+    }
+
+    private void report(OrsSimulator simulator, Metrics metrics, AtomicLongArray latencies, long failed,
+                        long elapsedNanos) {
+        var sorted = new long[latencies.length()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        var seconds = elapsedNanos / 1e9;
+        var geocode = simulator.geocodeEndpoint();
+        var matrix = simulator.matrixEndpoint();
+        var retries = metrics.counter("co2_ors_retries_total", "Retried ORS attempts", "endpoint", "geocode").count()
+                + metrics.counter("co2_ors_retries_total", "Retried ORS attempts", "endpoint", "matrix").count();
+        var out = System.out;
+        out.printf(Locale.ROOT, "mode %s: %d trips between %d cities, %d in flight%n", mode, trips, cities, concurrency);
+        out.printf(Locale.ROOT, "%d computed, %d failed in %.2f s: %.1f trips/s%n",
+                trips - failed, failed, seconds, trips / seconds);
+        out.printf(Locale.ROOT, "trip latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1]));
+        out.printf(Locale.ROOT, "geocode requests %d (429: %d, 503: %d, without text: %d)%n",
+                geocode.requests(), geocode.tooManyRequests(), geocode.unavailable(), geocode.rejected());
+        out.printf(Locale.ROOT, "matrix requests %d (429: %d, 503: %d, over route limit: %d)%n",
+                matrix.requests(), matrix.tooManyRequests(), matrix.unavailable(), matrix.rejected());
+        out.printf(Locale.ROOT, "requests per trip %.3f (geocode %.3f, matrix %.3f), %d retries%n",
+                (double) (geocode.requests() + matrix.requests()) / trips,
+                (double) geocode.requests() / trips, (double) matrix.requests() / trips, retries);
+    }
+
+    /**
+     * @return the nearest-rank percentile of the sorted values
+     */
+    private static long percentile(long[] sorted, double quantile) {
+        var rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,326 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-process stand-in for the ORS geocode and matrix endpoints, so benchmarks and load tests measure the client and
+ * calculator instead of the internet. Every city gets stable coordinates derived from its name and every matrix
+ * request is answered with a full table of the requested shape. {@link Settings} add latency and jitter per
+ * response, answer a share of requests with HTTP 429 or 503, and reject matrices with more routes than ORS allows.
+ * Geocode searches without text are answered with HTTP 400, as by ORS. Requests and failures are counted per
+ * endpoint.
+ * <p>
+ * It also runs on its own, so the CLI and server can be pointed at it through {@code ORS_BASE_URL}: {@code java -cp
+ * target/co2-calculator-1.0.0-benchmarks.jar com.sap_coding_challenge.co2.client.OrsSimulator --help}.
+ */
+final class OrsSimulator implements Closeable {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Endpoint geocode = new Endpoint();
+    private final Endpoint matrix = new Endpoint();
+
+    OrsSimulator() throws IOException {
+        this(Settings.IDEAL);
+    }
+
+    OrsSimulator(Settings settings) throws IOException {
+        this(settings, 0);
+    }
+
+    /**
+     * @param port port to listen on at localhost, {@code 0} for any free one
+     */
+    OrsSimulator(Settings settings, int port) throws IOException {
+        this.settings = requireNonNull(settings, "settings");
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/geocode/search", this::geocode);
+        server.createContext("/v2/matrix/", this::matrix);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new Standalone()).execute(args));
+    }
+
+    HttpUrl baseUrl() {
+        return HttpUrl.get("http://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    Endpoint geocodeEndpoint() {
+        return geocode;
+    }
+
+    Endpoint matrixEndpoint() {
+        return matrix;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void geocode(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange, geocode)) {
+            return;
+        }
+        var city = searchText(exchange.getRequestURI().getRawQuery());
+        if (city == null) {
+            geocode.rejected.increment();
+            var body = objectMapper.createObjectNode();
+            body.putObject("geocoding").putArray("errors").add("invalid param 'text': text length, must be >0");
+            body.put("type", "FeatureCollection").putArray("features");
+            respond(exchange, 400, objectMapper.writeValueAsString(body));
+            return;
+        }
+        var hash = city.hashCode();
+        var body = objectMapper.createObjectNode().put("type", "FeatureCollection");
+        var feature = body.putArray("features").addObject().put("type", "Feature");
+        feature.putObject("geometry").put("type", "Point").putArray("coordinates")
+                .add(5 + Math.floorMod(hash, 10_000) / 1000.0)
+                .add(45 + Math.floorMod(hash >>> 8, 8_000) / 1000.0);
+        feature.putObject("properties").put("name", city).put("confidence", 1).put("layer", "locality");
+        respond(exchange, 200, objectMapper.writeValueAsString(body));
+    }
+
+    /**
+     * @return the decoded {@code text} parameter, or {@code null} if it is missing, empty or not decodable
+     */
+    private static String searchText(String rawQuery) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (var parameter : rawQuery.split("&")) {
+            if (parameter.startsWith("text=")) {
+                try {
+                    var text = URLDecoder.decode(parameter.substring(5), StandardCharsets.UTF_8);
+                    return text.isBlank() ? null : text;
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void matrix(HttpExchange exchange) throws IOException {
+        if (injectFailure(exchange, matrix)) {
+            return;
+        }
+        var request = objectMapper.readTree(exchange.getRequestBody());
+        var locations = request.path("locations").size();
+        var sources = request.has("sources") ? request.path("sources").size() : locations;
+        var destinations = request.has("destinations") ? request.path("destinations").size() : locations;
+        if (settings.maxMatrixRoutes() > 0 && (long) sources * destinations > settings.maxMatrixRoutes()) {
+            matrix.rejected.increment();
+            respond(exchange, 400, """
+                    {"error":{"code":6004,"message":"Request parameters exceed the server configuration limits. \
+                    Only a total of %d routes are allowed."}}
+                    """.formatted(settings.maxMatrixRoutes()));
+            return;
+        }
+        var body = new StringBuilder(32 + sources * destinations * 10).append("{\"distances\":[");
+        for (int source = 0; source < sources; source++) {
+            body.append(source == 0 ? "[" : ",[");
+            for (int destination = 0; destination < destinations; destination++) {
+                if (destination > 0) {
+                    body.append(',');
+                }
+                body.append(100_000 + 1_000 * source + destination).append(".5");
+            }
+            body.append(']');
+        }
+        respond(exchange, 200, body.append("],\"metadata\":{\"service\":\"matrix\"}}").toString());
+    }
+
+    /**
+     * Counts the request, waits the simulated latency and answers it with an injected failure if one is drawn.
+     *
+     * @return whether a failure was sent, so the request is answered
+     */
+    private boolean injectFailure(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        endpoint.requests.increment();
+        var random = ThreadLocalRandom.current();
+        var jitterNanos = settings.jitter().toNanos();
+        var delayNanos = settings.latency().toNanos()
+                + (jitterNanos == 0 ? 0 : random.nextLong(-jitterNanos, jitterNanos + 1));
+        if (delayNanos > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delayNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        var draw = random.nextDouble();
+        if (draw < settings.tooManyRequestsRate()) {
+            endpoint.tooManyRequests.increment();
+            respond(exchange, 429, "{\"error\":\"Rate limit exceeded\"}");
+            return true;
+        }
+        if (draw < settings.tooManyRequestsRate() + settings.unavailableRate()) {
+            endpoint.unavailable.increment();
+            respond(exchange, 503, "{\"error\":\"Service unavailable\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        try (exchange) {
+            var bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    /**
+     * @param latency             mean time before a response is sent
+     * @param jitter              the latency varies uniformly by up to this much in either direction
+     * @param tooManyRequestsRate share of requests answered with HTTP 429
+     * @param unavailableRate     share of requests answered with HTTP 503
+     * @param maxMatrixRoutes     matrix requests with more sources times destinations are rejected with HTTP 400,
+     *                            as ORS does; {@code 0} for no limit
+     */
+    record Settings(Duration latency, Duration jitter, double tooManyRequestsRate, double unavailableRate,
+                    int maxMatrixRoutes) {
+        /**
+         * Immediate, always successful responses.
+         */
+        static final Settings IDEAL = new Settings(Duration.ZERO, Duration.ZERO, 0, 0, 0);
+
+        Settings {
+            requireNonNull(latency, "latency");
+            requireNonNull(jitter, "jitter");
+            if (latency.isNegative() || jitter.isNegative()) {
+                throw new IllegalArgumentException("Latency and jitter must not be negative");
+            }
+            if (!(tooManyRequestsRate >= 0 && unavailableRate >= 0 && tooManyRequestsRate + unavailableRate <= 1)) {
+                throw new IllegalArgumentException("Failure rates must be between 0 and 1 in total");
+            }
+            if (maxMatrixRoutes < 0) {
+                throw new IllegalArgumentException("maxMatrixRoutes must not be negative");
+            }
+        }
+    }
+
+    /**
+     * Command line options for the {@link Settings}, shared by the standalone simulator and {@link OrsLoadTest}.
+     */
+    static final class Options {
+        @Spec(Spec.Target.MIXEE)
+        CommandSpec mixee;
+
+        @Option(names = "--latency-ms", paramLabel = "<ms>", description = "Simulated response latency (default: ${DEFAULT-VALUE})")
+        long latencyMillis = 20;
+
+        @Option(names = "--jitter-ms", paramLabel = "<ms>", description = "Latency varies by up to this much either way (default: ${DEFAULT-VALUE})")
+        long jitterMillis = 10;
+
+        @Option(names = "--rate-429", paramLabel = "<share>", description = "Share of requests answered with HTTP 429 (default: ${DEFAULT-VALUE})")
+        double tooManyRequestsRate;
+
+        @Option(names = "--rate-503", paramLabel = "<share>", description = "Share of requests answered with HTTP 503 (default: ${DEFAULT-VALUE})")
+        double unavailableRate;
+
+        @Option(names = "--max-matrix-routes", paramLabel = "<routes>",
+                description = "Routes per matrix request the simulator accepts, 0 for no limit (default: ${DEFAULT-VALUE})")
+        int maxMatrixRoutes = OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES;
+
+        Settings settings() {
+            try {
+                return new Settings(Duration.ofMillis(latencyMillis), Duration.ofMillis(jitterMillis),
+                        tooManyRequestsRate, unavailableRate, maxMatrixRoutes);
+            } catch (IllegalArgumentException e) {
+                throw new CommandLine.ParameterException(mixee.commandLine(), e.getMessage());
+            }
+        }
+    }
+
+    @Command(name = "ors-simulator",
+            mixinStandardHelpOptions = true,
+            description = "Serve simulated ORS geocode and matrix endpoints on localhost until stopped.")
+    static final class Standalone implements Callable<Integer> {
+
+        @Option(names = "--port", paramLabel = "<port>", description = "Port to listen on at localhost (default: ${DEFAULT-VALUE})")
+        int port = 8081;
+
+        @Mixin
+        Options options;
+
+        @Override
+        public Integer call() throws Exception {
+            var simulator = new OrsSimulator(options.settings(), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                simulator.close();
+                var geocode = simulator.geocodeEndpoint();
+                var matrix = simulator.matrixEndpoint();
+                System.out.printf(Locale.ROOT, "geocode requests %d (429: %d, 503: %d, without text: %d)%n",
+                        geocode.requests(), geocode.tooManyRequests(), geocode.unavailable(), geocode.rejected());
+                System.out.printf(Locale.ROOT, "matrix requests %d (429: %d, 503: %d, over route limit: %d)%n",
+                        matrix.requests(), matrix.tooManyRequests(), matrix.unavailable(), matrix.rejected());
+            }));
+            System.out.println("ORS simulator listening on " + simulator.baseUrl()
+                    + ", run the CLI with ORS_BASE_URL=" + simulator.baseUrl() + " and any ORS_TOKEN; Ctrl+C stops it");
+            Thread.currentThread().join();
+            return 0;
+        }
+    }
+
+    /**
+     * Requests received by one endpoint, including those answered with an injected failure.
+     */
+    static final class Endpoint {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder tooManyRequests = new LongAdder();
+        private final LongAdder unavailable = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        long requests() {
+            return requests.sum();
+        }
+
+        long tooManyRequests() {
+            return tooManyRequests.sum();
+        }
+
+        long unavailable() {
+            return unavailable.sum();
+        }
+
+        /**
+         * @return requests rejected with HTTP 400: geocode searches without text and matrices exceeding
+         * {@link Settings#maxMatrixRoutes()}
+         */
+        long rejected() {
+            return rejected.sum();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON extraction of the client: the streaming {@link OpenRouteServiceResponseParser} next to the tree model it
+ * replaced, on a geocode response with ten verbose features and on matrix responses of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    @Param({"2", "100"})
+    int matrixSize;
+
+    private final OpenRouteServiceResponseParser parser = new OpenRouteServiceResponseParser(new JsonFactory());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] geocodeResponse;
+    private byte[] matrixResponse;
+
+    @Setup
+    public void setUp() {
+        var features = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            features.append(i == 0 ? "" : ",").append("""
+                    {"type":"Feature","geometry":{"type":"Point","coordinates":[%d.99302,53.55073]},\
+                    "properties":{"id":"%d","gid":"whosonfirst:locality:%d","layer":"locality","source":"whosonfirst",\
+                    "name":"Hamburg","confidence":%s,"match_type":"exact","accuracy":"centroid","country":"Germany",\
+                    "country_a":"DEU","region":"Hamburg","county":"Hamburg","locality":"Hamburg",\
+                    "label":"Hamburg, Germany"},"bbox":[9.7,53.3,10.3,53.7]}""".formatted(9 + i, i, i, 1.0 - i / 10.0));
+        }
+        geocodeResponse = ("""
+                {"geocoding":{"version":"0.2","attribution":"openrouteservice.org","query":{"text":"Hamburg",\
+                "size":10,"layers":["locality"]}},"type":"FeatureCollection","features":[%s],\
+                "bbox":[9.7,53.3,10.3,53.7]}""".formatted(features)).getBytes(StandardCharsets.UTF_8);
+        var rows = new StringBuilder();
+        for (int source = 0; source < matrixSize; source++) {
+            rows.append(source == 0 ? "[" : ",[");
+            for (int destination = 0; destination < matrixSize; destination++) {
+                rows.append(destination == 0 ? "" : ",").append(100_000 + source * 1_000 + destination).append(".37");
+            }
+            rows.append(']');
+        }
+        matrixResponse = ("{\"distances\":[" + rows + "],\"metadata\":{\"attribution\":\"openrouteservice.org\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Optional<Coordinates> geocodeStreaming() throws IOException {
+        return parser.firstFeatureCoordinates(new ByteArrayInputStream(geocodeResponse));
+    }
+
+    @Benchmark
+    public Coordinates geocodeTree() throws IOException {
+        var coordinates = objectMapper.readTree(geocodeResponse).at("/features/0/geometry/coordinates");
+        return new Coordinates(coordinates.get(0).decimalValue(), coordinates.get(1).decimalValue());
+    }
+
+    @Benchmark
+    public DistanceMatrix matrixStreaming() throws IOException {
+        var matrix = new DistanceMatrix(matrixSize, matrixSize);
+        parser.readDistances(new ByteArrayInputStream(matrixResponse), matrix, 0, matrixSize, 0, matrixSize);
+        return matrix;
+    }
+
+    @Benchmark
+    public DistanceMatrix matrixTree() throws IOException {
+        var matrix = new DistanceMatrix(matrixSize, matrixSize);
+        var distances = objectMapper.readTree(matrixResponse).get("distances");
+        for (int source = 0; source < matrixSize; source++) {
+            for (int destination = 0; destination < matrixSize; destination++) {
+                matrix.setMeters(source, destination, distances.get(source).get(destination).doubleValue());
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,130 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap_coding_challenge.co2.application.CityPair;
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.batch.BatchTripProcessor;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end trip computations against {@link OrsSimulator}, covering the modes a caller can choose from: a cold
+ * calculator per trip (every lookup goes over HTTP), a warm calculator (cached coordinates and distances), a batch
+ * of distinct trips computed one by one versus prefetched with matrix requests, and the streaming file processor.
+ * Lives in the client package because the client is pointed at the simulator through a package-private constructor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripCalculatorBenchmark {
+
+    @Param({"20"})
+    int cities;
+
+    private OrsSimulator simulator;
+    private OpenRouteServiceClient client;
+    private OpenRouteServiceTripCalculator warmCalculator;
+    private List<CityPair> cityPairs;
+    private Path batchInput;
+    private Path batchOutput;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        simulator = new OrsSimulator();
+        client = new OpenRouteServiceClient("benchmark", new OkHttpClient(), new ObjectMapper(), simulator.baseUrl());
+        warmCalculator = new OpenRouteServiceTripCalculator(client);
+        warmCalculator.compute("Hamburg", "Berlin", "diesel-car-medium");
+        cityPairs = new ArrayList<>();
+        for (int start = 0; start < cities; start++) {
+            for (int end = 0; end < cities; end++) {
+                if (start != end) {
+                    cityPairs.add(new CityPair("City " + start, "City " + end));
+                }
+            }
+        }
+        batchInput = Files.createTempFile("trips", ".csv");
+        batchOutput = Files.createTempFile("results", ".csv");
+        var csv = new StringBuilder("start,end,transportation-method\n");
+        for (var cityPair : cityPairs) {
+            csv.append(cityPair.startCity()).append(',').append(cityPair.endCity()).append(",bus-default\n");
+        }
+        Files.writeString(batchInput, csv);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        simulator.close();
+        Files.deleteIfExists(batchInput);
+        Files.deleteIfExists(batchOutput);
+    }
+
+    @Benchmark
+    public BigDecimal computeCold() throws IOException {
+        return new OpenRouteServiceTripCalculator(client).compute("Hamburg", "Berlin", "diesel-car-medium");
+    }
+
+    @Benchmark
+    public BigDecimal computeAsyncCold() {
+        return new OpenRouteServiceTripCalculator(client).computeAsync("Hamburg", "Berlin", "diesel-car-medium").join();
+    }
+
+    @Benchmark
+    public BigDecimal computeWarm() throws IOException {
+        return warmCalculator.compute("Hamburg", "Berlin", "diesel-car-medium");
+    }
+
+    @Benchmark
+    public BigDecimal computeWarmRounded() throws IOException {
+        return warmCalculator.computeRounded("Hamburg", "Berlin", "diesel-car-medium");
+    }
+
+    @Benchmark
+    public BigDecimal batchOneByOne() throws IOException {
+        var calculator = new OpenRouteServiceTripCalculator(client);
+        var total = BigDecimal.ZERO;
+        for (var cityPair : cityPairs) {
+            total = total.add(calculator.compute(cityPair.startCity(), cityPair.endCity(), "bus-default"));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal batchPrefetched() throws IOException {
+        var calculator = new OpenRouteServiceTripCalculator(client);
+        calculator.prefetchDistances(cityPairs);
+        var total = BigDecimal.ZERO;
+        for (var cityPair : cityPairs) {
+            total = total.add(calculator.compute(cityPair.startCity(), cityPair.endCity(), "bus-default"));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long batchFileStreaming() throws IOException {
+        var summary = new BatchTripProcessor(new OpenRouteServiceTripCalculator(client)).process(batchInput, batchOutput);
+        return summary.trips();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sap_coding_challenge.co2.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key lookup cost for the first and last declared method, and for a key that needs case folding, through the enum
+ * and through the {@link EmissionFactors} index used by the calculator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportMethodBenchmark {
+
+    @Param({"diesel-car-small", "train-default", "Train-Default"})
+    String key;
+
+    @Benchmark
+    public TransportMethod fromKey() {
+        return TransportMethod.fromKey(key);
+    }
+
+    @Benchmark
+    public int emissionFactors() {
+        return EmissionFactors.DEFAULTS.gramsPerKm(key);
+    }
+}
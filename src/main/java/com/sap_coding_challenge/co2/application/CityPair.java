@@ -0,0 +1,13 @@
+package com.sap_coding_challenge.co2.application;
+
+import java.util.Objects;
+
+/**
+ * Directed start/end city pair of a trip.
+ */
+public record CityPair(String startCity, String endCity) {
+    public CityPair {
+        Objects.requireNonNull(startCity, "startCity");
+        Objects.requireNonNull(endCity, "endCity");
+    }
+}
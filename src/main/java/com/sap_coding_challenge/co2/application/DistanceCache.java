@@ -0,0 +1,117 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded least-recently-used cache of distances keyed by coordinate pair and routing profile. When symmetric,
+ * A to B and B to A share one entry, which trades the small difference caused by one-way streets for half the
+ * lookups. Every entry also keeps its distance in whole millimeters when exact, for the fixed-point fast path of
+ * {@link OpenRouteServiceTripCalculator#computeRounded}.
+ */
+public final class DistanceCache {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final Comparator<Coordinates> COORDINATES_ORDER = Comparator
+            .comparing(Coordinates::longitude)
+            .thenComparing(Coordinates::latitude);
+
+    private final int maxEntries;
+    private final boolean symmetric;
+    private final Map<Key, Distance> distanceByKey;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DistanceCache(int maxEntries, boolean symmetric) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.symmetric = symmetric;
+        this.distanceByKey = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Distance> eldest) {
+                if (size() > DistanceCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Optional<BigDecimal> get(Coordinates start, Coordinates end, String profile) {
+        var distance = distanceByKey.get(key(start, end, profile));
+        if (distance == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(distance.km());
+    }
+
+    /**
+     * Allocation-free variant of {@link #get} for the hot path. Only successful lookups count towards the
+     * statistics, as callers fall back to {@link #get} otherwise.
+     *
+     * @return the cached distance in millimeters, or {@link FixedPointEmissions#INEXACT} when there is no entry or
+     * its distance is not a whole number of millimeters.
+     */
+    synchronized long getMillimeters(Coordinates start, Coordinates end, String profile) {
+        var distance = distanceByKey.get(key(start, end, profile));
+        if (distance == null || distance.millimeters() == FixedPointEmissions.INEXACT) {
+            return FixedPointEmissions.INEXACT;
+        }
+        hits++;
+        return distance.millimeters();
+    }
+
+    /**
+     * Like {@link #get} but does not count towards the statistics nor refresh the entry.
+     */
+    public synchronized boolean contains(Coordinates start, Coordinates end, String profile) {
+        return distanceByKey.containsKey(key(start, end, profile));
+    }
+
+    /**
+     * Like {@link #get} but does not count towards the statistics.
+     */
+    public synchronized Optional<BigDecimal> peek(Coordinates start, Coordinates end, String profile) {
+        var distance = distanceByKey.get(key(start, end, profile));
+        return distance == null ? Optional.empty() : Optional.of(distance.km());
+    }
+
+    public synchronized void put(Coordinates start, Coordinates end, String profile, BigDecimal distanceKm) {
+        requireNonNull(distanceKm, "distanceKm");
+        distanceByKey.put(key(start, end, profile),
+                new Distance(distanceKm, FixedPointEmissions.millimeters(distanceKm)));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, distanceByKey.size());
+    }
+
+    private Key key(Coordinates start, Coordinates end, String profile) {
+        requireNonNull(profile, "profile");
+        if (symmetric && COORDINATES_ORDER.compare(start, end) > 0) {
+            return new Key(end, start, profile);
+        }
+        return new Key(start, end, profile);
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record Key(Coordinates start, Coordinates end, String profile) {
+    }
+
+    private record Distance(BigDecimal km, long millimeters) {
+    }
+}
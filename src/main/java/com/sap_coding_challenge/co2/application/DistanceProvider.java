@@ -0,0 +1,43 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of travel distances between two geocoded cities.
+ */
+public interface DistanceProvider {
+
+    /**
+     * Name of the way distances are measured; distances are only cached and reused for the same profile.
+     */
+    String profile();
+
+    /**
+     * Local providers compute distances without any I/O, so the calculator neither caches nor prefetches them.
+     */
+    default boolean isLocal() {
+        return false;
+    }
+
+    BigDecimal distanceKm(Coordinates start, Coordinates end, String startCity, String endCity) throws IOException;
+
+    default CompletableFuture<BigDecimal> distanceKmAsync(Coordinates start, Coordinates end,
+                                                          String startCity, String endCity) {
+        try {
+            return CompletableFuture.completedFuture(distanceKm(start, end, startCity, endCity));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Distances from every source to every destination, indexed in the order given.
+     */
+    DistanceMatrix distanceMatrix(List<Coordinates> sources, List<Coordinates> destinations) throws IOException;
+}
@@ -0,0 +1,239 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
+import com.sap_coding_challenge.co2.client.FileGeocodeCache;
+import com.sap_coding_challenge.co2.domain.CityNames;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only distances between a fixed set of cities, precomputed with
+ * {@link OpenRouteServiceTripCalculator#writeDistanceSnapshot} and memory-mapped, so neither the names nor the
+ * distance grid are copied onto the heap. A lookup binary searches both normalized names in the mapped file and
+ * reads their distance from the grid at a computed offset, without any request.
+ * <p>
+ * File layout (big endian): magic, city count, length of the profile name, {@code count + 1} offsets into the name
+ * block, the {@code count * count} distances from every city to every city in centimeters ({@code -1} for no
+ * route), the UTF-8 names sorted by their bytes and finally the UTF-8 profile the distances were measured with.
+ */
+public final class DistanceSnapshot {
+    /**
+     * Snapshot without any cities, for calculators that have none.
+     */
+    public static final DistanceSnapshot NONE = new DistanceSnapshot(null, 0, "");
+
+    /**
+     * Returned by {@link #millimeters} for cities of the snapshot that have no route between them.
+     */
+    static final long NO_ROUTE = -2;
+
+    private static final int MAGIC = 0x435A4431;
+    private static final int HEADER_BYTES = 12;
+    private static final int UNREACHABLE = -1;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final String profile;
+    private final int offsetsStart;
+    private final int distancesStart;
+    private final int namesStart;
+
+    private DistanceSnapshot(MappedByteBuffer buffer, int count, String profile) {
+        this.buffer = buffer;
+        this.count = count;
+        this.profile = profile;
+        this.offsetsStart = HEADER_BYTES;
+        this.distancesStart = offsetsStart + 4 * (count + 1);
+        this.namesStart = distancesStart + 4 * count * count;
+    }
+
+    public static DistanceSnapshot open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a distance snapshot.");
+            }
+            // the mapping stays valid after the channel is closed
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a distance snapshot.");
+            }
+            var count = buffer.getInt(4);
+            var profileLength = buffer.getInt(8);
+            if (count < 0 || profileLength < 0
+                    || HEADER_BYTES + 4L * (count + 1) + 4L * count * count > buffer.limit()) {
+                throw new IOException(path + " is truncated.");
+            }
+            var namesStart = HEADER_BYTES + 4 * (count + 1) + 4 * count * count;
+            var profileStart = (long) namesStart + buffer.getInt(HEADER_BYTES + 4 * count);
+            if (profileStart + profileLength != buffer.limit()) {
+                throw new IOException(path + " is truncated.");
+            }
+            var profile = new byte[profileLength];
+            buffer.get((int) profileStart, profile);
+            return new DistanceSnapshot(buffer, count, new String(profile, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return {@code distances.snapshot} next to the {@link FileGeocodeCache#defaultPath() geocode cache}.
+     */
+    public static Path defaultPath() {
+        return FileGeocodeCache.defaultPath().resolveSibling("distances.snapshot");
+    }
+
+    /**
+     * @return the number of cities
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the {@link DistanceProvider#profile() profile} the distances were measured with
+     */
+    public String profile() {
+        return profile;
+    }
+
+    public boolean contains(String city) {
+        return index(city) >= 0;
+    }
+
+    /**
+     * @return the distance from {@code startCity} to {@code endCity}, empty when either city is not part of the
+     * snapshot or there is no route between them.
+     */
+    public Optional<BigDecimal> distanceKm(String startCity, String endCity) {
+        var millimeters = millimeters(startCity, endCity);
+        return millimeters < 0 ? Optional.empty() : Optional.of(BigDecimal.valueOf(millimeters, 6));
+    }
+
+    /**
+     * @return the distance in millimeters, {@link #NO_ROUTE}, or {@link FixedPointEmissions#INEXACT} when either
+     * city is not part of the snapshot
+     */
+    long millimeters(String startCity, String endCity) {
+        if (count == 0) {
+            return FixedPointEmissions.INEXACT;
+        }
+        var start = index(startCity);
+        var end = start < 0 ? -1 : index(endCity);
+        if (end < 0) {
+            return FixedPointEmissions.INEXACT;
+        }
+        var centimeters = buffer.getInt(distancesStart + 4 * (start * count + end));
+        return centimeters == UNREACHABLE ? NO_ROUTE : centimeters * 10L;
+    }
+
+    /**
+     * Writes the distances between {@code cities} as a new snapshot file, replacing {@code path} atomically.
+     *
+     * @param cities    distinct normalized city names, the sources and destinations of {@code distances}
+     * @param distances distances between all {@code cities}, in their order
+     */
+    static void write(List<String> cities, DistanceMatrix distances, String profile, Path path) throws IOException {
+        var count = cities.size();
+        if (distances.sources() != count || distances.destinations() != count) {
+            throw new IllegalArgumentException("Expected a " + count + "x" + count + " distance matrix but got "
+                    + distances.sources() + "x" + distances.destinations());
+        }
+        var names = cities.stream().map(city -> city.getBytes(StandardCharsets.UTF_8)).toList();
+        var order = IntStream.range(0, count).boxed()
+                .sorted(Comparator.comparing(names::get, Arrays::compareUnsigned))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        var profileBytes = profile.getBytes(StandardCharsets.UTF_8);
+        var nameBytes = names.stream().mapToLong(name -> name.length).sum();
+        if (HEADER_BYTES + 4L * (count + 1) + 4L * count * count + nameBytes + profileBytes.length
+                > Integer.MAX_VALUE) {
+            throw new IOException("Too many cities for a distance snapshot: " + count);
+        }
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(count);
+            out.writeInt(profileBytes.length);
+            int offset = 0;
+            out.writeInt(offset);
+            for (var city : order) {
+                offset += names.get(city).length;
+                out.writeInt(offset);
+            }
+            for (var source : order) {
+                for (var destination : order) {
+                    out.writeInt(centimeters(distances, source, destination, cities));
+                }
+            }
+            for (var city : order) {
+                out.write(names.get(city));
+            }
+            out.write(profileBytes);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int centimeters(DistanceMatrix distances, int source, int destination, List<String> cities)
+            throws IOException {
+        var distanceKm = distances.distanceKm(source, destination);
+        if (distanceKm.isEmpty()) {
+            return UNREACHABLE;
+        }
+        try {
+            return distanceKm.get().movePointRight(5).setScale(0, RoundingMode.HALF_UP).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IOException("Distance from \"" + cities.get(source) + "\" to \"" + cities.get(destination)
+                    + "\" is too long for a distance snapshot: " + distanceKm.get() + " km");
+        }
+    }
+
+    private int index(String city) {
+        var key = CityNames.normalize(city).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compareName(mid, key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareName(int entry, byte[] key) {
+        int start = namesStart + buffer.getInt(offsetsStart + 4 * entry);
+        int end = namesStart + buffer.getInt(offsetsStart + 4 * (entry + 1));
+        int length = end - start;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+}
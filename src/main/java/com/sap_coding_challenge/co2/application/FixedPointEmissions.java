@@ -0,0 +1,51 @@
+package com.sap_coding_challenge.co2.application;
+
+import java.math.BigDecimal;
+
+/**
+ * Emission arithmetic on fixed-point longs: distances in millimeters, results in tenths of a kilogram. For any
+ * distance that is a whole number of millimeters the results equal the {@link BigDecimal} computation rounded
+ * {@code HALF_UP} to one decimal, without allocating on the way.
+ */
+final class FixedPointEmissions {
+    /**
+     * Marks a value that cannot be represented exactly, so callers fall back to {@link BigDecimal}.
+     */
+    static final long INEXACT = -1;
+
+    private static final long MICROGRAMS_PER_TENTH_KG = 100_000_000L;
+
+    private FixedPointEmissions() {
+    }
+
+    /**
+     * @return {@code distanceKm} in millimeters, or {@link #INEXACT} when it is negative, has sub-millimeter digits
+     * or does not fit into a {@code long}.
+     */
+    static long millimeters(BigDecimal distanceKm) {
+        if (distanceKm.signum() < 0) {
+            return INEXACT;
+        }
+        try {
+            return distanceKm.movePointRight(6).longValueExact();
+        } catch (ArithmeticException e) {
+            return INEXACT;
+        }
+    }
+
+    /**
+     * @return {@code gramsPerKm * millimeters} in tenths of a kilogram rounded half up, or {@link #INEXACT} when
+     * the product does not fit into a {@code long}. Both arguments must not be negative.
+     */
+    static long roundedTenthsOfKg(int gramsPerKm, long millimeters) {
+        // grams per km times millimeters gives micrograms
+        var high = Math.multiplyHigh(gramsPerKm, millimeters);
+        var micrograms = gramsPerKm * millimeters;
+        if (high != 0 || micrograms < 0) {
+            return INEXACT;
+        }
+        var tenths = micrograms / MICROGRAMS_PER_TENTH_KG;
+        var remainder = micrograms % MICROGRAMS_PER_TENTH_KG;
+        return remainder * 2 >= MICROGRAMS_PER_TENTH_KG ? tenths + 1 : tenths;
+    }
+}
@@ -0,0 +1,63 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Offline distance estimate: the great-circle distance between both cities multiplied by a road detour factor.
+ * Good enough for rough reporting or ORS outages; results are rounded to whole meters.
+ */
+public final class HaversineDistanceProvider implements DistanceProvider {
+    public static final double DEFAULT_ROAD_FACTOR = 1.3;
+    private static final double EARTH_MEAN_RADIUS_METERS = 6_371_008.8;
+
+    private final double roadFactor;
+
+    public HaversineDistanceProvider(double roadFactor) {
+        if (!(roadFactor >= 1.0) || Double.isInfinite(roadFactor)) {
+            throw new IllegalArgumentException("Road factor must be at least 1.0 but was " + roadFactor);
+        }
+        this.roadFactor = roadFactor;
+    }
+
+    @Override
+    public String profile() {
+        return "haversine-" + roadFactor;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public BigDecimal distanceKm(Coordinates start, Coordinates end, String startCity, String endCity) {
+        return BigDecimal.valueOf(Math.round(meters(start, end))).movePointLeft(3);
+    }
+
+    @Override
+    public DistanceMatrix distanceMatrix(List<Coordinates> sources, List<Coordinates> destinations) {
+        var matrix = new DistanceMatrix(sources.size(), destinations.size());
+        for (int source = 0; source < sources.size(); source++) {
+            for (int destination = 0; destination < destinations.size(); destination++) {
+                matrix.setMeters(source, destination,
+                        Math.round(meters(sources.get(source), destinations.get(destination))));
+            }
+        }
+        return matrix;
+    }
+
+    private double meters(Coordinates start, Coordinates end) {
+        var startLatitude = Math.toRadians(start.latitude().doubleValue());
+        var endLatitude = Math.toRadians(end.latitude().doubleValue());
+        var deltaLatitude = endLatitude - startLatitude;
+        var deltaLongitude = Math.toRadians(end.longitude().doubleValue() - start.longitude().doubleValue());
+        var a = Math.pow(Math.sin(deltaLatitude / 2), 2)
+                + Math.cos(startLatitude) * Math.cos(endLatitude) * Math.pow(Math.sin(deltaLongitude / 2), 2);
+        var greatCircle = 2 * EARTH_MEAN_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+        return greatCircle * roadFactor;
+    }
+}
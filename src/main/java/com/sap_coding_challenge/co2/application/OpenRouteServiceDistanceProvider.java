@@ -0,0 +1,46 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
+import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Driving distances from the ORS matrix API. This is the default provider.
+ */
+public final class OpenRouteServiceDistanceProvider implements DistanceProvider {
+    private final OpenRouteServiceClient client;
+
+    public OpenRouteServiceDistanceProvider(OpenRouteServiceClient client) {
+        this.client = requireNonNull(client, "client");
+    }
+
+    @Override
+    public String profile() {
+        return OpenRouteServiceClient.ROUTING_PROFILE;
+    }
+
+    @Override
+    public BigDecimal distanceKm(Coordinates start, Coordinates end, String startCity, String endCity)
+            throws IOException {
+        return client.fetchDistanceBetweenLocalities(start, end, startCity, endCity);
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> distanceKmAsync(Coordinates start, Coordinates end,
+                                                         String startCity, String endCity) {
+        return client.fetchDistanceBetweenLocalitiesAsync(start, end, startCity, endCity);
+    }
+
+    @Override
+    public DistanceMatrix distanceMatrix(List<Coordinates> sources, List<Coordinates> destinations)
+            throws IOException {
+        return client.fetchDistanceMatrix(sources, destinations);
+    }
+}
@@ -1,28 +1,630 @@
 package com.sap_coding_challenge.co2.application;
 
 import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
-import com.sap_coding_challenge.co2.domain.TransportMethod;
+import com.sap_coding_challenge.co2.domain.CityNames;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import com.sap_coding_challenge.co2.domain.EmissionFactors;
+import com.sap_coding_challenge.co2.metrics.Counter;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import com.sap_coding_challenge.co2.metrics.Timer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Computes trip emissions. City names are compared {@link CityNames#normalize normalized}, so differences in case
+ * and whitespace neither defeat the same-city shortcut nor cause another lookup. Coordinates already resolved by
+ * this instance and distances held by the {@link DistanceCache} are reused, so a batch only pays the network calls
+ * once per distinct city and city pair. Cities that still need geocoding are looked up concurrently on virtual
+ * threads; the instance is thread-safe.
+ * Distances come from a {@link DistanceProvider}, by default the ORS matrix API, and emission factors from
+ * {@link EmissionFactors}, by default the built-in ones. Distances between cities of a {@link DistanceSnapshot}
+ * measured with the provider's profile are read from the snapshot instead, without geocoding either city. Trip
+ * latency and outcomes and the distance cache statistics are reported to the {@link Metrics} the calculator was
+ * created with.
+ */
 public final class OpenRouteServiceTripCalculator {
+    static final int MAX_CONCURRENT_LOOKUPS = 16;
+    private static final BigDecimal ZERO_ROUNDED = BigDecimal.valueOf(0, 1);
+
     private final OpenRouteServiceClient client;
+    private final DistanceCache distanceCache;
+    private final DistanceProvider distanceProvider;
+    private final DistanceSnapshot distanceSnapshot;
+    private final EmissionFactors emissionFactors;
+    private final Map<String, Coordinates> coordinatesByCity;
+    private final TripMetrics tripMetrics;
 
     public OpenRouteServiceTripCalculator(OpenRouteServiceClient client) {
+        this(client, new DistanceCache(DistanceCache.DEFAULT_MAX_ENTRIES, false));
+    }
+
+    public OpenRouteServiceTripCalculator(OpenRouteServiceClient client, DistanceCache distanceCache) {
+        this(client, distanceCache, Metrics.DISABLED);
+    }
+
+    public OpenRouteServiceTripCalculator(OpenRouteServiceClient client, DistanceCache distanceCache,
+                                          Metrics metrics) {
+        this(requireNonNull(client, "client"), distanceCache, new OpenRouteServiceDistanceProvider(client),
+                DistanceSnapshot.NONE, EmissionFactors.DEFAULTS, new ConcurrentHashMap<>(), TripMetrics.register(metrics, distanceCache));
+    }
+
+    private OpenRouteServiceTripCalculator(OpenRouteServiceClient client, DistanceCache distanceCache,
+                                           DistanceProvider distanceProvider, DistanceSnapshot distanceSnapshot,
+                                           EmissionFactors emissionFactors, Map<String, Coordinates> coordinatesByCity,
+                                           TripMetrics tripMetrics) {
         this.client = requireNonNull(client, "client");
+        this.distanceCache = requireNonNull(distanceCache, "distanceCache");
+        this.distanceProvider = requireNonNull(distanceProvider, "distanceProvider");
+        this.distanceSnapshot = requireNonNull(distanceSnapshot, "distanceSnapshot");
+        this.emissionFactors = requireNonNull(emissionFactors, "emissionFactors");
+        this.coordinatesByCity = coordinatesByCity;
+        this.tripMetrics = tripMetrics;
+    }
+
+    /**
+     * @return a calculator taking its distances from {@code distanceProvider} that shares geocoding and caches
+     * with this one.
+     */
+    public OpenRouteServiceTripCalculator withDistanceProvider(DistanceProvider distanceProvider) {
+        return new OpenRouteServiceTripCalculator(client, distanceCache, distanceProvider, distanceSnapshot,
+                emissionFactors, coordinatesByCity, tripMetrics);
+    }
+
+    /**
+     * @return a calculator answering distances between cities of {@code distanceSnapshot} from it while its
+     * provider has the snapshot's profile, that shares geocoding and caches with this one.
+     */
+    public OpenRouteServiceTripCalculator withDistanceSnapshot(DistanceSnapshot distanceSnapshot) {
+        return new OpenRouteServiceTripCalculator(client, distanceCache, distanceProvider, distanceSnapshot,
+                emissionFactors, coordinatesByCity, tripMetrics);
+    }
+
+    /**
+     * @return a calculator using {@code emissionFactors} that shares geocoding, distances and caches with this one.
+     */
+    public OpenRouteServiceTripCalculator withEmissionFactors(EmissionFactors emissionFactors) {
+        return new OpenRouteServiceTripCalculator(client, distanceCache, distanceProvider, distanceSnapshot,
+                emissionFactors, coordinatesByCity, tripMetrics);
     }
 
     public BigDecimal compute(String startCity, String endCity, String transportMethodKey) throws IOException {
-        if (startCity.equals(endCity)) {
+        var startedAt = tripMetrics.duration().start();
+        var outcome = tripMetrics.failed();
+        try {
+            var emissions = computeExact(startCity, endCity, transportMethodKey);
+            outcome = tripMetrics.computed();
+            return emissions;
+        } catch (IllegalArgumentException e) {
+            outcome = tripMetrics.rejected();
+            throw e;
+        } finally {
+            outcome.increment();
+            tripMetrics.duration().recordSince(startedAt);
+        }
+    }
+
+    /**
+     * {@link #compute} rounded {@code HALF_UP} to one decimal, as trips are reported. When both cities and their
+     * distance are already known the result is computed on fixed-point longs without allocating intermediate
+     * {@link BigDecimal}s; it is always equal to rounding the result of {@link #compute}.
+     */
+    public BigDecimal computeRounded(String startCity, String endCity, String transportMethodKey) throws IOException {
+        var startedAt = tripMetrics.duration().start();
+        var outcome = tripMetrics.failed();
+        try {
+            var emissions = computeRoundedExact(startCity, endCity, transportMethodKey);
+            outcome = tripMetrics.computed();
+            return emissions;
+        } catch (IllegalArgumentException e) {
+            outcome = tripMetrics.rejected();
+            throw e;
+        } finally {
+            outcome.increment();
+            tripMetrics.duration().recordSince(startedAt);
+        }
+    }
+
+    private BigDecimal computeExact(String startCity, String endCity, String transportMethodKey) throws IOException {
+        if (CityNames.sameCity(startCity, endCity)) {
             return BigDecimal.ZERO;
         }
-        var startCoords = client.fetchCityCoordinates(startCity);
-        var endCoords = client.fetchCityCoordinates(endCity);
-        var gramsPerKm = BigDecimal.valueOf(TransportMethod.fromKey(transportMethodKey).getGramsPerKm());
-        var distanceKm = client.fetchDistanceBetweenLocalities(startCoords, endCoords, startCity, endCity);
+        var gramsPerKm = BigDecimal.valueOf(emissionFactors.gramsPerKm(transportMethodKey));
+        var distanceKm = distanceKm(startCity, endCity);
         return gramsPerKm.multiply(distanceKm).movePointLeft(3);
     }
+
+    private BigDecimal computeRoundedExact(String startCity, String endCity, String transportMethodKey)
+            throws IOException {
+        if (CityNames.sameCity(startCity, endCity)) {
+            return ZERO_ROUNDED;
+        }
+        var gramsPerKm = emissionFactors.gramsPerKm(transportMethodKey);
+        var snapshotMillimeters = snapshotMillimeters(startCity, endCity);
+        if (snapshotMillimeters >= 0) {
+            var tenthsOfKg = FixedPointEmissions.roundedTenthsOfKg(gramsPerKm, snapshotMillimeters);
+            if (tenthsOfKg != FixedPointEmissions.INEXACT) {
+                return BigDecimal.valueOf(tenthsOfKg, 1);
+            }
+        }
+        var startCoords = coordinatesByCity.get(startCity);
+        var endCoords = coordinatesByCity.get(endCity);
+        if (startCoords != null && endCoords != null && !distanceProvider.isLocal()) {
+            var millimeters = distanceCache.getMillimeters(startCoords, endCoords, distanceProvider.profile());
+            if (millimeters != FixedPointEmissions.INEXACT) {
+                var tenthsOfKg = FixedPointEmissions.roundedTenthsOfKg(gramsPerKm, millimeters);
+                if (tenthsOfKg != FixedPointEmissions.INEXACT) {
+                    return BigDecimal.valueOf(tenthsOfKg, 1);
+                }
+            }
+        }
+        return computeExact(startCity, endCity, transportMethodKey).setScale(1, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Non-blocking variant of {@link #compute}: both cities are geocoded concurrently and the distance lookup is
+     * chained on their results, without tying up a thread while requests are in flight. Failures, including an
+     * unknown transport method, complete the returned future exceptionally.
+     */
+    public CompletableFuture<BigDecimal> computeAsync(String startCity, String endCity, String transportMethodKey) {
+        var startedAt = tripMetrics.duration().start();
+        return computeAsyncExact(startCity, endCity, transportMethodKey).whenComplete((emissions, failure) -> {
+            var cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            var outcome = cause == null ? tripMetrics.computed()
+                    : cause instanceof IllegalArgumentException ? tripMetrics.rejected() : tripMetrics.failed();
+            outcome.increment();
+            tripMetrics.duration().recordSince(startedAt);
+        });
+    }
+
+    private CompletableFuture<BigDecimal> computeAsyncExact(String startCity, String endCity,
+                                                            String transportMethodKey) {
+        if (CityNames.sameCity(startCity, endCity)) {
+            return CompletableFuture.completedFuture(BigDecimal.ZERO);
+        }
+        BigDecimal gramsPerKm;
+        try {
+            gramsPerKm = BigDecimal.valueOf(emissionFactors.gramsPerKm(transportMethodKey));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        var snapshotMillimeters = snapshotMillimeters(startCity, endCity);
+        if (snapshotMillimeters != FixedPointEmissions.INEXACT) {
+            try {
+                var distanceKm = snapshotDistanceKm(snapshotMillimeters, startCity, endCity);
+                return CompletableFuture.completedFuture(gramsPerKm.multiply(distanceKm).movePointLeft(3));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return coordinatesAsync(startCity)
+                .thenCombine(coordinatesAsync(endCity), Leg::new)
+                .thenCompose(leg -> distanceKmAsync(leg, startCity, endCity))
+                .thenApply(distanceKm -> gramsPerKm.multiply(distanceKm).movePointLeft(3));
+    }
+
+    /**
+     * Computes the emissions of every leg of a trip through {@code stops}, in order. All stops are geocoded
+     * concurrently and the distances of all legs are requested in one matrix request (see
+     * {@link #prefetchDistances}) instead of one per leg.
+     *
+     * @return the emissions of each leg in kg, one element fewer than {@code stops}
+     */
+    public List<BigDecimal> computeItinerary(List<String> stops, String transportMethodKey) throws IOException {
+        if (stops.size() < 2) {
+            throw new IllegalArgumentException("An itinerary needs at least two stops, got " + stops.size() + ".");
+        }
+        emissionFactors.gramsPerKm(transportMethodKey);
+        var legs = new ArrayList<CityPair>(stops.size() - 1);
+        for (int i = 1; i < stops.size(); i++) {
+            legs.add(new CityPair(stops.get(i - 1), stops.get(i)));
+        }
+        prefetchDistances(legs);
+        var emissions = new ArrayList<BigDecimal>(legs.size());
+        for (var leg : legs) {
+            emissions.add(compute(leg.startCity(), leg.endCity(), transportMethodKey));
+        }
+        return emissions;
+    }
+
+    /**
+     * Compares the emissions of a trip through {@code stops} for each of {@code transportMethodKeys}. The distances
+     * are resolved once, as for {@link #computeItinerary}, and every emission factor is applied to their total.
+     *
+     * @return the emissions in kg by transport method key, lowest first
+     */
+    public Map<String, BigDecimal> compareTransportMethods(List<String> stops, Collection<String> transportMethodKeys)
+            throws IOException {
+        if (stops.size() < 2) {
+            throw new IllegalArgumentException("An itinerary needs at least two stops, got " + stops.size() + ".");
+        }
+        if (transportMethodKeys.isEmpty()) {
+            throw new IllegalArgumentException("No transportation-method to compare.");
+        }
+        var gramsPerKmByKey = new LinkedHashMap<String, Integer>();
+        for (var key : transportMethodKeys) {
+            gramsPerKmByKey.put(key, emissionFactors.gramsPerKm(key));
+        }
+        var legs = new ArrayList<CityPair>(stops.size() - 1);
+        for (int i = 1; i < stops.size(); i++) {
+            legs.add(new CityPair(stops.get(i - 1), stops.get(i)));
+        }
+        if (legs.size() > 1) {
+            prefetchDistances(legs);
+        }
+        var totalKm = BigDecimal.ZERO;
+        for (var leg : legs) {
+            if (!CityNames.sameCity(leg.startCity(), leg.endCity())) {
+                totalKm = totalKm.add(distanceKm(leg.startCity(), leg.endCity()));
+            }
+        }
+        var ranked = new LinkedHashMap<String, BigDecimal>();
+        for (var entry : gramsPerKmByKey.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .toList()) {
+            ranked.put(entry.getKey(), BigDecimal.valueOf(entry.getValue()).multiply(totalKm).movePointLeft(3));
+        }
+        return ranked;
+    }
+
+    /**
+     * @return the keys of all transport methods this calculator has an emission factor for
+     */
+    public List<String> transportMethodKeys() {
+        return emissionFactors.keys();
+    }
+
+    /**
+     * Resolves the distances of all given city pairs that are not known yet with as few matrix requests as
+     * possible, so the following {@link #compute} calls for those pairs need no network round-trip. Pairs whose
+     * cities cannot be geocoded or that have no route are skipped; {@link #compute} reports them as usual.
+     */
+    public void prefetchDistances(Collection<CityPair> cityPairs) throws IOException {
+        if (distanceProvider.isLocal()) {
+            return;
+        }
+        var cities = new LinkedHashSet<String>();
+        for (var cityPair : cityPairs) {
+            if (!CityNames.sameCity(cityPair.startCity(), cityPair.endCity())
+                    && snapshotMillimeters(cityPair.startCity(), cityPair.endCity()) == FixedPointEmissions.INEXACT) {
+                cities.add(cityPair.startCity());
+                cities.add(cityPair.endCity());
+            }
+        }
+        var coordinates = resolveCoordinates(cities, true);
+        var profile = distanceProvider.profile();
+        var pending = new ArrayList<Leg>();
+        var sourceIndexes = new LinkedHashMap<Coordinates, Integer>();
+        var destinationIndexes = new LinkedHashMap<Coordinates, Integer>();
+        for (var cityPair : cityPairs) {
+            var startCoords = coordinates.get(cityPair.startCity());
+            var endCoords = coordinates.get(cityPair.endCity());
+            if (CityNames.sameCity(cityPair.startCity(), cityPair.endCity()) || startCoords == null || endCoords == null
+                    || distanceCache.contains(startCoords, endCoords, profile)
+                    || snapshotMillimeters(cityPair.startCity(), cityPair.endCity()) != FixedPointEmissions.INEXACT) {
+                continue;
+            }
+            sourceIndexes.putIfAbsent(startCoords, sourceIndexes.size());
+            destinationIndexes.putIfAbsent(endCoords, destinationIndexes.size());
+            pending.add(new Leg(startCoords, endCoords));
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        var matrix = distanceProvider.distanceMatrix(
+                new ArrayList<>(sourceIndexes.keySet()), new ArrayList<>(destinationIndexes.keySet()));
+        for (var leg : pending) {
+            matrix.distanceKm(sourceIndexes.get(leg.start()), destinationIndexes.get(leg.end()))
+                    .ifPresent(distanceKm -> distanceCache.put(leg.start(), leg.end(), profile, distanceKm));
+        }
+    }
+
+    /**
+     * @return the coordinates this instance already resolved for {@code city}, without geocoding it.
+     */
+    public Optional<Coordinates> knownCoordinates(String city) {
+        return Optional.ofNullable(resolvedCoordinates(city));
+    }
+
+    /**
+     * @return the cached distance between two locations for the current {@link #distanceProfile() profile},
+     * without requesting it; always empty for local providers, whose distances are not cached.
+     */
+    public Optional<BigDecimal> knownDistanceKm(Coordinates start, Coordinates end) {
+        if (distanceProvider.isLocal()) {
+            return Optional.empty();
+        }
+        return distanceCache.peek(start, end, distanceProvider.profile());
+    }
+
+    /**
+     * @return the distance between two cities this instance already resolved, e.g. by computing a trip between
+     * them, without any request; empty while either city or, for the ORS provider, their distance is unknown.
+     */
+    public Optional<BigDecimal> knownDistanceKm(String startCity, String endCity) throws IOException {
+        if (CityNames.sameCity(startCity, endCity)) {
+            return Optional.of(BigDecimal.ZERO);
+        }
+        var snapshotMillimeters = snapshotMillimeters(startCity, endCity);
+        if (snapshotMillimeters != FixedPointEmissions.INEXACT) {
+            return snapshotMillimeters == DistanceSnapshot.NO_ROUTE
+                    ? Optional.empty()
+                    : Optional.of(BigDecimal.valueOf(snapshotMillimeters, 6));
+        }
+        var startCoords = resolvedCoordinates(startCity);
+        var endCoords = resolvedCoordinates(endCity);
+        if (startCoords == null || endCoords == null) {
+            return Optional.empty();
+        }
+        if (distanceProvider.isLocal()) {
+            return Optional.of(distanceProvider.distanceKm(startCoords, endCoords, startCity, endCity));
+        }
+        return distanceCache.peek(startCoords, endCoords, distanceProvider.profile());
+    }
+
+    /**
+     * Geocodes {@code cities} and writes the distances between all of them, resolved with as few matrix requests
+     * as the provider allows, as a {@link DistanceSnapshot} to {@code file}. Names are normalized first and cities
+     * that cannot be geocoded are left out.
+     *
+     * @return the normalized names of the cities written
+     */
+    public List<String> writeDistanceSnapshot(Collection<String> cities, Path file) throws IOException {
+        var names = new LinkedHashSet<String>();
+        for (var city : cities) {
+            var name = CityNames.normalize(city);
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        var coordinates = resolveCoordinates(names, true);
+        var located = names.stream().filter(coordinates::containsKey).toList();
+        var locations = located.stream().map(coordinates::get).toList();
+        DistanceSnapshot.write(located, distanceProvider.distanceMatrix(locations, locations),
+                distanceProvider.profile(), file);
+        return located;
+    }
+
+    public String distanceProfile() {
+        return distanceProvider.profile();
+    }
+
+    /**
+     * Seeds coordinates resolved earlier, e.g. by an interrupted batch run, so {@code city} is not geocoded again.
+     */
+    public void restoreCoordinates(String city, Coordinates coordinates) {
+        remember(requireNonNull(city, "city"), requireNonNull(coordinates, "coordinates"));
+    }
+
+    /**
+     * Seeds a distance resolved earlier for {@code profile}; it is only used while the calculator's provider has
+     * the same profile.
+     */
+    public void restoreDistanceKm(Coordinates start, Coordinates end, String profile, BigDecimal distanceKm) {
+        distanceCache.put(start, end, profile, distanceKm);
+    }
+
+    public DistanceCache.Stats distanceCacheStats() {
+        return distanceCache.stats();
+    }
+
+    private BigDecimal distanceKm(String startCity, String endCity) throws IOException {
+        var snapshotMillimeters = snapshotMillimeters(startCity, endCity);
+        if (snapshotMillimeters != FixedPointEmissions.INEXACT) {
+            return snapshotDistanceKm(snapshotMillimeters, startCity, endCity);
+        }
+        var coordinates = resolveCoordinates(List.of(startCity, endCity), false);
+        var startCoords = coordinates.get(startCity);
+        var endCoords = coordinates.get(endCity);
+        if (distanceProvider.isLocal()) {
+            return distanceProvider.distanceKm(startCoords, endCoords, startCity, endCity);
+        }
+        var cached = distanceCache.get(startCoords, endCoords, distanceProvider.profile());
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        var distanceKm = distanceProvider.distanceKm(startCoords, endCoords, startCity, endCity);
+        distanceCache.put(startCoords, endCoords, distanceProvider.profile(), distanceKm);
+        return distanceKm;
+    }
+
+    /**
+     * @return the distance between both cities in millimeters from the snapshot, {@link DistanceSnapshot#NO_ROUTE},
+     * or {@link FixedPointEmissions#INEXACT} when the snapshot lacks either city or was measured with a profile
+     * other than the provider's.
+     */
+    private long snapshotMillimeters(String startCity, String endCity) {
+        if (distanceSnapshot.size() == 0 || !distanceSnapshot.profile().equals(distanceProvider.profile())) {
+            return FixedPointEmissions.INEXACT;
+        }
+        return distanceSnapshot.millimeters(startCity, endCity);
+    }
+
+    private static BigDecimal snapshotDistanceKm(long millimeters, String startCity, String endCity) {
+        if (millimeters == DistanceSnapshot.NO_ROUTE) {
+            throw new IllegalArgumentException("Could not fetch distance between \"" + startCity + "\" and \""
+                    + endCity + "\". Cities might not be reachable by car.");
+        }
+        return BigDecimal.valueOf(millimeters, 6);
+    }
+
+    /**
+     * Looks up the coordinates of all given cities, geocoding the unknown ones in parallel (at most
+     * {@value #MAX_CONCURRENT_LOOKUPS} at a time). With {@code skipUnknown} cities the API cannot locate are left
+     * out of the result, otherwise the failure of the first such city (in iteration order) is rethrown.
+     */
+    private Map<String, Coordinates> resolveCoordinates(Collection<String> cities, boolean skipUnknown)
+            throws IOException {
+        var resolved = new HashMap<String, Coordinates>();
+        var pending = new LinkedHashSet<String>();
+        for (var city : cities) {
+            var coordinates = resolvedCoordinates(city);
+            if (coordinates != null) {
+                resolved.put(city, coordinates);
+            } else {
+                pending.add(city);
+            }
+        }
+        if (pending.size() == 1) {
+            var city = pending.iterator().next();
+            try {
+                resolved.put(city, coordinates(city));
+            } catch (IllegalArgumentException e) {
+                if (!skipUnknown) {
+                    throw e;
+                }
+            }
+        } else if (!pending.isEmpty()) {
+            var permits = new Semaphore(MAX_CONCURRENT_LOOKUPS);
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                var lookups = new LinkedHashMap<String, Future<Coordinates>>();
+                for (var city : pending) {
+                    lookups.put(city, executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return coordinates(city);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (var lookup : lookups.entrySet()) {
+                    try {
+                        resolved.put(lookup.getKey(), lookup.getValue().get());
+                    } catch (ExecutionException e) {
+                        if (!(skipUnknown && e.getCause() instanceof IllegalArgumentException)) {
+                            executor.shutdownNow();
+                            throw rethrow(e.getCause());
+                        }
+                    } catch (InterruptedException e) {
+                        executor.shutdownNow();
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while geocoding " + lookup.getKey());
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private CompletableFuture<BigDecimal> distanceKmAsync(Leg leg, String startCity, String endCity) {
+        if (distanceProvider.isLocal()) {
+            return distanceProvider.distanceKmAsync(leg.start(), leg.end(), startCity, endCity);
+        }
+        var cached = distanceCache.get(leg.start(), leg.end(), distanceProvider.profile());
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return distanceProvider.distanceKmAsync(leg.start(), leg.end(), startCity, endCity)
+                .thenApply(distanceKm -> {
+                    distanceCache.put(leg.start(), leg.end(), distanceProvider.profile(), distanceKm);
+                    return distanceKm;
+                });
+    }
+
+    private CompletableFuture<Coordinates> coordinatesAsync(String city) {
+        var coordinates = resolvedCoordinates(city);
+        if (coordinates != null) {
+            return CompletableFuture.completedFuture(coordinates);
+        }
+        return client.fetchCityCoordinatesAsync(city).thenApply(resolved -> {
+            remember(city, resolved);
+            return resolved;
+        });
+    }
+
+    private Coordinates coordinates(String city) throws IOException {
+        var coordinates = resolvedCoordinates(city);
+        if (coordinates == null) {
+            coordinates = client.fetchCityCoordinates(city);
+            remember(city, coordinates);
+        }
+        return coordinates;
+    }
+
+    /**
+     * @return the coordinates resolved for {@code city} under this or another spelling of its normalized name.
+     */
+    private Coordinates resolvedCoordinates(String city) {
+        var coordinates = coordinatesByCity.get(city);
+        if (coordinates == null) {
+            coordinates = coordinatesByCity.get(CityNames.normalize(city));
+            if (coordinates != null) {
+                coordinatesByCity.put(city, coordinates);
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * Keeps {@code coordinates} under the normalized name and, so the fast path of {@link #computeRounded} finds
+     * them without normalizing, under {@code city} as given.
+     */
+    private void remember(String city, Coordinates coordinates) {
+        coordinatesByCity.put(CityNames.normalize(city), coordinates);
+        coordinatesByCity.put(city, coordinates);
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+
+    private record Leg(Coordinates start, Coordinates end) {
+    }
+
+    /**
+     * Instruments shared by a calculator and the variants derived from it with {@code with...}.
+     */
+    private record TripMetrics(Timer duration, Counter computed, Counter rejected, Counter failed) {
+        static TripMetrics register(Metrics metrics, DistanceCache distanceCache) {
+            var help = "Trips computed, rejected as invalid input, or failed";
+            metrics.gauge("co2_distance_cache_hits", "Distance cache hits",
+                    () -> distanceCache.stats().hits());
+            metrics.gauge("co2_distance_cache_misses", "Distance cache misses",
+                    () -> distanceCache.stats().misses());
+            metrics.gauge("co2_distance_cache_evictions", "Distance cache evictions",
+                    () -> distanceCache.stats().evictions());
+            metrics.gauge("co2_distance_cache_size", "Distances currently cached",
+                    () -> distanceCache.stats().size());
+            metrics.gauge("co2_distance_cache_hit_ratio", "Share of distance lookups answered by the cache", () -> {
+                var stats = distanceCache.stats();
+                var lookups = stats.hits() + stats.misses();
+                return lookups == 0 ? 0 : (double) stats.hits() / lookups;
+            });
+            return new TripMetrics(
+                    metrics.timer("co2_trip_duration_seconds", "Time to compute the emissions of one trip"),
+                    metrics.counter("co2_trips_total", help, "result", "computed"),
+                    metrics.counter("co2_trips_total", help, "result", "rejected"),
+                    metrics.counter("co2_trips_total", help, "result", "failed"));
+        }
+    }
 }
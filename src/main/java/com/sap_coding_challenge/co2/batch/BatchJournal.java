@@ -0,0 +1,280 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Progress journal of a batch run, kept next to the output file so an interrupted run can be resumed. It is an
+ * append-only text file: a header identifying the input by its size and a checksum of its first and last
+ * {@value #FINGERPRINT_BLOCK_BYTES} bytes, the coordinates ({@code C}) and distances ({@code D})
+ * resolved so far, and after every window a checkpoint ({@code W}) with the rows done, the rows failed and the
+ * output size at that point. Every city and city pair is journaled once.
+ */
+final class BatchJournal implements Closeable {
+    private static final String HEADER = "co2-batch-journal 2";
+    private static final int FINGERPRINT_BLOCK_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final BufferedWriter out;
+    private final Set<String> journaledCities;
+    private final Set<Leg> journaledLegs;
+    private long rowsDone;
+    private long rowsFailed;
+    private long outputBytes;
+
+    private BatchJournal(Path path, BufferedWriter out, Set<String> journaledCities, Set<Leg> journaledLegs,
+                         long rowsDone, long rowsFailed, long outputBytes) {
+        this.path = path;
+        this.out = out;
+        this.journaledCities = journaledCities;
+        this.journaledLegs = journaledLegs;
+        this.rowsDone = rowsDone;
+        this.rowsFailed = rowsFailed;
+        this.outputBytes = outputBytes;
+    }
+
+    static Path pathFor(Path output) {
+        return output.resolveSibling(output.getFileName() + ".journal");
+    }
+
+    /**
+     * Starts an empty journal for a new run, replacing any previous one.
+     */
+    static BatchJournal start(Path path, Path input) throws IOException {
+        var out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        out.write(header(input));
+        out.flush();
+        return new BatchJournal(path, out, new HashSet<>(), new HashSet<>(), 0, 0, 0);
+    }
+
+    /**
+     * Reads the journal of an interrupted run of {@code input}, seeds {@code tripCalculator} with the coordinates
+     * and distances it holds, and continues it. The journal is rewritten first, which drops a record that was cut
+     * off half-way.
+     *
+     * @throws IOException when the journal belongs to another input
+     */
+    static BatchJournal resume(Path path, Path input, OpenRouteServiceTripCalculator tripCalculator)
+            throws IOException {
+        var cities = new HashSet<String>();
+        var legs = new HashSet<Leg>();
+        var records = new StringBuilder(header(input));
+        String checkpoint = null;
+        long rowsDone = 0;
+        long rowsFailed = 0;
+        long outputBytes = 0;
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            var header = reader.readLine();
+            if (header == null || !(header + "\n").equals(header(input))) {
+                throw new IOException(path + " was not written for " + input + " in its current state;"
+                        + " run without --resume to start over.");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                var fields = line.split("\t", -1);
+                try {
+                    switch (fields[0]) {
+                        case "C" -> {
+                            if (fields.length != 4) {
+                                continue;
+                            }
+                            var city = unescape(fields[1]);
+                            tripCalculator.restoreCoordinates(city, coordinates(fields, 2));
+                            if (cities.add(city)) {
+                                records.append(line).append('\n');
+                            }
+                        }
+                        case "D" -> {
+                            // distances of another distance mode are of no use to this run
+                            if (fields.length != 7 || !unescape(fields[1]).equals(tripCalculator.distanceProfile())) {
+                                continue;
+                            }
+                            var leg = new Leg(coordinates(fields, 2), coordinates(fields, 4));
+                            tripCalculator.restoreDistanceKm(leg.start(), leg.end(), tripCalculator.distanceProfile(),
+                                    new BigDecimal(fields[6]));
+                            if (legs.add(leg)) {
+                                records.append(line).append('\n');
+                            }
+                        }
+                        case "W" -> {
+                            if (fields.length != 4) {
+                                continue;
+                            }
+                            rowsDone = Long.parseLong(fields[1]);
+                            rowsFailed = Long.parseLong(fields[2]);
+                            outputBytes = Long.parseLong(fields[3]);
+                            checkpoint = line;
+                        }
+                        default -> {
+                            // unknown or truncated record
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // truncated record
+                }
+            }
+        }
+        if (checkpoint != null) {
+            records.append(checkpoint).append('\n');
+        }
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmp, records, StandardCharsets.UTF_8);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        var out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        return new BatchJournal(path, out, cities, legs, rowsDone, rowsFailed, outputBytes);
+    }
+
+    long rowsDone() {
+        return rowsDone;
+    }
+
+    long rowsFailed() {
+        return rowsFailed;
+    }
+
+    long outputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * Records a finished window: first what the calculator resolved for its rows, then the checkpoint. The output
+     * must be flushed up to {@code outputBytes} before.
+     */
+    void checkpoint(List<TripRow> window, long failed, long outputBytes, OpenRouteServiceTripCalculator tripCalculator)
+            throws IOException {
+        for (var row : window) {
+            var start = journalCoordinates(row, TripRow.START, tripCalculator);
+            var end = journalCoordinates(row, TripRow.END, tripCalculator);
+            if (start == null || end == null) {
+                continue;
+            }
+            var leg = new Leg(start, end);
+            if (!journaledLegs.contains(leg)) {
+                var distanceKm = tripCalculator.knownDistanceKm(start, end);
+                if (distanceKm.isPresent()) {
+                    journaledLegs.add(leg);
+                    out.write("D\t" + escape(tripCalculator.distanceProfile()) + "\t" + format(start) + "\t"
+                            + format(end) + "\t" + distanceKm.get().toPlainString() + "\n");
+                }
+            }
+        }
+        rowsDone += window.size();
+        rowsFailed += failed;
+        this.outputBytes = outputBytes;
+        out.write("W\t" + rowsDone + "\t" + rowsFailed + "\t" + outputBytes + "\n");
+        out.flush();
+    }
+
+    /**
+     * Closes and removes the journal once the run is complete.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private Coordinates journalCoordinates(TripRow row, String column, OpenRouteServiceTripCalculator tripCalculator)
+            throws IOException {
+        var city = row.fields().get(column);
+        if (city == null) {
+            return null;
+        }
+        var coordinates = tripCalculator.knownCoordinates(city);
+        if (coordinates.isPresent() && journaledCities.add(city)) {
+            out.write("C\t" + escape(city) + "\t" + format(coordinates.get()) + "\n");
+        }
+        return coordinates.orElse(null);
+    }
+
+    private static String header(Path input) throws IOException {
+        return HEADER + "\t" + Files.size(input) + "\t" + fingerprint(input) + "\n";
+    }
+
+    /**
+     * @return a CRC-32 of the first and last block of {@code input}, which covers all of a small file and catches
+     * edits that keep the size of a large one at its ends
+     */
+    private static String fingerprint(Path input) throws IOException {
+        var crc = new CRC32();
+        try (var channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var head = ByteBuffer.allocate((int) Math.min(size, FINGERPRINT_BLOCK_BYTES));
+            readFully(channel, head, 0);
+            crc.update(head.flip());
+            var tailStart = Math.max(head.limit(), size - FINGERPRINT_BLOCK_BYTES);
+            var tail = ByteBuffer.allocate((int) (size - tailStart));
+            readFully(channel, tail, tailStart);
+            crc.update(tail.flip());
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Input changed while reading it");
+            }
+        }
+    }
+
+    private static Coordinates coordinates(String[] fields, int offset) {
+        return new Coordinates(new BigDecimal(fields[offset]), new BigDecimal(fields[offset + 1]));
+    }
+
+    private static String format(Coordinates coordinates) {
+        return coordinates.longitude().toPlainString() + "\t" + coordinates.latitude().toPlainString();
+    }
+
+    static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        var result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                var next = value.charAt(++i);
+                result.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private record Leg(Coordinates start, Coordinates end) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.sap_coding_challenge.co2.batch;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a batch run: how many rows were read, how many could not be computed, how many of them were already
+ * done by the interrupted run it resumed and how long it took.
+ */
+public record BatchSummary(long trips, long failedTrips, long resumedTrips, Duration elapsed) {
+}
@@ -0,0 +1,244 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.sap_coding_challenge.co2.application.CityPair;
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streams trips from an input file through the calculator and appends each result to the output file right away,
+ * so memory use does not depend on the file size. Rows are read in windows whose distinct city pairs are resolved
+ * up front with bulk matrix requests instead of one request per pair; the rows of a window are then computed on
+ * virtual threads, at most {@code parallelism} at a time, and written in input order. Rows that cannot be computed
+ * (unknown city or transport method) are written with an error instead of aborting the run; I/O failures still
+ * abort it.
+ * <p>
+ * Progress is checkpointed in a {@link BatchJournal} next to the output after every window, so a run that aborted
+ * can be resumed: completed rows are skipped and the coordinates and distances resolved so far are restored from
+ * the journal instead of the network. The journal is removed once the run completes.
+ * <p>
+ * A {@link TripAggregator} can total the trips by group as they are computed, on the worker threads; on resume the
+ * rows already in the output are added to it first, so the report covers the whole input.
+ */
+public final class BatchTripProcessor {
+    public static final int DEFAULT_PARALLELISM = 16;
+    static final int WINDOW_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(BatchTripProcessor.class);
+
+    private final OpenRouteServiceTripCalculator tripCalculator;
+    private final int parallelism;
+    private final int windowSize;
+
+    public BatchTripProcessor(OpenRouteServiceTripCalculator tripCalculator) {
+        this(tripCalculator, DEFAULT_PARALLELISM);
+    }
+
+    public BatchTripProcessor(OpenRouteServiceTripCalculator tripCalculator, int parallelism) {
+        this(tripCalculator, parallelism, WINDOW_SIZE);
+    }
+
+    BatchTripProcessor(OpenRouteServiceTripCalculator tripCalculator, int parallelism, int windowSize) {
+        this.tripCalculator = requireNonNull(tripCalculator, "tripCalculator");
+        if (parallelism < 1 || windowSize < 1) {
+            throw new IllegalArgumentException("parallelism and windowSize must be positive");
+        }
+        this.parallelism = parallelism;
+        this.windowSize = windowSize;
+    }
+
+    public BatchSummary process(Path input, Path output) throws IOException {
+        return process(input, output, false);
+    }
+
+    /**
+     * @param resume continue the run recorded in the output's journal, if there is one, instead of starting over
+     */
+    public BatchSummary process(Path input, Path output, boolean resume) throws IOException {
+        return process(input, output, resume, TripAggregator.NONE);
+    }
+
+    /**
+     * @param aggregator totals every trip of the input, including those done by a resumed run
+     */
+    public BatchSummary process(Path input, Path output, boolean resume, TripAggregator aggregator)
+            throws IOException {
+        var journalPath = BatchJournal.pathFor(output);
+        var resuming = resume && Files.exists(journalPath) && Files.exists(output);
+        if (resume && !resuming) {
+            log.warn("Nothing to resume: {} has no journal of an interrupted run; starting over.",
+                    Files.exists(output) ? journalPath : output);
+        }
+        BatchSummary summary;
+        try (var journal = resuming
+                ? BatchJournal.resume(journalPath, input, tripCalculator)
+                : BatchJournal.start(journalPath, input)) {
+            if (resuming) {
+                truncate(output, journal.outputBytes());
+                if (aggregator != TripAggregator.NONE) {
+                    aggregateWritten(output, aggregator);
+                }
+            }
+            var outputFormat = TripFileFormat.of(output);
+            try (var reader = TripFileFormat.of(input).openReader(input);
+                 var writer = resuming ? outputFormat.openAppender(output) : outputFormat.openWriter(output)) {
+                for (long skipped = 0; skipped < journal.rowsDone(); skipped++) {
+                    if (reader.next() == null) {
+                        throw new IOException(input + " has fewer rows than " + journalPath + " recorded as done.");
+                    }
+                }
+                summary = process(reader, writer, aggregator, (window, failed) -> {
+                    writer.flush();
+                    journal.checkpoint(window, failed, Files.size(output), tripCalculator);
+                });
+            }
+            summary = new BatchSummary(journal.rowsDone(), journal.rowsFailed(),
+                    journal.rowsDone() - summary.trips(), summary.elapsed());
+            journal.delete();
+        }
+        return summary;
+    }
+
+    BatchSummary process(TripRowReader reader, TripRowWriter writer) throws IOException {
+        return process(reader, writer, TripAggregator.NONE, (window, failed) -> {
+        });
+    }
+
+    private BatchSummary process(TripRowReader reader, TripRowWriter writer, TripAggregator aggregator,
+                                 Checkpoint checkpoint) throws IOException {
+        var startedAt = System.nanoTime();
+        long trips = 0;
+        long failedTrips = 0;
+        var window = new ArrayList<TripRow>(windowSize);
+        TripRow row;
+        do {
+            window.clear();
+            while (window.size() < windowSize && (row = reader.next()) != null) {
+                window.add(row);
+            }
+            var windowFailures = failedTrips;
+            tripCalculator.prefetchDistances(cityPairs(window));
+            var permits = new Semaphore(parallelism);
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                var results = new ArrayList<Future<BigDecimal>>(window.size());
+                for (var windowRow : window) {
+                    results.add(executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            var co2Kg = tripCalculator.computeRounded(
+                                    windowRow.startCity(), windowRow.endCity(), windowRow.transportMethodKey());
+                            if (aggregator != TripAggregator.NONE) {
+                                aggregator.add(windowRow, co2Kg,
+                                        tripCalculator.knownDistanceKm(windowRow.startCity(), windowRow.endCity()));
+                            }
+                            return co2Kg;
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (int i = 0; i < window.size(); i++) {
+                    var windowRow = window.get(i);
+                    trips++;
+                    try {
+                        writer.write(windowRow, results.get(i).get());
+                    } catch (ExecutionException e) {
+                        if (!(e.getCause() instanceof IllegalArgumentException)) {
+                            executor.shutdownNow();
+                            throw rethrow(e.getCause());
+                        }
+                        failedTrips++;
+                        aggregator.addFailure(windowRow);
+                        writer.writeFailure(windowRow, e.getCause().getMessage());
+                    } catch (InterruptedException e) {
+                        executor.shutdownNow();
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while processing row " + windowRow.number());
+                    }
+                }
+            }
+            if (!window.isEmpty()) {
+                checkpoint.windowDone(window, failedTrips - windowFailures);
+            }
+        } while (window.size() == windowSize);
+        return new BatchSummary(trips, failedTrips, 0, Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Adds the rows a resumed run already wrote to {@code output} to {@code aggregator}, taking their distances from
+     * the coordinates and distances restored from the journal.
+     */
+    private void aggregateWritten(Path output, TripAggregator aggregator) throws IOException {
+        try (var reader = TripFileFormat.of(output).openReader(output)) {
+            TripRow row;
+            while ((row = reader.next()) != null) {
+                if (!row.fields().getOrDefault(TripRowWriter.ERROR, "").isEmpty()) {
+                    aggregator.addFailure(row);
+                } else {
+                    aggregator.add(row, new BigDecimal(row.fields().get(TripRowWriter.CO2_KG)),
+                            tripCalculator.knownDistanceKm(row.startCity(), row.endCity()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops whatever an interrupted run wrote after its last checkpoint.
+     */
+    private static void truncate(Path output, long bytes) throws IOException {
+        try (var channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            if (channel.size() < bytes) {
+                throw new IOException(output + " is shorter than its journal recorded; run without --resume to start over.");
+            }
+            channel.truncate(bytes);
+        }
+    }
+
+    private static LinkedHashSet<CityPair> cityPairs(List<TripRow> rows) {
+        var cityPairs = new LinkedHashSet<CityPair>();
+        for (var row : rows) {
+            try {
+                cityPairs.add(new CityPair(row.startCity(), row.endCity()));
+            } catch (IllegalArgumentException e) {
+                // reported when the row is computed
+            }
+        }
+        return cityPairs;
+    }
+
+    @FunctionalInterface
+    private interface Checkpoint {
+        void windowDone(List<TripRow> window, long failed) throws IOException;
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,161 @@
+package com.sap_coding_challenge.co2.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Minimal RFC 4180 style CSV support: a mandatory header line, comma separated fields and double-quoted fields
+ * with {@code ""} escapes. Records spanning several lines are not supported.
+ */
+final class CsvTripFile {
+
+    private CsvTripFile() {
+    }
+
+    static final class Reader implements TripRowReader {
+        private final BufferedReader in;
+        private List<String> header;
+        private long rowNumber;
+
+        Reader(BufferedReader in) {
+            this.in = requireNonNull(in, "in");
+        }
+
+        @Override
+        public TripRow next() throws IOException {
+            if (header == null) {
+                var headerLine = nextNonBlankLine();
+                if (headerLine == null) {
+                    return null;
+                }
+                header = parseLine(headerLine.strip());
+            }
+            var line = nextNonBlankLine();
+            if (line == null) {
+                return null;
+            }
+            var values = parseLine(line);
+            var fields = new LinkedHashMap<String, String>();
+            for (int i = 0; i < header.size(); i++) {
+                fields.put(header.get(i), i < values.size() ? values.get(i) : "");
+            }
+            return new TripRow(++rowNumber, fields);
+        }
+
+        private String nextNonBlankLine() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+            } while (line != null && line.isBlank());
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static final class Writer implements TripRowWriter {
+        private final BufferedWriter out;
+        private boolean headerWritten;
+
+        Writer(BufferedWriter out) {
+            this(out, false);
+        }
+
+        /**
+         * @param headerWritten whether {@code out} appends to a file that already starts with the header
+         */
+        Writer(BufferedWriter out, boolean headerWritten) {
+            this.out = requireNonNull(out, "out");
+            this.headerWritten = headerWritten;
+        }
+
+        @Override
+        public void write(TripRow row, BigDecimal co2Kg) throws IOException {
+            writeRow(row, co2Kg.toPlainString(), "");
+        }
+
+        @Override
+        public void writeFailure(TripRow row, String error) throws IOException {
+            writeRow(row, "", error);
+        }
+
+        private void writeRow(TripRow row, String co2Kg, String error) throws IOException {
+            if (!headerWritten) {
+                var header = new ArrayList<>(row.fields().keySet());
+                header.add(CO2_KG);
+                header.add(ERROR);
+                writeLine(header);
+                headerWritten = true;
+            }
+            var values = new ArrayList<>(row.fields().values());
+            values.add(co2Kg);
+            values.add(error);
+            writeLine(values);
+        }
+
+        private void writeLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(quote(values.get(i)));
+            }
+            out.newLine();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static List<String> parseLine(String line) {
+        var values = new ArrayList<String>();
+        var current = new StringBuilder();
+        var quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,96 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * JSON Lines support: one flat JSON object per line, keyed like the CSV header.
+ */
+final class JsonLinesTripFile {
+
+    private JsonLinesTripFile() {
+    }
+
+    static final class Reader implements TripRowReader {
+        private final BufferedReader in;
+        private final ObjectMapper objectMapper;
+        private long rowNumber;
+
+        Reader(BufferedReader in, ObjectMapper objectMapper) {
+            this.in = requireNonNull(in, "in");
+            this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+        }
+
+        @Override
+        public TripRow next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            var node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                throw new IOException("Expected a JSON object in row " + (rowNumber + 1) + ".");
+            }
+            var fields = new LinkedHashMap<String, String>();
+            node.fields().forEachRemaining(field ->
+                    fields.put(field.getKey(), field.getValue().isNull() ? "" : field.getValue().asText()));
+            return new TripRow(++rowNumber, fields);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static final class Writer implements TripRowWriter {
+        private final BufferedWriter out;
+        private final ObjectMapper objectMapper;
+
+        Writer(BufferedWriter out, ObjectMapper objectMapper) {
+            this.out = requireNonNull(out, "out");
+            this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+        }
+
+        @Override
+        public void write(TripRow row, BigDecimal co2Kg) throws IOException {
+            var node = objectMapper.createObjectNode();
+            row.fields().forEach(node::put);
+            node.put(CO2_KG, co2Kg);
+            writeLine(node.toString());
+        }
+
+        @Override
+        public void writeFailure(TripRow row, String error) throws IOException {
+            var node = objectMapper.createObjectNode();
+            row.fields().forEach(node::put);
+            node.put(ERROR, error);
+            writeLine(node.toString());
+        }
+
+        private void writeLine(String json) throws IOException {
+            out.write(json);
+            out.newLine();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
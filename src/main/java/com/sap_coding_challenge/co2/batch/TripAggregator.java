@@ -0,0 +1,172 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sums trips, failures, emissions and distances per group while a batch streams through, so a report over any
+ * number of trips needs memory per group only. Groups are keyed by the values of the {@code dimensions} columns;
+ * {@value #MONTH} falls back to the {@code yyyy-MM} prefix of a {@value #DATE} column when the input has no such
+ * column. Totals are kept as fixed-point {@link LongAdder}s (tenths of kg, millimeters), so trips can be added from
+ * many threads without contention and are only summed up when the report is read.
+ */
+public final class TripAggregator {
+    /**
+     * Aggregator that ignores all trips, for runs without a report.
+     */
+    public static final TripAggregator NONE = new TripAggregator();
+
+    static final String MONTH = "month";
+    static final String DATE = "date";
+    static final String TRIPS = "trips";
+    static final String FAILED_TRIPS = "failed-trips";
+    static final String DISTANCE_KM = "distance-km";
+
+    private final List<String> dimensions;
+    private final Map<List<String>, Totals> totalsByGroup = new ConcurrentHashMap<>();
+
+    /**
+     * @param dimensions columns to group by, in report order; none for a single grand total
+     */
+    public TripAggregator(List<String> dimensions) {
+        this.dimensions = List.copyOf(dimensions);
+        for (var dimension : this.dimensions) {
+            if (dimension.isBlank() || List.of(TRIPS, FAILED_TRIPS, DISTANCE_KM, TripRowWriter.CO2_KG, TripRowWriter.ERROR)
+                    .contains(dimension)) {
+                throw new IllegalArgumentException("Cannot group by '" + dimension + "'.");
+            }
+        }
+    }
+
+    private TripAggregator() {
+        this.dimensions = null;
+    }
+
+    /**
+     * @param distanceKm the trip's distance, if known
+     */
+    void add(TripRow row, BigDecimal co2Kg, Optional<BigDecimal> distanceKm) {
+        if (dimensions == null) {
+            return;
+        }
+        var totals = totals(row);
+        totals.trips.increment();
+        totals.co2TenthsOfKg.add(co2Kg.setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        distanceKm.ifPresent(km -> totals.distanceMillimeters.add(
+                km.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact()));
+    }
+
+    void addFailure(TripRow row) {
+        if (dimensions != null) {
+            totals(row).failedTrips.increment();
+        }
+    }
+
+    /**
+     * @return the totals of every group seen so far, ordered by group
+     */
+    public List<Group> groups() {
+        if (dimensions == null) {
+            return List.of();
+        }
+        var groups = new ArrayList<Group>(totalsByGroup.size());
+        totalsByGroup.forEach((key, totals) -> groups.add(new Group(key, totals.trips.sum(),
+                totals.failedTrips.sum(), BigDecimal.valueOf(totals.co2TenthsOfKg.sum(), 1),
+                BigDecimal.valueOf(totals.distanceMillimeters.sum(), 6).setScale(3, RoundingMode.HALF_UP))));
+        groups.sort(Comparator.comparing(Group::key, TripAggregator::compareKeys));
+        return groups;
+    }
+
+    /**
+     * Writes the {@link #groups()} as CSV or, for {@code .jsonl}/{@code .ndjson} files, as JSON Lines.
+     */
+    public void write(Path file) throws IOException {
+        var header = new ArrayList<>(dimensions == null ? List.<String>of() : dimensions);
+        header.addAll(List.of(TRIPS, FAILED_TRIPS, TripRowWriter.CO2_KG, DISTANCE_KM));
+        var objectMapper = new ObjectMapper();
+        var json = TripFileFormat.of(file) == TripFileFormat.JSON_LINES;
+        try (var out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (!json) {
+                out.write(String.join(",", header.stream().map(CsvTripFile::quote).toList()));
+                out.newLine();
+            }
+            for (var group : groups()) {
+                if (json) {
+                    var node = objectMapper.createObjectNode();
+                    for (int i = 0; i < group.key().size(); i++) {
+                        node.put(header.get(i), group.key().get(i));
+                    }
+                    node.put(TRIPS, group.trips());
+                    node.put(FAILED_TRIPS, group.failedTrips());
+                    node.put(TripRowWriter.CO2_KG, group.co2Kg());
+                    node.put(DISTANCE_KM, group.distanceKm());
+                    out.write(objectMapper.writeValueAsString(node));
+                } else {
+                    var values = new ArrayList<>(group.key());
+                    values.addAll(List.of(String.valueOf(group.trips()), String.valueOf(group.failedTrips()),
+                            group.co2Kg().toPlainString(), group.distanceKm().toPlainString()));
+                    out.write(String.join(",", values.stream().map(CsvTripFile::quote).toList()));
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    private Totals totals(TripRow row) {
+        var key = new ArrayList<String>(dimensions.size());
+        for (var dimension : dimensions) {
+            key.add(value(row, dimension));
+        }
+        return totalsByGroup.computeIfAbsent(List.copyOf(key), group -> new Totals());
+    }
+
+    private static String value(TripRow row, String dimension) {
+        var value = row.fields().get(dimension);
+        if (value == null && dimension.equals(MONTH)) {
+            var date = row.fields().getOrDefault(DATE, "").strip();
+            value = date.length() >= 7 ? date.substring(0, 7) : date;
+        }
+        return value == null ? "" : value.strip();
+    }
+
+    private static int compareKeys(List<String> key, List<String> other) {
+        for (int i = 0; i < key.size(); i++) {
+            var comparison = key.get(i).compareTo(other.get(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Totals of one group; {@code key} holds the values of the dimensions in order.
+     */
+    public record Group(List<String> key, long trips, long failedTrips, BigDecimal co2Kg, BigDecimal distanceKm) {
+        public Group {
+            requireNonNull(key, "key");
+        }
+    }
+
+    private static final class Totals {
+        private final LongAdder trips = new LongAdder();
+        private final LongAdder failedTrips = new LongAdder();
+        private final LongAdder co2TenthsOfKg = new LongAdder();
+        private final LongAdder distanceMillimeters = new LongAdder();
+    }
+}
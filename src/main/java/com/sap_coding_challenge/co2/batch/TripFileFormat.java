@@ -0,0 +1,67 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Batch file formats, picked from the file extension: {@code .jsonl}/{@code .ndjson} for JSON Lines, CSV otherwise.
+ */
+public enum TripFileFormat {
+    CSV {
+        @Override
+        public TripRowReader openReader(Path path) throws IOException {
+            return new CsvTripFile.Reader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public TripRowWriter openWriter(Path path) throws IOException {
+            return new CsvTripFile.Writer(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public TripRowWriter openAppender(Path path) throws IOException {
+            var headerWritten = Files.size(path) > 0;
+            return new CsvTripFile.Writer(
+                    Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND), headerWritten);
+        }
+    },
+    JSON_LINES {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        @Override
+        public TripRowReader openReader(Path path) throws IOException {
+            return new JsonLinesTripFile.Reader(Files.newBufferedReader(path, StandardCharsets.UTF_8), objectMapper);
+        }
+
+        @Override
+        public TripRowWriter openWriter(Path path) throws IOException {
+            return new JsonLinesTripFile.Writer(Files.newBufferedWriter(path, StandardCharsets.UTF_8), objectMapper);
+        }
+
+        @Override
+        public TripRowWriter openAppender(Path path) throws IOException {
+            return new JsonLinesTripFile.Writer(
+                    Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND), objectMapper);
+        }
+    };
+
+    public abstract TripRowReader openReader(Path path) throws IOException;
+
+    public abstract TripRowWriter openWriter(Path path) throws IOException;
+
+    /**
+     * Opens {@code path}, which must exist, to append further rows to the ones already written to it.
+     */
+    public abstract TripRowWriter openAppender(Path path) throws IOException;
+
+    public static TripFileFormat of(Path path) {
+        var name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+    }
+}
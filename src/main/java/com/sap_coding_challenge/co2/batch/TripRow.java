@@ -0,0 +1,38 @@
+package com.sap_coding_challenge.co2.batch;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One trip read from a batch input file. {@code fields} keeps every input column in file order so it can be
+ * echoed back next to the computed result.
+ */
+public record TripRow(long number, Map<String, String> fields) {
+    public static final String START = "start";
+    public static final String END = "end";
+    public static final String TRANSPORTATION_METHOD = "transportation-method";
+
+    public TripRow {
+        Objects.requireNonNull(fields, "fields");
+    }
+
+    public String startCity() {
+        return required(START);
+    }
+
+    public String endCity() {
+        return required(END);
+    }
+
+    public String transportMethodKey() {
+        return required(TRANSPORTATION_METHOD);
+    }
+
+    private String required(String column) {
+        var value = fields.get(column);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing \"" + column + "\" in row " + number + ".");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,14 @@
+package com.sap_coding_challenge.co2.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams trips out of a batch input file one row at a time.
+ */
+public interface TripRowReader extends Closeable {
+    /**
+     * @return the next row, or {@code null} once the input is exhausted.
+     */
+    TripRow next() throws IOException;
+}
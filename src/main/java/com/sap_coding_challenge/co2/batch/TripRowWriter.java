@@ -0,0 +1,18 @@
+package com.sap_coding_challenge.co2.batch;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Appends computed trips to a batch output file as soon as they are available.
+ */
+public interface TripRowWriter extends Closeable, Flushable {
+    String CO2_KG = "co2-kg";
+    String ERROR = "error";
+
+    void write(TripRow row, BigDecimal co2Kg) throws IOException;
+
+    void writeFailure(TripRow row, String error) throws IOException;
+}
@@ -0,0 +1,60 @@
+package com.sap_coding_challenge.co2.cli;
+
+import com.sap_coding_challenge.co2.application.DistanceSnapshot;
+import com.sap_coding_challenge.co2.domain.CityNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "build-distance-snapshot",
+        mixinStandardHelpOptions = true,
+        description = "Geocode a list of cities once and store the distances between all of them in a snapshot file, so trips between those cities are computed without network calls.")
+final class BuildDistanceSnapshotCommand implements Callable<Integer> {
+
+    private static final Logger log = LoggerFactory.getLogger(BuildDistanceSnapshotCommand.class);
+
+    @ParentCommand
+    Co2CalculatorCommand parent;
+
+    @Parameters(paramLabel = "<cities-file>",
+            description = "One city per line; blank lines and lines starting with # are ignored")
+    Path cities;
+
+    @Option(names = "--output", paramLabel = "<file>", description = "Snapshot file to write (default: ${DEFAULT-VALUE})")
+    Path output = defaultSnapshotPath();
+
+    @Override
+    public Integer call() throws Exception {
+        var names = Files.readAllLines(cities, StandardCharsets.UTF_8).stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+        var written = parent.tripCalculator().writeDistanceSnapshot(names, output);
+        var distinct = names.stream().map(CityNames::normalize).distinct().count();
+        if (written.size() < distinct) {
+            log.warn("Could not geocode {} of {} cities, they are not part of the snapshot",
+                    distinct - written.size(), distinct);
+        }
+        log.info("Stored the distances between {} cities into {}", written.size(), output);
+        return 0;
+    }
+
+    /**
+     * @return the snapshot file configured through {@code CO2_DISTANCE_SNAPSHOT}, or
+     * {@link DistanceSnapshot#defaultPath()}.
+     */
+    static Path defaultSnapshotPath() {
+        var location = System.getenv("CO2_DISTANCE_SNAPSHOT");
+        return location == null || location.isBlank() || "off".equalsIgnoreCase(location)
+                ? DistanceSnapshot.defaultPath()
+                : Path.of(location);
+    }
+}
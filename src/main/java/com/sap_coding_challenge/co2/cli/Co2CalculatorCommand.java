@@ -1,42 +1,161 @@
 package com.sap_coding_challenge.co2.cli;
 
+import com.sap_coding_challenge.co2.application.DistanceCache;
+import com.sap_coding_challenge.co2.application.DistanceSnapshot;
+import com.sap_coding_challenge.co2.application.HaversineDistanceProvider;
 import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.batch.BatchTripProcessor;
+import com.sap_coding_challenge.co2.batch.TripAggregator;
+import com.sap_coding_challenge.co2.batch.TripRow;
+import com.sap_coding_challenge.co2.client.FileGeocodeCache;
+import com.sap_coding_challenge.co2.client.GazetteerIndex;
+import com.sap_coding_challenge.co2.client.GeocodeCache;
+import com.sap_coding_challenge.co2.client.MissingTokenException;
 import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
+import com.sap_coding_challenge.co2.client.OrsClientSettings;
+import com.sap_coding_challenge.co2.domain.EmissionFactors;
+import com.sap_coding_challenge.co2.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Command(name = "co2-calculator",
         mixinStandardHelpOptions = true,
         version = "co2-calculator 1.0.0",
-        description = "Compute CO2e for a city-to-city trip using OpenRouteService.")
+        description = "Compute CO2e for a city-to-city trip using OpenRouteService.",
+        subcommands = {ImportGazetteerCommand.class, BuildDistanceSnapshotCommand.class, ServeCommand.class})
 public final class Co2CalculatorCommand implements Callable<Integer> {
 
     private static final Logger log = LoggerFactory.getLogger(Co2CalculatorCommand.class);
 
-    @Option(names = "--start", required = true, paramLabel = "<city>", description = "Start city (e.g., Hamburg)")
+    @Spec
+    CommandSpec spec;
+
+    @Option(names = "--start", paramLabel = "<city>", description = "Start city (e.g., Hamburg)")
     String start;
 
-    @Option(names = "--end", required = true, paramLabel = "<city>", description = "End city (e.g., Berlin)")
+    @Option(names = "--end", paramLabel = "<city>", description = "End city (e.g., Berlin)")
     String end;
 
-    @Option(names = "--transportation-method", required = true, paramLabel = "<key>", description = "Transport method key (see TransportMethod enum)")
+    @Option(names = "--via", paramLabel = "<city>", split = ",",
+            description = "Intermediate stop between --start and --end; repeat it or separate stops with commas")
+    List<String> via = new ArrayList<>();
+
+    @Option(names = "--transportation-method", paramLabel = "<key>", description = "Transport method key (see TransportMethod enum and --emission-factors); 'all' or a comma-separated list compares methods")
     String transportationMethod;
 
-    private final OpenRouteServiceTripCalculator tripCalculator;
+    @Option(names = "--input", paramLabel = "<file>", description = "Batch mode: CSV or JSON Lines (.jsonl) file with start, end and transportation-method columns")
+    Path input;
+
+    @Option(names = "--output", paramLabel = "<file>", description = "Batch mode: file the results are written to (CSV or .jsonl)")
+    Path output;
+
+    @Option(names = "--parallelism", paramLabel = "<n>", defaultValue = "" + BatchTripProcessor.DEFAULT_PARALLELISM,
+            description = "Batch mode: number of trips computed concurrently (default: ${DEFAULT-VALUE})")
+    int parallelism = BatchTripProcessor.DEFAULT_PARALLELISM;
+
+    @Option(names = "--resume",
+            description = "Batch mode: continue an interrupted run from its journal (<output>.journal) instead of starting over")
+    boolean resume;
+
+    @Option(names = "--report", paramLabel = "<file>",
+            description = "Batch mode: write trips, CO2 and distance totals per --group-by group to this file (CSV or .jsonl)")
+    Path report;
+
+    @Option(names = "--group-by", paramLabel = "<columns>", split = ",", defaultValue = TripRow.TRANSPORTATION_METHOD,
+            description = "Batch mode: input columns the --report is grouped by, e.g. department,month,transportation-method; "
+                    + "month falls back to the year and month of a date column (default: ${DEFAULT-VALUE})")
+    List<String> groupBy = new ArrayList<>(List.of(TripRow.TRANSPORTATION_METHOD));
+
+    @Option(names = "--distance-mode", paramLabel = "<mode>", defaultValue = "ors",
+            description = "Distance source: ors (road routing, default) or haversine (offline great-circle estimate)")
+    String distanceMode = "ors";
+
+    @Option(names = "--road-factor", paramLabel = "<factor>", defaultValue = "" + HaversineDistanceProvider.DEFAULT_ROAD_FACTOR,
+            description = "Haversine mode: ratio of road to great-circle distance (default: ${DEFAULT-VALUE})")
+    double roadFactor = HaversineDistanceProvider.DEFAULT_ROAD_FACTOR;
+
+    @Option(names = "--emission-factors", paramLabel = "<file>",
+            description = "File of 'key = grams-per-km' lines adding or overriding transport method emission factors")
+    Path emissionFactors;
+
+    @Option(names = "--metrics", paramLabel = "<file>",
+            description = "Write ORS, cache and trip metrics to this file when done (JSON summary for .json, Prometheus text otherwise)")
+    Path metricsFile;
+
+    @Mixin
+    HttpOptions httpOptions = new HttpOptions();
+
+    private final Supplier<OpenRouteServiceTripCalculator> tripCalculator;
+    private final Metrics metrics;
 
     Co2CalculatorCommand(OpenRouteServiceTripCalculator tripCalculator) {
-        this.tripCalculator = Objects.requireNonNull(tripCalculator, "tripCalculator is required");
+        Objects.requireNonNull(tripCalculator, "tripCalculator is required");
+        this.tripCalculator = () -> tripCalculator;
+        this.metrics = new Metrics();
+    }
+
+    /**
+     * The calculator is only created once a command needs it, from the parsed {@link HttpOptions}, so
+     * {@code --help}, {@code --version} and {@code import-gazetteer} do not open caches or HTTP clients.
+     */
+    private Co2CalculatorCommand(Function<HttpOptions, OpenRouteServiceTripCalculator> tripCalculator,
+                                 Metrics metrics) {
+        this.tripCalculator = () -> tripCalculator.apply(httpOptions);
+        this.metrics = metrics;
     }
 
+    /**
+     * A missing {@code ORS_TOKEN} is only reported once a trip needs ORS, so trips answered by the gazetteer and
+     * geocode cache in {@code haversine} mode run without one.
+     */
     @Override
     public Integer call() throws Exception {
+        try {
+            return run();
+        } catch (MissingTokenException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        } finally {
+            writeMetrics();
+        }
+    }
+
+    private Integer run() throws Exception {
+        var tripCalculator = tripCalculator();
+        if (input != null || output != null || resume || report != null) {
+            return runBatch(tripCalculator);
+        }
+        requireOption(start, "--start");
+        requireOption(end, "--end");
+        requireOption(transportationMethod, "--transportation-method");
+        if (transportationMethod.equalsIgnoreCase("all") || transportationMethod.contains(",")) {
+            return runComparison(tripCalculator);
+        }
+        if (!via.isEmpty()) {
+            return runItinerary(tripCalculator);
+        }
         var totalCo2Kg = tripCalculator.compute(start, end, transportationMethod);
         var rounded = totalCo2Kg.setScale(1, RoundingMode.HALF_UP);
         log.info("Computed CO2 footprint: {}kg ({} -> {}, method: {})", rounded, start, end, transportationMethod);
@@ -44,6 +163,152 @@ public final class Co2CalculatorCommand implements Callable<Integer> {
         return 0;
     }
 
+    private Integer runItinerary(OpenRouteServiceTripCalculator tripCalculator) throws IOException {
+        var stops = stops();
+        var legs = tripCalculator.computeItinerary(stops, transportationMethod);
+        var totalCo2Kg = BigDecimal.ZERO;
+        for (int i = 0; i < legs.size(); i++) {
+            log.info("Leg {}: {} -> {}: {}kg", i + 1, stops.get(i), stops.get(i + 1),
+                    legs.get(i).setScale(1, RoundingMode.HALF_UP));
+            totalCo2Kg = totalCo2Kg.add(legs.get(i));
+        }
+        var rounded = totalCo2Kg.setScale(1, RoundingMode.HALF_UP);
+        log.info("Computed CO2 footprint: {}kg ({}, method: {})", rounded, String.join(" -> ", stops),
+                transportationMethod);
+        log.info("Your trip caused {}kg of CO2-equivalent.", rounded);
+        return 0;
+    }
+
+    private Integer runComparison(OpenRouteServiceTripCalculator tripCalculator) throws IOException {
+        var stops = stops();
+        var methods = transportationMethod.equalsIgnoreCase("all")
+                ? tripCalculator.transportMethodKeys()
+                : Arrays.stream(transportationMethod.split(",")).map(String::strip).filter(key -> !key.isEmpty())
+                        .toList();
+        var ranked = tripCalculator.compareTransportMethods(stops, methods);
+        log.info("CO2 footprint of {} by transportation method:", String.join(" -> ", stops));
+        var rank = 0;
+        for (var method : ranked.entrySet()) {
+            log.info(String.format(Locale.ROOT, "%3d. %-28s %10skg", ++rank, method.getKey(),
+                    method.getValue().setScale(1, RoundingMode.HALF_UP).toPlainString()));
+        }
+        return 0;
+    }
+
+    private List<String> stops() {
+        var stops = new ArrayList<String>(via.size() + 2);
+        stops.add(start);
+        stops.addAll(via);
+        stops.add(end);
+        return stops;
+    }
+
+    private Integer runBatch(OpenRouteServiceTripCalculator tripCalculator) throws Exception {
+        requireOption(input, "--input");
+        requireOption(output, "--output");
+        if (start != null || end != null || !via.isEmpty() || transportationMethod != null) {
+            throw new ParameterException(spec.commandLine(),
+                    "--start, --end, --via and --transportation-method cannot be combined with --input/--output");
+        }
+        var aggregator = report == null ? TripAggregator.NONE : tripAggregator();
+        var summary = new BatchTripProcessor(tripCalculator, parallelism).process(input, output, resume, aggregator);
+        if (summary.resumedTrips() > 0) {
+            log.info("Resumed after {} trips completed by the interrupted run", summary.resumedTrips());
+        }
+        log.info("Processed {} trips ({} failed) in {} ms. Results written to {}",
+                summary.trips(), summary.failedTrips(), summary.elapsed().toMillis(), output);
+        log.info("Distance cache: {}", tripCalculator.distanceCacheStats());
+        if (report != null) {
+            aggregator.write(report);
+            log.info("Report with {} groups written to {}", aggregator.groups().size(), report);
+        }
+        var seconds = summary.elapsed().toNanos() / 1e9;
+        metrics.gauge("co2_batch_trips", "Trips in the batch output", summary::trips);
+        metrics.gauge("co2_batch_failed_trips", "Trips of the batch that could not be computed", summary::failedTrips);
+        metrics.gauge("co2_batch_duration_seconds", "Wall-clock time of the batch run", () -> seconds);
+        metrics.gauge("co2_batch_trips_per_second", "Trips processed per second by this run",
+                () -> seconds == 0 ? 0 : (summary.trips() - summary.resumedTrips()) / seconds);
+        return 0;
+    }
+
+    private TripAggregator tripAggregator() {
+        try {
+            return new TripAggregator(groupBy.stream().map(String::strip).toList());
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), "Invalid --group-by: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeMetrics() {
+        if (metricsFile == null) {
+            return;
+        }
+        try {
+            metrics.write(metricsFile);
+            log.info("Metrics written to {}", metricsFile);
+        } catch (IOException e) {
+            log.warn("Cannot write metrics to {}: {}", metricsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the registry the calculator and its client report to, shared with the subcommands.
+     */
+    Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Reports invalid {@code ORS_*} and {@code CO2_*} environment variables as usage errors.
+     */
+    private OpenRouteServiceTripCalculator configuredCalculator() {
+        try {
+            return tripCalculator.get();
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the calculator configured by the distance and emission factor options, shared with the subcommands.
+     */
+    OpenRouteServiceTripCalculator tripCalculator() {
+        var factors = emissionFactors();
+        var calculator = switch (distanceMode) {
+            case "ors" -> configuredCalculator();
+            case "haversine" -> {
+                if (!(roadFactor >= 1.0)) {
+                    throw new ParameterException(spec.commandLine(), "--road-factor must be at least 1.0");
+                }
+                yield configuredCalculator().withDistanceProvider(new HaversineDistanceProvider(roadFactor));
+            }
+            default -> throw new ParameterException(spec.commandLine(),
+                    "Unknown --distance-mode '" + distanceMode + "' (expected ors or haversine)");
+        };
+        return factors == null ? calculator : calculator.withEmissionFactors(factors);
+    }
+
+    private EmissionFactors emissionFactors() {
+        if (emissionFactors == null) {
+            return null;
+        }
+        try {
+            var factors = EmissionFactors.load(emissionFactors);
+            log.debug("Loaded {} emission factors from {}", factors.size(), emissionFactors);
+            return factors;
+        } catch (NoSuchFileException e) {
+            throw new ParameterException(spec.commandLine(), "--emission-factors file not found: " + emissionFactors, e);
+        } catch (IOException e) {
+            throw new ParameterException(spec.commandLine(), "Cannot read --emission-factors: " + e.getMessage(), e);
+        }
+    }
+
+    private void requireOption(Object value, String option) {
+        if (value == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required option: '" + option + "'");
+        }
+    }
+
     public static void main(String[] args) {
         var factory = new CliFactory();
         int exit = new CommandLine(Co2CalculatorCommand.class, factory).execute(args);
@@ -56,14 +321,99 @@ public final class Co2CalculatorCommand implements Callable<Integer> {
         @Override
         public <K> K create(Class<K> cls) throws Exception {
             if (cls == Co2CalculatorCommand.class) {
-                var token = System.getenv("ORS_TOKEN");
-                var client = new OpenRouteServiceClient(token);
-                var calculator = new OpenRouteServiceTripCalculator(client);
+                var metrics = new Metrics();
                 @SuppressWarnings("unchecked")
-                K command = (K) new Co2CalculatorCommand(calculator);
+                K command = (K) new Co2CalculatorCommand(new Function<HttpOptions, OpenRouteServiceTripCalculator>() {
+                    private OpenRouteServiceTripCalculator calculator;
+
+                    @Override
+                    public synchronized OpenRouteServiceTripCalculator apply(HttpOptions httpOptions) {
+                        if (calculator == null) {
+                            calculator = tripCalculator(metrics, httpOptions);
+                        }
+                        return calculator;
+                    }
+                }, metrics);
                 return command;
             }
             return delegate.create(cls);
         }
+
+        private static OpenRouteServiceTripCalculator tripCalculator(Metrics metrics, HttpOptions httpOptions) {
+            var token = System.getenv("ORS_TOKEN");
+            var settings = OrsClientSettings.fromEnvironment(System.getenv());
+            var client = new OpenRouteServiceClient(token, settings.withHttp(httpOptions.applyTo(settings.http())),
+                    GeocodeCache.tiered(gazetteer(), geocodeCache()), metrics);
+            var symmetricDistances = Boolean.parseBoolean(System.getenv("CO2_SYMMETRIC_DISTANCES"));
+            var distanceCache = new DistanceCache(DistanceCache.DEFAULT_MAX_ENTRIES, symmetricDistances);
+            return new OpenRouteServiceTripCalculator(client, distanceCache, metrics)
+                    .withDistanceSnapshot(distanceSnapshot());
+        }
+
+        /**
+         * Local gazetteer built by {@code import-gazetteer}, read from {@code CO2_GAZETTEER} (file path, or
+         * {@code off}) or the default location when such an index exists.
+         */
+        private static GeocodeCache gazetteer() {
+            if ("off".equalsIgnoreCase(System.getenv("CO2_GAZETTEER"))) {
+                return GeocodeCache.NONE;
+            }
+            var path = ImportGazetteerCommand.defaultIndexPath();
+            if (!Files.exists(path)) {
+                return GeocodeCache.NONE;
+            }
+            try {
+                var gazetteer = GazetteerIndex.open(path);
+                log.debug("Using gazetteer {} with {} names", path, gazetteer.size());
+                return gazetteer;
+            } catch (IOException e) {
+                log.warn("Gazetteer {} is unavailable, continuing without it: {}", path, e.getMessage());
+                return GeocodeCache.NONE;
+            }
+        }
+
+        /**
+         * Distance snapshot built by {@code build-distance-snapshot}, read from {@code CO2_DISTANCE_SNAPSHOT} (file
+         * path, or {@code off}) or the default location when such a snapshot exists.
+         */
+        private static DistanceSnapshot distanceSnapshot() {
+            if ("off".equalsIgnoreCase(System.getenv("CO2_DISTANCE_SNAPSHOT"))) {
+                return DistanceSnapshot.NONE;
+            }
+            var path = BuildDistanceSnapshotCommand.defaultSnapshotPath();
+            if (!Files.exists(path)) {
+                return DistanceSnapshot.NONE;
+            }
+            try {
+                var snapshot = DistanceSnapshot.open(path);
+                log.debug("Using distance snapshot {} with {} cities", path, snapshot.size());
+                return snapshot;
+            } catch (IOException e) {
+                log.warn("Distance snapshot {} is unavailable, continuing without it: {}", path, e.getMessage());
+                return DistanceSnapshot.NONE;
+            }
+        }
+
+        /**
+         * On-disk geocode cache, configured through {@code CO2_GEOCODE_CACHE} (file path, or {@code off}) and
+         * {@code CO2_GEOCODE_CACHE_TTL_DAYS}. A cache that cannot be opened only costs the extra geocode calls.
+         */
+        private static GeocodeCache geocodeCache() {
+            var location = System.getenv("CO2_GEOCODE_CACHE");
+            if ("off".equalsIgnoreCase(location)) {
+                return GeocodeCache.NONE;
+            }
+            var path = location == null || location.isBlank() ? FileGeocodeCache.defaultPath() : Path.of(location);
+            var ttlDays = System.getenv("CO2_GEOCODE_CACHE_TTL_DAYS");
+            var ttl = ttlDays == null || ttlDays.isBlank()
+                    ? FileGeocodeCache.DEFAULT_TTL
+                    : Duration.ofDays(Long.parseLong(ttlDays.strip()));
+            try {
+                return FileGeocodeCache.open(path, ttl, FileGeocodeCache.DEFAULT_MAX_ENTRIES);
+            } catch (IOException e) {
+                log.warn("Geocode cache {} is unavailable, continuing without it: {}", path, e.getMessage());
+                return GeocodeCache.NONE;
+            }
+        }
     }
 }
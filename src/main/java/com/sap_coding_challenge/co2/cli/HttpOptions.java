@@ -0,0 +1,55 @@
+package com.sap_coding_challenge.co2.cli;
+
+import com.sap_coding_challenge.co2.client.HttpClientSettings;
+import picocli.CommandLine.Option;
+
+import java.time.Duration;
+
+/**
+ * Options overriding the {@code ORS_HTTP_*} settings of the ORS HTTP client; unset options keep the value from the
+ * environment, see {@link HttpClientSettings#fromEnvironment}.
+ */
+final class HttpOptions {
+
+    @Option(names = "--http-max-idle-connections", paramLabel = "<n>",
+            description = "Connections kept warm between ORS requests (default: ORS_HTTP_MAX_IDLE_CONNECTIONS or 16)")
+    Integer maxIdleConnections;
+
+    @Option(names = "--http-keep-alive-seconds", paramLabel = "<seconds>",
+            description = "How long an idle connection is kept (default: ORS_HTTP_KEEP_ALIVE_SECONDS or 300)")
+    Integer keepAliveSeconds;
+
+    @Option(names = "--http-max-requests", paramLabel = "<n>",
+            description = "Concurrent asynchronous ORS requests (default: ORS_HTTP_MAX_REQUESTS or 64)")
+    Integer maxRequests;
+
+    @Option(names = "--http-max-requests-per-host", paramLabel = "<n>",
+            description = "Concurrent asynchronous requests per ORS host (default: ORS_HTTP_MAX_REQUESTS_PER_HOST or 16)")
+    Integer maxRequestsPerHost;
+
+    @Option(names = "--http-connect-timeout-ms", paramLabel = "<ms>",
+            description = "ORS connect timeout (default: ORS_HTTP_CONNECT_TIMEOUT_MS or 10000)")
+    Integer connectTimeoutMillis;
+
+    @Option(names = "--http-read-timeout-ms", paramLabel = "<ms>",
+            description = "ORS read timeout (default: ORS_HTTP_READ_TIMEOUT_MS or 30000)")
+    Integer readTimeoutMillis;
+
+    @Option(names = "--http2", negatable = true,
+            description = "Negotiate HTTP/2 with ORS; --no-http2 sticks to HTTP/1.1 (default: ORS_HTTP2 or true)")
+    Boolean http2;
+
+    /**
+     * @return {@code settings} with the given options replacing its values
+     */
+    HttpClientSettings applyTo(HttpClientSettings settings) {
+        return new HttpClientSettings(
+                maxIdleConnections != null ? maxIdleConnections : settings.maxIdleConnections(),
+                keepAliveSeconds != null ? Duration.ofSeconds(keepAliveSeconds) : settings.keepAlive(),
+                maxRequests != null ? maxRequests : settings.maxRequests(),
+                maxRequestsPerHost != null ? maxRequestsPerHost : settings.maxRequestsPerHost(),
+                connectTimeoutMillis != null ? Duration.ofMillis(connectTimeoutMillis) : settings.connectTimeout(),
+                readTimeoutMillis != null ? Duration.ofMillis(readTimeoutMillis) : settings.readTimeout(),
+                http2 != null ? http2 : settings.http2());
+    }
+}
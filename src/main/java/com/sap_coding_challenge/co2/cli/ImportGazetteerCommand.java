@@ -0,0 +1,46 @@
+package com.sap_coding_challenge.co2.cli;
+
+import com.sap_coding_challenge.co2.client.GazetteerIndex;
+import com.sap_coding_challenge.co2.client.GeoNamesImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "import-gazetteer",
+        mixinStandardHelpOptions = true,
+        description = "Build the local gazetteer index from a GeoNames dump (e.g., cities500.txt) so known cities are geocoded without network calls.")
+final class ImportGazetteerCommand implements Callable<Integer> {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportGazetteerCommand.class);
+
+    @Parameters(paramLabel = "<geonames-file>", description = "Tab separated GeoNames dump")
+    Path dump;
+
+    @Option(names = "--output", paramLabel = "<file>", description = "Index file to write (default: ${DEFAULT-VALUE})")
+    Path output = defaultIndexPath();
+
+    @Option(names = "--alternate-names", description = "Also index alternate names (larger index, more matches)")
+    boolean alternateNames;
+
+    @Override
+    public Integer call() throws Exception {
+        var names = GeoNamesImporter.importDump(dump, output, alternateNames);
+        log.info("Indexed {} city names into {}", names, output);
+        return 0;
+    }
+
+    /**
+     * @return the index file configured through {@code CO2_GAZETTEER}, or {@link GazetteerIndex#defaultPath()}.
+     */
+    static Path defaultIndexPath() {
+        var location = System.getenv("CO2_GAZETTEER");
+        return location == null || location.isBlank() || "off".equalsIgnoreCase(location)
+                ? GazetteerIndex.defaultPath()
+                : Path.of(location);
+    }
+}
@@ -0,0 +1,44 @@
+package com.sap_coding_challenge.co2.cli;
+
+import com.sap_coding_challenge.co2.server.TripCalculatorServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+@Command(name = "serve",
+        mixinStandardHelpOptions = true,
+        description = "Serve the calculator over HTTP (POST /trips, POST /trips/batch, GET /health, GET /metrics) until stopped.")
+final class ServeCommand implements Callable<Integer> {
+
+    private static final Logger log = LoggerFactory.getLogger(ServeCommand.class);
+
+    @ParentCommand
+    Co2CalculatorCommand parent;
+
+    @Option(names = "--host", paramLabel = "<address>", description = "Address to bind (default: ${DEFAULT-VALUE})")
+    String host = "localhost";
+
+    @Option(names = "--port", paramLabel = "<port>", description = "Port to listen on (default: ${DEFAULT-VALUE})")
+    int port = TripCalculatorServer.DEFAULT_PORT;
+
+    @Override
+    public Integer call() throws Exception {
+        var stopped = new CountDownLatch(1);
+        var server = TripCalculatorServer.start(parent.tripCalculator(), new InetSocketAddress(host, port),
+                parent.metrics());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Shutting down");
+            server.close();
+            stopped.countDown();
+        }));
+        log.info("Listening on http://{}:{}", server.address().getHostString(), server.address().getPort());
+        stopped.await();
+        return 0;
+    }
+}
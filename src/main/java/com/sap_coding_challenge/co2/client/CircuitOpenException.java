@@ -0,0 +1,15 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling an ORS endpoint whose circuit breaker is open after repeated failures.
+ */
+public final class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    CircuitOpenException(String endpoint, int failures, long retryInMillis) {
+        super("ORS " + endpoint + " API unavailable after " + failures + " consecutive failures; next attempt in "
+                + Math.max(1, (retryInMillis + 999) / 1000) + "s.");
+    }
+}
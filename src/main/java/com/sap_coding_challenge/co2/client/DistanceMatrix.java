@@ -0,0 +1,49 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Driving distances between a list of sources and a list of destinations, indexed in the order they were requested.
+ * Distances are kept as meters in a flat primitive array; unreachable pairs are stored as {@code NaN}.
+ */
+public final class DistanceMatrix {
+    private final int sources;
+    private final int destinations;
+    private final double[] meters;
+
+    public DistanceMatrix(int sources, int destinations) {
+        this.sources = sources;
+        this.destinations = destinations;
+        this.meters = new double[sources * destinations];
+        Arrays.fill(meters, Double.NaN);
+    }
+
+    public int sources() {
+        return sources;
+    }
+
+    public int destinations() {
+        return destinations;
+    }
+
+    /**
+     * @return the distance in kilometers, or empty when ORS found no route between both locations.
+     */
+    public Optional<BigDecimal> distanceKm(int source, int destination) {
+        var value = meters[index(source, destination)];
+        return Double.isNaN(value) ? Optional.empty() : Optional.of(BigDecimal.valueOf(value).movePointLeft(3));
+    }
+
+    public void setMeters(int source, int destination, double value) {
+        meters[index(source, destination)] = value;
+    }
+
+    private int index(int source, int destination) {
+        if (source < 0 || source >= sources || destination < 0 || destination >= destinations) {
+            throw new IndexOutOfBoundsException("No distance for source " + source + " and destination " + destination);
+        }
+        return source * destinations + destination;
+    }
+}
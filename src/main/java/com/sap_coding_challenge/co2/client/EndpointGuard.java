@@ -0,0 +1,142 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.metrics.Counter;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Retry budget and circuit breaker of one ORS endpoint, applied as configured by {@link ResilienceSettings}.
+ * <p>
+ * The budget starts with {@value #RETRY_RESERVE} retries and earns {@code retryBudgetRatio} of a retry per call,
+ * up to the same reserve. The circuit opens after {@code failureThreshold} consecutive failures; while it is open
+ * calls fail with {@link CircuitOpenException}, and every {@code openDuration} one trial call is let through whose
+ * outcome closes or re-opens it. State is guarded by a short lock so virtual threads are not pinned.
+ */
+final class EndpointGuard {
+    static final int RETRY_RESERVE = 10;
+
+    private final String endpoint;
+    private final ResilienceSettings settings;
+    private final LongSupplier nanoClock;
+    private final DoubleSupplier random;
+    private final Counter retries;
+    private final Counter rejections;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double retryTokens = RETRY_RESERVE;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    EndpointGuard(String endpoint, ResilienceSettings settings, Metrics metrics) {
+        this(endpoint, settings, metrics, System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    EndpointGuard(String endpoint, ResilienceSettings settings, LongSupplier nanoClock, DoubleSupplier random) {
+        this(endpoint, settings, Metrics.DISABLED, nanoClock, random);
+    }
+
+    private EndpointGuard(String endpoint, ResilienceSettings settings, Metrics metrics, LongSupplier nanoClock,
+                          DoubleSupplier random) {
+        this.endpoint = requireNonNull(endpoint, "endpoint");
+        this.settings = requireNonNull(settings, "settings");
+        this.nanoClock = requireNonNull(nanoClock, "nanoClock");
+        this.random = requireNonNull(random, "random");
+        this.retries = metrics.counter("co2_ors_retries_total", "Retried ORS attempts", "endpoint", endpoint);
+        this.rejections = metrics.counter("co2_ors_circuit_rejections_total",
+                "ORS calls failed fast by an open circuit", "endpoint", endpoint);
+    }
+
+    /**
+     * Records a new call (not a retry), earning a share of a retry.
+     */
+    void onCall() {
+        lock.lock();
+        try {
+            retryTokens = Math.min(RETRY_RESERVE, retryTokens + settings.retryBudgetRatio());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks the circuit before an attempt. Once the open period is over the caller becomes the trial call and the
+     * circuit stays open for everyone else for another period, or until the trial succeeds.
+     */
+    void acquire() throws CircuitOpenException {
+        if (settings.failureThreshold() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (consecutiveFailures < settings.failureThreshold()) {
+                return;
+            }
+            var now = nanoClock.getAsLong();
+            if (now - openUntil < 0) {
+                rejections.increment();
+                throw new CircuitOpenException(endpoint, consecutiveFailures,
+                        TimeUnit.NANOSECONDS.toMillis(openUntil - now));
+            }
+            openUntil = now + settings.openDuration().toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (settings.failureThreshold() > 0 && consecutiveFailures == settings.failureThreshold()) {
+                openUntil = nanoClock.getAsLong() + settings.openDuration().toNanos();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decides whether a failed attempt is retried and spends a retry from the budget if so.
+     *
+     * @param attempt         the failed attempt, starting at 1
+     * @param retryAfterNanos minimum wait the server asked for, {@code 0} if none
+     * @return nanoseconds to wait before the next attempt, or {@code -1} to give up
+     */
+    long retryDelayNanos(int attempt, long retryAfterNanos) {
+        var maxDelayNanos = settings.maxDelay().toNanos();
+        if (attempt >= settings.maxAttempts() || retryAfterNanos > maxDelayNanos) {
+            return -1;
+        }
+        lock.lock();
+        try {
+            if (retryTokens < 1) {
+                return -1;
+            }
+            retryTokens--;
+        } finally {
+            lock.unlock();
+        }
+        retries.increment();
+        var ceiling = settings.baseDelay().toNanos();
+        for (int i = 1; i < attempt && ceiling < maxDelayNanos; i++) {
+            ceiling *= 2;
+        }
+        var jittered = (long) (random.getAsDouble() * Math.min(ceiling, maxDelayNanos));
+        return Math.max(jittered, retryAfterNanos);
+    }
+}
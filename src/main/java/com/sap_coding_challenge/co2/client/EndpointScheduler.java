@@ -0,0 +1,230 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import okhttp3.Response;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Per-minute pacing and daily budget of one ORS endpoint, as configured by {@link QuotaSettings}.
+ * <p>
+ * Requests wait in a queue ordered by their value (the routes a matrix request resolves), highest first and in
+ * arrival order otherwise, and are released one every {@code 1 / perMinute} while the budget of the current day
+ * lasts. Days start at midnight UTC unless ORS reports another reset through {@code x-ratelimit-reset}; the budget
+ * is counted locally and lowered to {@code x-ratelimit-remaining} when ORS reports less. Once it is used up, waiting
+ * requests fail with {@link QuotaExhaustedException} or, with {@code waitForReset}, are released when the next day
+ * starts. Waiting is a future, so no thread is blocked by the scheduler itself.
+ */
+final class EndpointScheduler {
+    static final String REMAINING_HEADER = "x-ratelimit-remaining";
+    static final String RESET_HEADER = "x-ratelimit-reset";
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final String endpoint;
+    private final int perDay;
+    private final long millisPerRequest;
+    private final boolean waitForReset;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparingLong(Waiter::value).reversed().thenComparingLong(Waiter::sequence));
+    private long sequence;
+    private long nextSlotMillis;
+    private long windowEndMillis;
+    private int remaining;
+    private long timerAtMillis;
+
+    EndpointScheduler(String endpoint, int perMinute, int perDay, boolean waitForReset, Metrics metrics) {
+        this(endpoint, perMinute, perDay, waitForReset, metrics, Clock.systemUTC());
+    }
+
+    EndpointScheduler(String endpoint, int perMinute, int perDay, boolean waitForReset, Metrics metrics,
+                      Clock clock) {
+        if (perMinute < 0 || perDay < 0) {
+            throw new IllegalArgumentException("Quotas must not be negative");
+        }
+        this.endpoint = requireNonNull(endpoint, "endpoint");
+        this.perDay = perDay;
+        this.millisPerRequest = perMinute == 0 ? 0 : TimeUnit.MINUTES.toMillis(1) / perMinute;
+        this.waitForReset = waitForReset;
+        this.clock = requireNonNull(clock, "clock");
+        this.remaining = perDay;
+        this.windowEndMillis = nextMidnight(clock.millis());
+        if (perDay > 0) {
+            metrics.gauge("co2_ors_quota_remaining", "Requests left in the daily ORS quota",
+                    this::remaining, "endpoint", endpoint);
+        }
+        if (!isUnlimited()) {
+            metrics.gauge("co2_ors_quota_waiting", "Requests waiting for the ORS quota",
+                    this::waitingRequests, "endpoint", endpoint);
+        }
+    }
+
+    /**
+     * @param value how much the request resolves, e.g. its routes; more valuable requests are sent first
+     * @return a future completed once the request may be sent, or failed with {@link QuotaExhaustedException}.
+     * Cancelling it gives up the place in the queue.
+     */
+    CompletableFuture<Void> reserve(long value) {
+        if (isUnlimited()) {
+            return GRANTED;
+        }
+        var grant = new CompletableFuture<Void>();
+        lock.lock();
+        try {
+            waiting.add(new Waiter(value, sequence++, grant));
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+        return grant;
+    }
+
+    /**
+     * Takes the budget ORS reports in the response headers into account.
+     */
+    void onResponse(Response response) {
+        if (perDay == 0) {
+            return;
+        }
+        var reportedRemaining = parse(response.header(REMAINING_HEADER));
+        var reportedReset = parse(response.header(RESET_HEADER));
+        lock.lock();
+        try {
+            if (reportedReset > 0 && reportedReset * 1000 > clock.millis()) {
+                windowEndMillis = reportedReset * 1000;
+            }
+            if (reportedRemaining >= 0 && reportedRemaining < remaining) {
+                remaining = (int) reportedRemaining;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int remaining() {
+        lock.lock();
+        try {
+            startNewWindowIfDue(clock.millis());
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int waitingRequests() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUnlimited() {
+        return perDay == 0 && millisPerRequest == 0;
+    }
+
+    /**
+     * Releases as many waiting requests as pacing and budget allow and schedules the next run for the rest.
+     */
+    private void dispatch() {
+        var granted = new ArrayList<Waiter>();
+        var rejected = new ArrayList<Waiter>();
+        QuotaExhaustedException exhausted = null;
+        lock.lock();
+        try {
+            var now = clock.millis();
+            startNewWindowIfDue(now);
+            while (!waiting.isEmpty()) {
+                if (waiting.peek().grant().isDone()) {
+                    waiting.poll();
+                } else if (perDay > 0 && remaining <= 0) {
+                    if (waitForReset) {
+                        schedule(now, windowEndMillis);
+                    } else {
+                        exhausted = new QuotaExhaustedException(endpoint, perDay,
+                                Instant.ofEpochMilli(windowEndMillis));
+                        rejected.addAll(waiting);
+                        waiting.clear();
+                    }
+                    break;
+                } else if (nextSlotMillis > now) {
+                    schedule(now, nextSlotMillis);
+                    break;
+                } else {
+                    granted.add(waiting.poll());
+                    nextSlotMillis = Math.max(nextSlotMillis, now) + millisPerRequest;
+                    remaining--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (var waiter : granted) {
+            waiter.grant().complete(null);
+        }
+        for (var waiter : rejected) {
+            waiter.grant().completeExceptionally(exhausted);
+        }
+    }
+
+    private void startNewWindowIfDue(long now) {
+        if (now >= windowEndMillis) {
+            remaining = perDay;
+            windowEndMillis = nextMidnight(now);
+        }
+    }
+
+    /**
+     * Runs {@link #dispatch()} again at {@code atMillis}, unless an earlier run is already scheduled.
+     */
+    private void schedule(long now, long atMillis) {
+        if (timerAtMillis > now && timerAtMillis <= atMillis) {
+            return;
+        }
+        timerAtMillis = atMillis;
+        CompletableFuture.delayedExecutor(Math.max(1, atMillis - now), TimeUnit.MILLISECONDS).execute(() -> {
+            lock.lock();
+            try {
+                if (timerAtMillis == atMillis) {
+                    timerAtMillis = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+        });
+    }
+
+    private static long nextMidnight(long millis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC).plusDays(1)
+                .atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static long parse(String header) {
+        if (header == null || header.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.strip());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Waiter(long value, long sequence, CompletableFuture<Void> grant) {
+    }
+}
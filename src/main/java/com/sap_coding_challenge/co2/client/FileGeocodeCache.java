@@ -0,0 +1,420 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.CityNames;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Persistent geocode cache backed by an append-only text file with one {@code savedAt<TAB>city<TAB>lon<TAB>lat}
+ * record per line, keyed by the {@link CityNames#normalize normalized} city name.
+ * <p>
+ * Opening the cache streams through the file once and only keeps a primitive index of name hash to file offset on
+ * the heap; records are read back from the file on lookup. Entries older than the TTL are ignored, and once the
+ * file holds more than {@code maxEntries} live entries (or twice as many records because of superseded ones) it is
+ * rewritten without expired entries, keeping the most recently saved ones.
+ * <p>
+ * The file is shared by all processes using the same path. Every access holds a {@link FileLock} on a sibling
+ * {@code .lock} file, records are appended, and records appended by other processes are indexed before the next
+ * access. When another process has compacted the file in the meantime, it is reopened and indexed again.
+ */
+public final class FileGeocodeCache implements GeocodeCache, Closeable {
+    public static final Duration DEFAULT_TTL = Duration.ofDays(30);
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final int MAX_RECORD_BYTES = 4096;
+    // file locks are held per process, so instances in the same JVM take turns first
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+    private final ReentrantLock processLock;
+    private FileChannel lockChannel;
+    private FileChannel channel;
+    private FileChannel appender;
+    private Object fileKey;
+    private OffsetIndex index;
+    private long records;
+    private long indexedBytes;
+
+    private FileGeocodeCache(Path path, Duration ttl, int maxEntries, Clock clock) {
+        this.path = requireNonNull(path, "path");
+        this.ttl = requireNonNull(ttl, "ttl");
+        this.clock = requireNonNull(clock, "clock");
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(),
+                key -> new ReentrantLock());
+    }
+
+    public static FileGeocodeCache open(Path path, Duration ttl, int maxEntries) throws IOException {
+        return open(path, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    static FileGeocodeCache open(Path path, Duration ttl, int maxEntries, Clock clock) throws IOException {
+        var cache = new FileGeocodeCache(path, ttl, maxEntries, clock);
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        cache.lockChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            var lock = cache.lock();
+            try {
+                cache.load();
+                if (cache.index.size() > maxEntries || cache.records > 2L * maxEntries) {
+                    cache.compact();
+                }
+            } finally {
+                cache.unlock(lock);
+            }
+        } catch (IOException | RuntimeException e) {
+            cache.closeChannels();
+            throw e;
+        }
+        return cache;
+    }
+
+    /**
+     * @return {@code $XDG_CACHE_HOME/co2-calculator/geocode-cache.tsv}, falling back to {@code ~/.cache}.
+     */
+    public static Path defaultPath() {
+        var cacheHome = System.getenv("XDG_CACHE_HOME");
+        var base = cacheHome == null || cacheHome.isBlank()
+                ? Path.of(System.getProperty("user.home"), ".cache")
+                : Path.of(cacheHome);
+        return base.resolve("co2-calculator").resolve("geocode-cache.tsv");
+    }
+
+    @Override
+    public synchronized Optional<Coordinates> get(String city) throws IOException {
+        var name = CityNames.normalize(city);
+        Record record;
+        var lock = lock();
+        try {
+            refresh();
+            var offset = index.get(hash(name));
+            if (offset < 0) {
+                return Optional.empty();
+            }
+            record = Record.parse(readLine(offset));
+        } finally {
+            unlock(lock);
+        }
+        if (record == null || !record.name().equals(name) || isExpired(record.savedAt())) {
+            return Optional.empty();
+        }
+        return Optional.of(record.coordinates());
+    }
+
+    @Override
+    public synchronized void put(String city, Coordinates coordinates) throws IOException {
+        var record = new Record(clock.millis(), CityNames.normalize(city), coordinates);
+        var lock = lock();
+        try {
+            refresh();
+            var line = record.toLine();
+            var offset = appender.size();
+            if (offset > indexedBytes) {
+                // terminate a record another process did not finish
+                line = "\n" + line;
+                offset++;
+            }
+            var buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                appender.write(buffer);
+            }
+            index.put(hash(record.name()), offset);
+            records++;
+            indexedBytes = appender.size();
+            if (index.size() > maxEntries || records > 2L * maxEntries) {
+                compact();
+            }
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeChannels();
+    }
+
+    /**
+     * Closes every channel that was opened, even if closing another one fails.
+     */
+    private void closeChannels() throws IOException {
+        IOException failure = null;
+        for (var open : new FileChannel[]{appender, channel, lockChannel}) {
+            if (open == null) {
+                continue;
+            }
+            try {
+                open.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private FileLock lock() throws IOException {
+        processLock.lock();
+        try {
+            return lockChannel.lock();
+        } catch (IOException | RuntimeException e) {
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    private void unlock(FileLock lock) throws IOException {
+        try {
+            lock.release();
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Catches up with records appended by other processes, or reloads the file if another process replaced it.
+     */
+    private void refresh() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            attributes = null;
+        }
+        var replaced = attributes == null || (attributes.fileKey() == null
+                ? attributes.size() < indexedBytes
+                : !attributes.fileKey().equals(fileKey));
+        if (replaced) {
+            channel.close();
+            appender.close();
+            load();
+        } else if (channel.size() > indexedBytes) {
+            indexFrom(indexedBytes);
+        }
+    }
+
+    private void load() throws IOException {
+        appender = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        index = new OffsetIndex();
+        records = 0;
+        indexFrom(0);
+    }
+
+    /**
+     * Indexes the complete records from {@code start} to the end of the file.
+     */
+    private void indexFrom(long start) throws IOException {
+        var line = new ByteArrayOutputStream();
+        long offset = start;
+        long lineStart = start;
+        var in = new BufferedInputStream(Channels.newInputStream(channel.position(start)));
+        int b;
+        while ((b = in.read()) != -1) {
+            offset++;
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            var record = Record.parse(line.toString(StandardCharsets.UTF_8));
+            if (record != null) {
+                records++;
+                if (!isExpired(record.savedAt())) {
+                    index.put(hash(record.name()), lineStart);
+                }
+            }
+            line.reset();
+            lineStart = offset;
+        }
+        indexedBytes = lineStart;
+    }
+
+    /**
+     * Rewrites the file with the live entries only, evicting expired entries and then the oldest ones so that a
+     * tenth of {@code maxEntries} is free again afterwards.
+     */
+    private void compact() throws IOException {
+        var live = new ArrayList<Record>(index.size());
+        for (var offset : index.offsets()) {
+            var record = Record.parse(readLine(offset));
+            if (record != null && !isExpired(record.savedAt())) {
+                live.add(record);
+            }
+        }
+        live.sort(Comparator.comparingLong(Record::savedAt).reversed());
+        var keep = Math.min(live.size(), Math.max(1, maxEntries - maxEntries / 10));
+        var kept = live.subList(0, keep);
+        kept.sort(Comparator.comparingLong(Record::savedAt));
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (var record : kept) {
+                out.write(record.toLine());
+            }
+        }
+        channel.close();
+        appender.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        load();
+    }
+
+    private String readLine(long offset) throws IOException {
+        var buffer = ByteBuffer.allocate((int) Math.min(MAX_RECORD_BYTES, channel.size() - offset));
+        while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+            // keep reading until the buffer is full or the file ends
+        }
+        var bytes = buffer.array();
+        int end = 0;
+        while (end < buffer.position() && bytes[end] != '\n') {
+            end++;
+        }
+        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private boolean isExpired(long savedAt) {
+        return clock.millis() - savedAt > ttl.toMillis();
+    }
+
+    private static long hash(String name) {
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (var b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private record Record(long savedAt, String name, Coordinates coordinates) {
+
+        static Record parse(String line) {
+            var fields = line.split("\t", -1);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Record(Long.parseLong(fields[0]), fields[1],
+                        new Coordinates(new BigDecimal(fields[2]), new BigDecimal(fields[3])));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String toLine() {
+            return savedAt + "\t" + name + "\t" + coordinates.longitude().toPlainString()
+                    + "\t" + coordinates.latitude().toPlainString() + "\n";
+        }
+    }
+
+    /**
+     * Open addressing hash table from name hash to file offset, stored in two primitive arrays.
+     */
+    private static final class OffsetIndex {
+        private static final long EMPTY = 0L;
+        private long[] keys = new long[64];
+        private long[] offsets = new long[64];
+        private int size;
+
+        long get(long hash) {
+            var key = key(hash);
+            var mask = keys.length - 1;
+            for (int slot = (int) (key ^ (key >>> 32)) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return offsets[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long hash, long offset) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            var key = key(hash);
+            var mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            offsets[slot] = offset;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] offsets() {
+            var result = new long[size];
+            int i = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    result[i++] = offsets[slot];
+                }
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        private void resize() {
+            var oldKeys = keys;
+            var oldOffsets = offsets;
+            keys = new long[oldKeys.length * 2];
+            offsets = new long[oldOffsets.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    put(oldKeys[slot], oldOffsets[slot]);
+                }
+            }
+        }
+
+        private static long key(long hash) {
+            return hash == EMPTY ? 1L : hash;
+        }
+    }
+}
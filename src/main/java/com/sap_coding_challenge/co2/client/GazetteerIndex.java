@@ -0,0 +1,188 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.CityNames;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read-only geocoder backed by a memory-mapped index of city names, built once with {@link GeoNamesImporter}.
+ * Lookups binary search the sorted normalized names directly in the mapped file, so opening even a large index
+ * costs next to no heap.
+ * <p>
+ * File layout (big endian): magic, entry count, {@code count + 1} offsets into the name block, the longitude and
+ * then the latitude of every entry in millionths of a degree, and finally the UTF-8 names sorted by their bytes.
+ */
+public final class GazetteerIndex implements GeocodeCache {
+    private static final int MAGIC = 0x435A4731;
+    private static final int HEADER_BYTES = 8;
+    private static final int COORDINATE_SCALE = 6;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int offsetsStart;
+    private final int longitudesStart;
+    private final int latitudesStart;
+    private final int namesStart;
+
+    private GazetteerIndex(MappedByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+        this.offsetsStart = HEADER_BYTES;
+        this.longitudesStart = offsetsStart + 4 * (count + 1);
+        this.latitudesStart = longitudesStart + 4 * count;
+        this.namesStart = latitudesStart + 4 * count;
+    }
+
+    public static GazetteerIndex open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a gazetteer index.");
+            }
+            // the mapping stays valid after the channel is closed
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a gazetteer index.");
+            }
+            var count = buffer.getInt(4);
+            if (count < 0 || HEADER_BYTES + 12L * count + 4 > buffer.limit()) {
+                throw new IOException(path + " is truncated.");
+            }
+            return new GazetteerIndex(buffer, count);
+        }
+    }
+
+    /**
+     * @return {@code gazetteer.idx} next to the {@link FileGeocodeCache#defaultPath() geocode cache}.
+     */
+    public static Path defaultPath() {
+        return FileGeocodeCache.defaultPath().resolveSibling("gazetteer.idx");
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Optional<Coordinates> get(String city) {
+        var key = CityNames.normalize(city).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compareName(mid, key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(new Coordinates(
+                        BigDecimal.valueOf(buffer.getInt(longitudesStart + 4 * mid), COORDINATE_SCALE),
+                        BigDecimal.valueOf(buffer.getInt(latitudesStart + 4 * mid), COORDINATE_SCALE)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The index is built offline, so results of the geocode API are not added to it.
+     */
+    @Override
+    public void put(String city, Coordinates coordinates) {
+    }
+
+    /**
+     * Writes {@code entries} as a new index file, replacing {@code path} atomically. Names are normalized; when two
+     * entries share a normalized name the first one wins.
+     *
+     * @return the number of names written
+     */
+    static int write(Collection<Entry> entries, Path path) throws IOException {
+        var seen = new HashSet<String>();
+        var sorted = new ArrayList<EncodedEntry>(entries.size());
+        long nameBytes = 0;
+        for (var entry : entries) {
+            var name = CityNames.normalize(entry.name());
+            if (!name.isEmpty() && seen.add(name)) {
+                var encoded = new EncodedEntry(name.getBytes(StandardCharsets.UTF_8), entry.coordinates());
+                sorted.add(encoded);
+                nameBytes += encoded.name().length;
+            }
+        }
+        sorted.sort((left, right) -> Arrays.compareUnsigned(left.name(), right.name()));
+        if (HEADER_BYTES + 12L * sorted.size() + 4 + nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Too many names for a gazetteer index: " + sorted.size());
+        }
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(sorted.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (var entry : sorted) {
+                offset += entry.name().length;
+                out.writeInt(offset);
+            }
+            for (var entry : sorted) {
+                out.writeInt(microdegrees(entry.coordinates().longitude()));
+            }
+            for (var entry : sorted) {
+                out.writeInt(microdegrees(entry.coordinates().latitude()));
+            }
+            for (var entry : sorted) {
+                out.write(entry.name());
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sorted.size();
+    }
+
+    private int compareName(int entry, byte[] key) {
+        int start = namesStart + buffer.getInt(offsetsStart + 4 * entry);
+        int end = namesStart + buffer.getInt(offsetsStart + 4 * (entry + 1));
+        int length = end - start;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static int microdegrees(BigDecimal degrees) {
+        return degrees.setScale(COORDINATE_SCALE, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+    }
+
+    record Entry(String name, Coordinates coordinates) {
+        Entry {
+            requireNonNull(name, "name");
+            requireNonNull(coordinates, "coordinates");
+        }
+    }
+
+    private record EncodedEntry(byte[] name, Coordinates coordinates) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.CityNames;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link GazetteerIndex} from a tab separated GeoNames dump such as {@code cities500.txt}. Populated places
+ * are indexed by their name and ASCII name, and optionally by their alternate names. When several places share a
+ * normalized name the most populous one wins, which is what an ambiguous trip input like "Frankfurt" usually means.
+ */
+public final class GeoNamesImporter {
+    private static final int NAME = 1;
+    private static final int ASCII_NAME = 2;
+    private static final int ALTERNATE_NAMES = 3;
+    private static final int LATITUDE = 4;
+    private static final int LONGITUDE = 5;
+    private static final int FEATURE_CLASS = 6;
+    private static final int POPULATION = 14;
+    private static final String POPULATED_PLACE = "P";
+
+    private GeoNamesImporter() {
+    }
+
+    /**
+     * @return the number of names written to {@code index}
+     */
+    public static int importDump(Path dump, Path index, boolean alternateNames) throws IOException {
+        var places = new HashMap<String, Place>();
+        try (var reader = Files.newBufferedReader(dump, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                var fields = line.split("\t", -1);
+                if (fields.length <= LONGITUDE) {
+                    throw new IOException("Malformed GeoNames record on line " + lineNumber + " of " + dump + ".");
+                }
+                if (fields.length > FEATURE_CLASS && !fields[FEATURE_CLASS].isEmpty()
+                        && !POPULATED_PLACE.equals(fields[FEATURE_CLASS])) {
+                    continue;
+                }
+                Place place;
+                try {
+                    place = new Place(
+                            new Coordinates(new BigDecimal(fields[LONGITUDE]), new BigDecimal(fields[LATITUDE])),
+                            fields.length > POPULATION && !fields[POPULATION].isEmpty()
+                                    ? Long.parseLong(fields[POPULATION]) : 0);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed GeoNames record on line " + lineNumber + " of " + dump + ".", e);
+                }
+                add(places, fields[NAME], place);
+                add(places, fields[ASCII_NAME], place);
+                if (alternateNames) {
+                    for (var name : fields[ALTERNATE_NAMES].split(",")) {
+                        add(places, name, place);
+                    }
+                }
+            }
+        }
+        var entries = places.entrySet().stream()
+                .map(entry -> new GazetteerIndex.Entry(entry.getKey(), entry.getValue().coordinates()))
+                .toList();
+        return GazetteerIndex.write(entries, index);
+    }
+
+    private static void add(Map<String, Place> places, String name, Place place) {
+        var key = CityNames.normalize(name);
+        if (!key.isEmpty()) {
+            places.merge(key, place, (existing, candidate) ->
+                    candidate.population() > existing.population() ? candidate : existing);
+        }
+    }
+
+    private record Place(Coordinates coordinates, long population) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Local store of geocoding results consulted by {@link OpenRouteServiceClient} before calling the geocode API.
+ */
+public interface GeocodeCache {
+    /**
+     * Cache that never holds anything.
+     */
+    GeocodeCache NONE = new GeocodeCache() {
+        @Override
+        public Optional<Coordinates> get(String city) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(String city, Coordinates coordinates) {
+        }
+    };
+
+    Optional<Coordinates> get(String city) throws IOException;
+
+    void put(String city, Coordinates coordinates) throws IOException;
+
+    /**
+     * @return a cache that answers from {@code first} and only asks {@code second} on a miss; new entries are
+     * offered to both.
+     */
+    static GeocodeCache tiered(GeocodeCache first, GeocodeCache second) {
+        requireNonNull(first, "first");
+        requireNonNull(second, "second");
+        return new GeocodeCache() {
+            @Override
+            public Optional<Coordinates> get(String city) throws IOException {
+                var coordinates = first.get(city);
+                return coordinates.isPresent() ? coordinates : second.get(city);
+            }
+
+            @Override
+            public void put(String city, Coordinates coordinates) throws IOException {
+                first.put(city, coordinates);
+                second.put(city, coordinates);
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.sap_coding_challenge.co2.client;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Connection settings of the {@link OkHttpClient} shared by all ORS calls. Responses are gzip-compressed on the
+ * wire: OkHttp negotiates {@code Accept-Encoding: gzip} and decompresses transparently. HTTP/2 is negotiated via
+ * ALPN when enabled, multiplexing concurrent requests over one connection per host.
+ *
+ * @param maxIdleConnections connections kept warm in the pool between requests
+ * @param keepAlive          how long an idle connection stays in the pool
+ * @param maxRequests        concurrent asynchronous requests overall
+ * @param maxRequestsPerHost concurrent asynchronous requests per host
+ * @param connectTimeout     TCP and TLS connect timeout
+ * @param readTimeout        timeout between two reads of a response
+ * @param http2              whether HTTP/2 may be negotiated
+ */
+public record HttpClientSettings(int maxIdleConnections, Duration keepAlive, int maxRequests, int maxRequestsPerHost,
+                                 Duration connectTimeout, Duration readTimeout, boolean http2) {
+
+    public static final HttpClientSettings DEFAULTS = new HttpClientSettings(
+            16, Duration.ofMinutes(5), 64, 16, Duration.ofSeconds(10), Duration.ofSeconds(30), true);
+
+    public HttpClientSettings {
+        requireNonNull(keepAlive, "keepAlive");
+        requireNonNull(connectTimeout, "connectTimeout");
+        requireNonNull(readTimeout, "readTimeout");
+        if (maxIdleConnections < 0 || maxRequests < 1 || maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("Connection limits must be positive");
+        }
+        if (keepAlive.isNegative() || connectTimeout.isNegative() || readTimeout.isNegative()) {
+            throw new IllegalArgumentException("Keep-alive and timeouts must not be negative");
+        }
+    }
+
+    /**
+     * Reads overrides of the {@link #DEFAULTS} from {@code ORS_HTTP_MAX_IDLE_CONNECTIONS},
+     * {@code ORS_HTTP_KEEP_ALIVE_SECONDS}, {@code ORS_HTTP_MAX_REQUESTS}, {@code ORS_HTTP_MAX_REQUESTS_PER_HOST},
+     * {@code ORS_HTTP_CONNECT_TIMEOUT_MS}, {@code ORS_HTTP_READ_TIMEOUT_MS} and {@code ORS_HTTP2}.
+     */
+    public static HttpClientSettings fromEnvironment(Map<String, String> env) {
+        return new HttpClientSettings(
+                intValue(env, "ORS_HTTP_MAX_IDLE_CONNECTIONS", DEFAULTS.maxIdleConnections),
+                Duration.ofSeconds(intValue(env, "ORS_HTTP_KEEP_ALIVE_SECONDS", (int) DEFAULTS.keepAlive.toSeconds())),
+                intValue(env, "ORS_HTTP_MAX_REQUESTS", DEFAULTS.maxRequests),
+                intValue(env, "ORS_HTTP_MAX_REQUESTS_PER_HOST", DEFAULTS.maxRequestsPerHost),
+                Duration.ofMillis(intValue(env, "ORS_HTTP_CONNECT_TIMEOUT_MS", (int) DEFAULTS.connectTimeout.toMillis())),
+                Duration.ofMillis(intValue(env, "ORS_HTTP_READ_TIMEOUT_MS", (int) DEFAULTS.readTimeout.toMillis())),
+                Boolean.parseBoolean(env.getOrDefault("ORS_HTTP2", String.valueOf(DEFAULTS.http2)).strip()));
+    }
+
+    public OkHttpClient createHttpClient() {
+        var dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .protocols(http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    static int intValue(Map<String, String> env, String name, int defaultValue) {
+        var value = env.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling ORS when the client was created without an API key.
+ */
+public final class MissingTokenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    MissingTokenException() {
+        super("Missing ORS token (env ORS_TOKEN). Please provide with the token in order to be able to fetch the data from open route service");
+    }
+}
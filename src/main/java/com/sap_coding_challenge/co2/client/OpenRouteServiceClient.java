@@ -1,8 +1,12 @@
 package com.sap_coding_challenge.co2.client;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap_coding_challenge.co2.domain.CityNames;
 import com.sap_coding_challenge.co2.domain.Coordinates;
+import com.sap_coding_challenge.co2.metrics.Counter;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -13,77 +17,310 @@ import okhttp3.ResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
 public class OpenRouteServiceClient {
-    private static final HttpUrl DEFAULT_BASE_URL = requireNonNull(
-            HttpUrl.parse("https://api.openrouteservice.org"),
-            "Invalid open route service base URL");
+    /**
+     * Routing profile all distances are computed with.
+     */
+    public static final String ROUTING_PROFILE = "driving-car";
     private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+    /**
+     * ORS standard plan limit for sources x destinations in a single matrix request.
+     */
+    static final int DEFAULT_MAX_MATRIX_ROUTES = 3500;
 
     private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final OpenRouteServiceResponseParser responseParser;
     private final HttpUrl baseUrl;
     private final String apiKey;
+    private final int maxMatrixRoutes;
+    private final GeocodeCache geocodeCache;
+    private final Endpoint geocodeEndpoint;
+    private final Endpoint matrixEndpoint;
+    private final Counter geocodeCacheHits;
+    private final Counter geocodeCacheMisses;
+    private final Counter geocodesCoalesced;
+    private final Map<String, CompletableFuture<Coordinates>> inFlightGeocodes = new ConcurrentHashMap<>();
 
     public OpenRouteServiceClient(String apiKey) {
-        this(apiKey, new OkHttpClient(), new ObjectMapper(), DEFAULT_BASE_URL);
+        this(apiKey, OrsClientSettings.DEFAULTS, GeocodeCache.NONE, Metrics.DISABLED);
+    }
+
+    public OpenRouteServiceClient(String apiKey, OrsClientSettings settings, GeocodeCache geocodeCache,
+                                  Metrics metrics) {
+        this(apiKey, settings.http().createHttpClient(), new ObjectMapper(), settings.baseUrl(),
+                DEFAULT_MAX_MATRIX_ROUTES, settings, geocodeCache, metrics);
     }
 
     OpenRouteServiceClient(String apiKey, OkHttpClient httpClient, ObjectMapper objectMapper, HttpUrl baseUrl) {
-        if (apiKey == null || apiKey.isBlank()) {
-            throw new IllegalStateException("Missing ORS token (env ORS_TOKEN). Please provide with the token in order to be able to fetch the data from open route service");
-        }
-        this.apiKey = apiKey;
-        this.httpClient = requireNonNull(httpClient, "http");
-        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+        this(apiKey, httpClient, objectMapper, baseUrl, DEFAULT_MAX_MATRIX_ROUTES);
+    }
+
+    OpenRouteServiceClient(String apiKey, OkHttpClient httpClient, ObjectMapper objectMapper, HttpUrl baseUrl,
+                           int maxMatrixRoutes) {
+        this(apiKey, httpClient, objectMapper, baseUrl, maxMatrixRoutes,
+                OrsClientSettings.DEFAULTS.withResilience(ResilienceSettings.NONE), GeocodeCache.NONE,
+                Metrics.DISABLED);
+    }
+
+    /**
+     * With enabled {@code metrics} every HTTP attempt is recorded through an {@link OrsCallMetrics} listener on a
+     * derived client, which shares the connection pool and dispatcher of {@code httpClient}. The
+     * {@link OrsClientSettings#http() HTTP settings} and {@link OrsClientSettings#baseUrl() base URL} of
+     * {@code settings} are not used, {@code httpClient} and {@code baseUrl} are taken as they are.
+     * <p>
+     * Without an {@code apiKey} the client still answers from {@code geocodeCache}, but every request to ORS fails
+     * with {@link MissingTokenException}.
+     */
+    OpenRouteServiceClient(String apiKey, OkHttpClient httpClient, ObjectMapper objectMapper, HttpUrl baseUrl,
+                           int maxMatrixRoutes, OrsClientSettings settings, GeocodeCache geocodeCache,
+                           Metrics metrics) {
+        this.apiKey = apiKey == null || apiKey.isBlank() ? "" : apiKey;
+        requireNonNull(httpClient, "http");
+        this.httpClient = metrics == Metrics.DISABLED
+                ? httpClient
+                : httpClient.newBuilder().eventListenerFactory(new OrsCallMetrics(metrics)).build();
+        this.responseParser = new OpenRouteServiceResponseParser(
+                requireNonNull(objectMapper, "objectMapper").getFactory());
         this.baseUrl = requireNonNull(baseUrl, "baseUrl");
+        if (maxMatrixRoutes < 1) {
+            throw new IllegalArgumentException("maxMatrixRoutes must be positive");
+        }
+        this.maxMatrixRoutes = maxMatrixRoutes;
+        this.geocodeCache = requireNonNull(geocodeCache, "geocodeCache");
+        var quota = settings.quota();
+        this.geocodeEndpoint = new Endpoint("geocode", quota.geocodePerMinute(), quota.geocodePerDay(), settings,
+                metrics);
+        this.matrixEndpoint = new Endpoint("matrix", quota.matrixPerMinute(), quota.matrixPerDay(), settings,
+                metrics);
+        this.geocodeCacheHits = metrics.counter("co2_geocode_cache_requests_total",
+                "Geocode lookups answered by the gazetteer or on-disk cache, or sent to ORS", "result", "hit");
+        this.geocodeCacheMisses = metrics.counter("co2_geocode_cache_requests_total",
+                "Geocode lookups answered by the gazetteer or on-disk cache, or sent to ORS", "result", "miss");
+        this.geocodesCoalesced = metrics.counter("co2_geocode_coalesced_total",
+                "Geocode cache misses that joined a request for the same city already in flight");
     }
 
+    /**
+     * Looks up {@code city} in the geocode cache, then asks ORS. Concurrent lookups of the same
+     * {@link CityNames#normalize normalized} name, blocking or not, share one HTTP call.
+     */
     public Coordinates fetchCityCoordinates(String city) throws IOException {
+        var cached = geocodeCache.get(city);
+        if (cached.isPresent()) {
+            geocodeCacheHits.increment();
+            return cached.get();
+        }
+        geocodeCacheMisses.increment();
+        var key = CityNames.normalize(city);
+        var lookup = new CompletableFuture<Coordinates>();
+        var inFlight = inFlightGeocodes.putIfAbsent(key, lookup);
+        if (inFlight != null) {
+            geocodesCoalesced.increment();
+            return await(inFlight, city);
+        }
+        try {
+            var coordinates = requestCityCoordinates(city);
+            geocodeCache.put(city, coordinates);
+            lookup.complete(coordinates);
+            return coordinates;
+        } catch (IOException | RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightGeocodes.remove(key, lookup);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchCityCoordinates}. Every caller gets its own future, so cancelling one
+     * does not affect the others sharing the call.
+     */
+    public CompletableFuture<Coordinates> fetchCityCoordinatesAsync(String city) {
+        try {
+            var cached = geocodeCache.get(city);
+            if (cached.isPresent()) {
+                geocodeCacheHits.increment();
+                return CompletableFuture.completedFuture(cached.get());
+            }
+            geocodeCacheMisses.increment();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        var key = CityNames.normalize(city);
+        var lookup = new CompletableFuture<Coordinates>();
+        var inFlight = inFlightGeocodes.putIfAbsent(key, lookup);
+        if (inFlight != null) {
+            geocodesCoalesced.increment();
+            return inFlight.copy();
+        }
+        enqueue(buildFetchCityCoordinatesRequest(city), geocodeEndpoint, 1,
+                response -> readCityCoordinates(response, city))
+                .whenComplete((coordinates, failure) -> {
+                    inFlightGeocodes.remove(key, lookup);
+                    if (failure != null) {
+                        lookup.completeExceptionally(failure);
+                        return;
+                    }
+                    try {
+                        geocodeCache.put(city, coordinates);
+                        lookup.complete(coordinates);
+                    } catch (IOException e) {
+                        lookup.completeExceptionally(e);
+                    }
+                });
+        return lookup.copy();
+    }
+
+    private static Coordinates await(CompletableFuture<Coordinates> lookup, String city) throws IOException {
+        try {
+            return lookup.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while geocoding " + city);
+        }
+    }
+
+    /**
+     * Waits until the quota lets {@code request} through. An interrupted caller gives up its place in the queue.
+     */
+    private static void awaitQuota(CompletableFuture<Void> grant, Request request) throws IOException {
+        try {
+            grant.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            grant.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ORS quota of "
+                    + request.url().encodedPath());
+        }
+    }
+
+    private Coordinates requestCityCoordinates(String city) throws IOException {
         var request = buildFetchCityCoordinatesRequest(city);
-        try (var geoCodeSearchResponse = httpClient.newCall(request).execute()) {
-            checkResponseStatusCode(geoCodeSearchResponse,
-                    "Could not fetch coordinates for city \"" + city + "\": HTTP ");
-            var responseBody = geoCodeSearchResponse.body();
-            checkResponseBody(responseBody,
-                    "Could not fetch coordinates for city \"" + city + "\": empty response body.");
-            var coords = extractCityCoordinates(responseBody.byteStream(), city);
-            return new Coordinates(coords.get(0).decimalValue(), coords.get(1).decimalValue());
+        try (var geoCodeSearchResponse = execute(request, geocodeEndpoint, 1)) {
+            return readCityCoordinates(geoCodeSearchResponse, city);
         }
     }
 
+    private Coordinates readCityCoordinates(Response geoCodeSearchResponse, String city) throws IOException {
+        checkResponseStatusCode(geoCodeSearchResponse,
+                "Could not fetch coordinates for city \"" + city + "\": HTTP ");
+        var responseBody = geoCodeSearchResponse.body();
+        checkResponseBody(responseBody,
+                "Could not fetch coordinates for city \"" + city + "\": empty response body.");
+        return extractCityCoordinates(responseBody.byteStream(), city);
+    }
+
     public BigDecimal fetchDistanceBetweenLocalities(Coordinates startLonLat, Coordinates endLonLat,
                                                      String startCity, String endCity) throws IOException {
         var request = buildFetchDistanceBetweenLocalitiesRequest(startLonLat, endLonLat);
-        try (var response = httpClient.newCall(request).execute()) {
-            checkResponseStatusCode(response,
-                    "Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\": HTTP ");
-            var responseBody = response.body();
-            checkResponseBody(responseBody,
-                    "Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\": empty response body.");
-            return extractDistanceInKm(responseBody, startCity, endCity);
+        try (var response = execute(request, matrixEndpoint, 1)) {
+            return readDistanceInKm(response, startCity, endCity);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchDistanceBetweenLocalities}.
+     */
+    public CompletableFuture<BigDecimal> fetchDistanceBetweenLocalitiesAsync(Coordinates startLonLat,
+                                                                             Coordinates endLonLat,
+                                                                             String startCity, String endCity) {
+        var request = buildFetchDistanceBetweenLocalitiesRequest(startLonLat, endLonLat);
+        return enqueue(request, matrixEndpoint, 1,
+                response -> readDistanceInKm(response, startCity, endCity));
+    }
+
+    private BigDecimal readDistanceInKm(Response response, String startCity, String endCity) throws IOException {
+        checkResponseStatusCode(response,
+                "Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\": HTTP ");
+        var responseBody = response.body();
+        checkResponseBody(responseBody,
+                "Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\": empty response body.");
+        return extractDistanceInKm(responseBody, startCity, endCity);
+    }
+
+    /**
+     * Fetches the driving distance from every source to every destination. The matrix is split into as few
+     * requests as the per-request route limit allows; each response is copied into the result in one pass.
+     */
+    public DistanceMatrix fetchDistanceMatrix(List<Coordinates> sources, List<Coordinates> destinations)
+            throws IOException {
+        var matrix = new DistanceMatrix(sources.size(), destinations.size());
+        if (sources.isEmpty() || destinations.isEmpty()) {
+            return matrix;
+        }
+        int destinationChunk = Math.min(destinations.size(), maxMatrixRoutes);
+        int sourceChunk = Math.min(sources.size(), Math.max(1, maxMatrixRoutes / destinationChunk));
+        for (int sourceOffset = 0; sourceOffset < sources.size(); sourceOffset += sourceChunk) {
+            var sourceBlock = sources.subList(sourceOffset, Math.min(sources.size(), sourceOffset + sourceChunk));
+            for (int destinationOffset = 0; destinationOffset < destinations.size(); destinationOffset += destinationChunk) {
+                var destinationBlock = destinations.subList(destinationOffset,
+                        Math.min(destinations.size(), destinationOffset + destinationChunk));
+                fetchDistanceMatrixBlock(sourceBlock, destinationBlock, matrix, sourceOffset, destinationOffset);
+            }
         }
+        return matrix;
     }
 
-    private JsonNode extractCityCoordinates(InputStream inputStream, String city) throws IOException {
-        var coords = objectMapper.readTree(inputStream).at("/features/0/geometry/coordinates");
-        if (coords.isMissingNode() || !coords.isArray()) {
-            throw new IllegalArgumentException("Could not fetch coordinates for city \"" + city + "\".");
+    private void fetchDistanceMatrixBlock(List<Coordinates> sources, List<Coordinates> destinations,
+                                          DistanceMatrix matrix, int sourceOffset, int destinationOffset)
+            throws IOException {
+        var request = buildFetchDistanceMatrixRequest(sources, destinations);
+        var description = sources.size() + "x" + destinations.size();
+        try (var response = execute(request, matrixEndpoint, (long) sources.size() * destinations.size())) {
+            checkResponseStatusCode(response, "Could not fetch " + description + " distance matrix: HTTP ");
+            var responseBody = response.body();
+            checkResponseBody(responseBody, "Could not fetch " + description + " distance matrix: empty response body.");
+            var rows = responseParser.readDistances(responseBody.byteStream(), matrix,
+                    sourceOffset, sources.size(), destinationOffset, destinations.size());
+            if (rows != sources.size()) {
+                throw new IOException("Could not fetch " + description + " distance matrix: unexpected response.");
+            }
         }
-        return coords;
+    }
+
+    private Coordinates extractCityCoordinates(InputStream inputStream, String city) throws IOException {
+        return responseParser.firstFeatureCoordinates(inputStream)
+                .orElseThrow(() -> new IllegalArgumentException("Could not fetch coordinates for city \"" + city + "\"."));
     }
 
     private BigDecimal extractDistanceInKm(ResponseBody responseBody, String startCity, String endCity)
             throws IOException {
-        var distanceNode = objectMapper.readTree(responseBody.byteStream()).at("/distances/0/1");
-        if (distanceNode.isMissingNode() || !distanceNode.isNumber()) {
-            throw new IllegalArgumentException("Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\". Cities might not be reachable by car.");
-        }
+        var distanceMeters = responseParser.firstDistance(responseBody.byteStream())
+                .orElseThrow(() -> new IllegalArgumentException("Could not fetch distance between \"" + startCity + "\" and \"" + endCity + "\". Cities might not be reachable by car."));
         // meters to kilometers
-        return distanceNode.decimalValue().movePointLeft(3);
+        return distanceMeters.movePointLeft(3);
     }
 
     private Request buildFetchCityCoordinatesRequest(String city) {
@@ -101,7 +338,7 @@ public class OpenRouteServiceClient {
 
     private Request buildFetchDistanceBetweenLocalitiesRequest(Coordinates startLonLat, Coordinates endLonLat) {
         var url = baseUrl.newBuilder()
-                .addPathSegments("v2/matrix/driving-car")
+                .addPathSegments("v2/matrix/" + ROUTING_PROFILE)
                 .build();
         var payload = """
                 {"locations":[[%s,%s],[%s,%s]],"metrics":["distance"]}
@@ -117,6 +354,217 @@ public class OpenRouteServiceClient {
                 .build();
     }
 
+    private Request buildFetchDistanceMatrixRequest(List<Coordinates> sources, List<Coordinates> destinations) {
+        var url = baseUrl.newBuilder()
+                .addPathSegments("v2/matrix/" + ROUTING_PROFILE)
+                .build();
+        // locations shared by sources and destinations are only sent once
+        var locationIndexes = new LinkedHashMap<Coordinates, Integer>();
+        var sourceIndexes = new StringBuilder();
+        for (var source : sources) {
+            appendIndex(sourceIndexes, locationIndexes.computeIfAbsent(source, k -> locationIndexes.size()));
+        }
+        var destinationIndexes = new StringBuilder();
+        for (var destination : destinations) {
+            appendIndex(destinationIndexes, locationIndexes.computeIfAbsent(destination, k -> locationIndexes.size()));
+        }
+        var locations = new StringBuilder();
+        for (var location : locationIndexes.keySet()) {
+            if (!locations.isEmpty()) {
+                locations.append(',');
+            }
+            locations.append('[').append(location.longitude().toPlainString())
+                    .append(',').append(location.latitude().toPlainString()).append(']');
+        }
+        var payload = """
+                {"locations":[%s],"sources":[%s],"destinations":[%s],"metrics":["distance"]}
+                """.formatted(locations, sourceIndexes, destinationIndexes);
+        return new Request.Builder()
+                .url(url)
+                .addHeader("Authorization", apiKey)
+                .post(RequestBody.create(payload, JSON_MEDIA_TYPE))
+                .build();
+    }
+
+    private static void appendIndex(StringBuilder indexes, int index) {
+        if (!indexes.isEmpty()) {
+            indexes.append(',');
+        }
+        indexes.append(index);
+    }
+
+    /**
+     * Sends the request once the endpoint's {@link EndpointScheduler} and rate limiter let it through, retrying
+     * transient failures as its {@link EndpointGuard} allows. When no retry is left the last response is returned, so callers report
+     * its status as usual.
+     *
+     * @param value what the request resolves (routes for matrix requests), deciding its place in the quota queue
+     */
+    private Response execute(Request request, Endpoint endpoint, long value) throws IOException {
+        if (apiKey.isEmpty()) {
+            throw new MissingTokenException();
+        }
+        var guard = endpoint.guard();
+        var scheduler = endpoint.scheduler();
+        guard.onCall();
+        for (int attempt = 1; ; attempt++) {
+            guard.acquire();
+            awaitQuota(scheduler.reserve(value), request);
+            endpoint.rateLimiter().acquire();
+            long delayNanos;
+            try {
+                var response = httpClient.newCall(request).execute();
+                scheduler.onResponse(response);
+                record(guard, response.code());
+                if (!isRetryable(response.code())) {
+                    return response;
+                }
+                delayNanos = guard.retryDelayNanos(attempt, retryAfterNanos(response));
+                if (delayNanos < 0) {
+                    return response;
+                }
+                response.close();
+            } catch (IOException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                guard.onFailure();
+                delayNanos = guard.retryDelayNanos(attempt, 0);
+                if (delayNanos < 0) {
+                    throw e;
+                }
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + request.url().encodedPath());
+            }
+        }
+    }
+
+    /**
+     * Sends the request on OkHttp's dispatcher once the quota and rate limiter allow it, without blocking
+     * the caller. Transient failures are retried like in {@link #execute}, with the waits scheduled instead of slept.
+     */
+    private <T> CompletableFuture<T> enqueue(Request request, Endpoint endpoint, long value,
+                                             ResponseReader<T> reader) {
+        var result = new CompletableFuture<T>();
+        if (apiKey.isEmpty()) {
+            result.completeExceptionally(new MissingTokenException());
+            return result;
+        }
+        endpoint.guard().onCall();
+        enqueue(request, endpoint, value, reader, result, 1, 0);
+        return result;
+    }
+
+    private <T> void enqueue(Request request, Endpoint endpoint, long value, ResponseReader<T> reader,
+                             CompletableFuture<T> result, int attempt, long delayNanos) {
+        after(delayNanos, () -> {
+            try {
+                endpoint.guard().acquire();
+            } catch (CircuitOpenException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            endpoint.scheduler().reserve(value).whenComplete((granted, quotaFailure) -> {
+                if (quotaFailure != null) {
+                    result.completeExceptionally(quotaFailure);
+                    return;
+                }
+                after(endpoint.rateLimiter().reserve(), () -> send(request, endpoint, value, reader, result, attempt));
+            });
+        });
+    }
+
+    private <T> void send(Request request, Endpoint endpoint, long value, ResponseReader<T> reader,
+                          CompletableFuture<T> result, int attempt) {
+        var guard = endpoint.guard();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (isRetryable(e)) {
+                    guard.onFailure();
+                    var retryDelayNanos = guard.retryDelayNanos(attempt, 0);
+                    if (retryDelayNanos >= 0) {
+                        enqueue(request, endpoint, value, reader, result, attempt + 1, retryDelayNanos);
+                        return;
+                    }
+                }
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                endpoint.scheduler().onResponse(response);
+                record(guard, response.code());
+                if (isRetryable(response.code())) {
+                    var retryDelayNanos = guard.retryDelayNanos(attempt, retryAfterNanos(response));
+                    if (retryDelayNanos >= 0) {
+                        response.close();
+                        enqueue(request, endpoint, value, reader, result, attempt + 1, retryDelayNanos);
+                        return;
+                    }
+                }
+                try (response) {
+                    result.complete(reader.read(response));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static void after(long delayNanos, Runnable task) {
+        Executor executor = delayNanos > 0
+                ? CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS)
+                : Runnable::run;
+        executor.execute(task);
+    }
+
+    /**
+     * Server errors count against the circuit; a 429 says nothing about the endpoint's health.
+     */
+    private static void record(EndpointGuard guard, int code) {
+        if (code >= 500) {
+            guard.onFailure();
+        } else if (code != 429) {
+            guard.onSuccess();
+        }
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Connection failures and timeouts are retried; an interrupted caller is not.
+     */
+    private static boolean isRetryable(IOException e) {
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * @return the wait a {@code Retry-After} header (seconds or HTTP date) asks for, {@code 0} without one.
+     */
+    static long retryAfterNanos(Response response) {
+        var value = response.header("Retry-After");
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.strip())));
+        } catch (NumberFormatException e) {
+            try {
+                var at = ZonedDateTime.parse(value.strip(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return Math.max(0, Duration.between(Instant.now(), at).toNanos());
+            } catch (DateTimeParseException | ArithmeticException ignored) {
+                return 0;
+            }
+        }
+    }
+
     private static void checkResponseStatusCode(Response response, String errorMessage) throws IOException {
         if (!response.isSuccessful()) {
             throw new IOException(errorMessage + response.code());
@@ -126,4 +574,22 @@ public class OpenRouteServiceClient {
     private static void checkResponseBody(ResponseBody body, String errorMessage) throws IOException {
         if (body == null) throw new IOException(errorMessage);
     }
+
+    /**
+     * Retry budget, circuit, quota and pacing of one ORS endpoint. A per-minute quota of the endpoint replaces the
+     * shared rate limiter, so its requests are not paced twice.
+     */
+    private record Endpoint(EndpointGuard guard, EndpointScheduler scheduler, RateLimiter rateLimiter) {
+
+        Endpoint(String name, int perMinute, int perDay, OrsClientSettings settings, Metrics metrics) {
+            this(new EndpointGuard(name, settings.resilience(), metrics),
+                    new EndpointScheduler(name, perMinute, perDay, settings.quota().waitForReset(), metrics),
+                    perMinute > 0 ? RateLimiter.UNLIMITED : settings.rateLimiter());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(Response response) throws IOException;
+    }
 }
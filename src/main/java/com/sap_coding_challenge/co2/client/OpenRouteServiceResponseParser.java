@@ -0,0 +1,117 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads the few values the client needs straight off the token stream of an ORS response instead of building
+ * a tree: unrelated members are skipped without materializing them and parsing stops as soon as the target value
+ * has been read. Matrices are consumed row by row, so large responses parse in constant memory.
+ */
+final class OpenRouteServiceResponseParser {
+    private final JsonFactory jsonFactory;
+
+    OpenRouteServiceResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = requireNonNull(jsonFactory, "jsonFactory");
+    }
+
+    /**
+     * @return {@code /features/0/geometry/coordinates} of a geocode response, if present and numeric.
+     */
+    Optional<Coordinates> firstFeatureCoordinates(InputStream in) throws IOException {
+        try (var parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "features") || parser.currentToken() != JsonToken.START_ARRAY
+                    || parser.nextToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "geometry") || parser.currentToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "coordinates") || parser.currentToken() != JsonToken.START_ARRAY) {
+                return Optional.empty();
+            }
+            var longitude = nextDecimal(parser);
+            var latitude = nextDecimal(parser);
+            if (longitude == null || latitude == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Coordinates(longitude, latitude));
+        }
+    }
+
+    /**
+     * @return {@code /distances/0/1} of a matrix response in meters, if present and numeric.
+     */
+    Optional<BigDecimal> firstDistance(InputStream in) throws IOException {
+        try (var parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "distances") || parser.currentToken() != JsonToken.START_ARRAY
+                    || parser.nextToken() != JsonToken.START_ARRAY) {
+                return Optional.empty();
+            }
+            var first = parser.nextToken();
+            if (first == null || first == JsonToken.END_ARRAY) {
+                return Optional.empty();
+            }
+            parser.skipChildren();
+            return Optional.ofNullable(nextDecimal(parser));
+        }
+    }
+
+    /**
+     * Copies the {@code distances} table of a matrix response for a block of {@code sources x destinations}
+     * into {@code matrix}, shifted by the given offsets. Cells without a number (no route) are left untouched.
+     *
+     * @return the number of rows read, or {@code -1} when the response has no {@code distances} table.
+     */
+    int readDistances(InputStream in, DistanceMatrix matrix, int sourceOffset, int sources,
+                      int destinationOffset, int destinations) throws IOException {
+        try (var parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !moveToField(parser, "distances") || parser.currentToken() != JsonToken.START_ARRAY) {
+                return -1;
+            }
+            int rows = 0;
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                int column = 0;
+                JsonToken cell;
+                while ((cell = parser.nextToken()) != JsonToken.END_ARRAY && cell != null) {
+                    if (cell.isNumeric() && rows < sources && column < destinations) {
+                        matrix.setMeters(sourceOffset + rows, destinationOffset + column, parser.getDoubleValue());
+                    }
+                    parser.skipChildren();
+                    column++;
+                }
+                rows++;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Advances through the members of the object the parser is in until {@code name} is found, skipping the
+     * values of all other members, and leaves the parser on the value of that member.
+     */
+    private static boolean moveToField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static BigDecimal nextDecimal(JsonParser parser) throws IOException {
+        var token = parser.nextToken();
+        return token != null && token.isNumeric() ? parser.getDecimalValue() : null;
+    }
+}
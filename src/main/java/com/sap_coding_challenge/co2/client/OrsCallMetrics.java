@@ -0,0 +1,103 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.metrics.Counter;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import com.sap_coding_challenge.co2.metrics.Timer;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records every HTTP attempt against ORS as seen by OkHttp: latency from call start until the response body is
+ * consumed, status code (or {@code io_error}) and bytes read off the wire, per endpoint. Each attempt is also
+ * logged at debug level.
+ */
+final class OrsCallMetrics implements EventListener.Factory {
+    private static final Logger log = LoggerFactory.getLogger(OrsCallMetrics.class);
+
+    private final Metrics metrics;
+    private final Endpoint geocode;
+    private final Endpoint matrix;
+
+    OrsCallMetrics(Metrics metrics) {
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.geocode = new Endpoint(metrics, "geocode");
+        this.matrix = new Endpoint(metrics, "matrix");
+    }
+
+    static String endpoint(Call call) {
+        return call.request().url().encodedPath().contains("/matrix/") ? "matrix" : "geocode";
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new Listener(endpoint(call).equals("matrix") ? matrix : geocode);
+    }
+
+    private final class Listener extends EventListener {
+        private final Endpoint endpoint;
+        private long startedAt;
+        private int code = -1;
+        private long bytes;
+
+        private Listener(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            startedAt = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            code = response.code();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            bytes += byteCount;
+            endpoint.bytes.add(byteCount);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(String.valueOf(code));
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish("io_error");
+        }
+
+        private void finish(String status) {
+            var elapsed = System.nanoTime() - startedAt;
+            endpoint.duration.record(elapsed);
+            metrics.counter("co2_ors_responses_total", "ORS responses by endpoint and HTTP status",
+                    "endpoint", endpoint.name, "status", status).increment();
+            log.debug("ORS {} {} in {} ms, {} bytes", endpoint.name, status,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), bytes);
+        }
+    }
+
+    private static final class Endpoint {
+        private final String name;
+        private final Timer duration;
+        private final Counter bytes;
+
+        private Endpoint(Metrics metrics, String name) {
+            this.name = name;
+            this.duration = metrics.timer("co2_ors_request_duration_seconds",
+                    "Latency of ORS HTTP attempts, including reading the response", "endpoint", name);
+            this.bytes = metrics.counter("co2_ors_response_bytes_total",
+                    "Response body bytes read from ORS", "endpoint", name);
+        }
+    }
+}
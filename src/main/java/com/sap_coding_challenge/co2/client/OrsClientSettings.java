@@ -0,0 +1,79 @@
+package com.sap_coding_challenge.co2.client;
+
+import okhttp3.HttpUrl;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How an {@link OpenRouteServiceClient} talks to ORS.
+ * <p>
+ * Requests are paced per endpoint: an endpoint with a per-minute limit in {@code quota} is paced by its
+ * {@link EndpointScheduler} alone, the shared {@code rateLimiter} paces the endpoints without one.
+ *
+ * @param baseUrl     where the ORS API is served, e.g. a local ORS instance or simulator
+ * @param http        connection pool, dispatcher and timeouts
+ * @param rateLimiter pacing shared by all endpoints without a per-minute quota of their own
+ * @param resilience  retries and circuit breakers
+ * @param quota       per-endpoint limits of the ORS plan
+ */
+public record OrsClientSettings(HttpUrl baseUrl, HttpClientSettings http, RateLimiter rateLimiter,
+                                ResilienceSettings resilience, QuotaSettings quota) {
+
+    public static final HttpUrl DEFAULT_BASE_URL = HttpUrl.get("https://api.openrouteservice.org");
+
+    public static final OrsClientSettings DEFAULTS = new OrsClientSettings(DEFAULT_BASE_URL,
+            HttpClientSettings.DEFAULTS, RateLimiter.UNLIMITED, ResilienceSettings.DEFAULTS, QuotaSettings.NONE);
+
+    public OrsClientSettings {
+        requireNonNull(baseUrl, "baseUrl");
+        requireNonNull(http, "http");
+        requireNonNull(rateLimiter, "rateLimiter");
+        requireNonNull(resilience, "resilience");
+        requireNonNull(quota, "quota");
+    }
+
+    /**
+     * Reads the base URL from {@code ORS_BASE_URL} and every other part from its {@code ORS_*} variables, see
+     * {@link HttpClientSettings#fromEnvironment}, {@link RateLimiter#fromEnvironment},
+     * {@link ResilienceSettings#fromEnvironment} and {@link QuotaSettings#fromEnvironment}.
+     */
+    public static OrsClientSettings fromEnvironment(Map<String, String> env) {
+        return new OrsClientSettings(baseUrl(env), HttpClientSettings.fromEnvironment(env),
+                RateLimiter.fromEnvironment(env), ResilienceSettings.fromEnvironment(env),
+                QuotaSettings.fromEnvironment(env));
+    }
+
+    public OrsClientSettings withBaseUrl(HttpUrl baseUrl) {
+        return new OrsClientSettings(baseUrl, http, rateLimiter, resilience, quota);
+    }
+
+    public OrsClientSettings withHttp(HttpClientSettings http) {
+        return new OrsClientSettings(baseUrl, http, rateLimiter, resilience, quota);
+    }
+
+    public OrsClientSettings withRateLimiter(RateLimiter rateLimiter) {
+        return new OrsClientSettings(baseUrl, http, rateLimiter, resilience, quota);
+    }
+
+    public OrsClientSettings withResilience(ResilienceSettings resilience) {
+        return new OrsClientSettings(baseUrl, http, rateLimiter, resilience, quota);
+    }
+
+    public OrsClientSettings withQuota(QuotaSettings quota) {
+        return new OrsClientSettings(baseUrl, http, rateLimiter, resilience, quota);
+    }
+
+    private static HttpUrl baseUrl(Map<String, String> env) {
+        var value = env.get("ORS_BASE_URL");
+        if (value == null || value.isBlank()) {
+            return DEFAULT_BASE_URL;
+        }
+        var baseUrl = HttpUrl.parse(value.strip());
+        if (baseUrl == null) {
+            throw new IllegalArgumentException("Invalid ORS_BASE_URL: " + value);
+        }
+        return baseUrl;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Thrown instead of calling an ORS endpoint whose daily request budget is used up.
+ */
+public final class QuotaExhaustedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final Instant resetAt;
+
+    QuotaExhaustedException(String endpoint, int perDay, Instant resetAt) {
+        super("ORS " + endpoint + " quota of " + perDay + " requests per day is used up until " + resetAt + ".");
+        this.resetAt = resetAt;
+    }
+
+    /**
+     * @return when the next daily window starts
+     */
+    public Instant resetAt() {
+        return resetAt;
+    }
+}
@@ -0,0 +1,43 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.util.Map;
+
+/**
+ * Request limits of the ORS plan per endpoint, which the client schedules its calls within (see
+ * {@link EndpointScheduler}). A limit of {@code 0} is not enforced.
+ *
+ * @param geocodePerMinute geocode requests per minute
+ * @param geocodePerDay    geocode requests per day
+ * @param matrixPerMinute  matrix requests per minute, including single distance lookups
+ * @param matrixPerDay     matrix requests per day
+ * @param waitForReset     whether requests wait for the next day once a daily budget is used up, instead of
+ *                         failing with {@link QuotaExhaustedException}
+ */
+public record QuotaSettings(int geocodePerMinute, int geocodePerDay, int matrixPerMinute, int matrixPerDay,
+                            boolean waitForReset) {
+
+    /**
+     * No limits.
+     */
+    public static final QuotaSettings NONE = new QuotaSettings(0, 0, 0, 0, false);
+
+    public QuotaSettings {
+        if (geocodePerMinute < 0 || geocodePerDay < 0 || matrixPerMinute < 0 || matrixPerDay < 0) {
+            throw new IllegalArgumentException("Quotas must not be negative");
+        }
+    }
+
+    /**
+     * Reads the limits from {@code ORS_GEOCODE_PER_MINUTE}, {@code ORS_GEOCODE_PER_DAY},
+     * {@code ORS_MATRIX_PER_MINUTE}, {@code ORS_MATRIX_PER_DAY} and {@code ORS_QUOTA_WAIT_FOR_RESET}; unset limits
+     * are not enforced.
+     */
+    public static QuotaSettings fromEnvironment(Map<String, String> env) {
+        return new QuotaSettings(
+                HttpClientSettings.intValue(env, "ORS_GEOCODE_PER_MINUTE", 0),
+                HttpClientSettings.intValue(env, "ORS_GEOCODE_PER_DAY", 0),
+                HttpClientSettings.intValue(env, "ORS_MATRIX_PER_MINUTE", 0),
+                HttpClientSettings.intValue(env, "ORS_MATRIX_PER_DAY", 0),
+                Boolean.parseBoolean(env.getOrDefault("ORS_QUOTA_WAIT_FOR_RESET", "false").strip()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket pacing the requests sent to ORS. Tokens refill continuously at {@code permitsPerMinute}; up to
+ * {@code burst} of them can be spent at once. Callers reserve a token under a short lock and wait outside it,
+ * so many virtual threads can queue up without pinning their carrier threads.
+ */
+public final class RateLimiter {
+    /**
+     * Limiter that never waits.
+     */
+    public static final RateLimiter UNLIMITED = new RateLimiter(0L, 0L, System::nanoTime);
+
+    private final long nanosPerPermit;
+    private final long burstTolerance;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long theoreticalArrival;
+
+    public RateLimiter(int permitsPerMinute, int burst) {
+        this(permitsPerMinute, burst, System::nanoTime);
+    }
+
+    RateLimiter(int permitsPerMinute, int burst, LongSupplier nanoClock) {
+        this(nanosPerPermit(permitsPerMinute, burst),
+                Math.multiplyExact(nanosPerPermit(permitsPerMinute, burst), burst - 1L), nanoClock);
+    }
+
+    private RateLimiter(long nanosPerPermit, long burstTolerance, LongSupplier nanoClock) {
+        this.nanosPerPermit = nanosPerPermit;
+        this.burstTolerance = burstTolerance;
+        this.nanoClock = nanoClock;
+        this.theoreticalArrival = nanoClock.getAsLong();
+    }
+
+    /**
+     * Paces requests to {@code ORS_REQUESTS_PER_MINUTE} (the plan's limit); unset or {@code 0} means no pacing.
+     */
+    public static RateLimiter fromEnvironment(Map<String, String> env) {
+        var requestsPerMinute = HttpClientSettings.intValue(env, "ORS_REQUESTS_PER_MINUTE", 0);
+        if (requestsPerMinute < 0) {
+            throw new IllegalArgumentException("Invalid ORS_REQUESTS_PER_MINUTE: " + requestsPerMinute);
+        }
+        return requestsPerMinute == 0 ? UNLIMITED : new RateLimiter(requestsPerMinute, 1);
+    }
+
+    private static long nanosPerPermit(int permitsPerMinute, int burst) {
+        if (permitsPerMinute < 1 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        }
+        return TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+    }
+
+    /**
+     * Blocks until a request may be sent.
+     */
+    public void acquire() throws InterruptedIOException {
+        var waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ORS rate limit");
+        }
+    }
+
+    /**
+     * Reserves the next token (generic cell rate algorithm).
+     *
+     * @return nanoseconds the caller has to wait before using the reserved token.
+     */
+    long reserve() {
+        lock.lock();
+        try {
+            var now = nanoClock.getAsLong();
+            var arrival = Math.max(theoreticalArrival, now);
+            theoreticalArrival = arrival + nanosPerPermit;
+            return Math.max(0L, arrival - burstTolerance - now);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sap_coding_challenge.co2.client;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * How ORS calls recover from transient failures. Connection errors and HTTP 429, 502, 503 and 504 are retried up
+ * to {@code maxAttempts} times with exponential backoff and full jitter, waiting at least as long as a
+ * {@code Retry-After} header asks. Each endpoint keeps its own retry budget and circuit breaker.
+ *
+ * @param maxAttempts      attempts per call including the first one; {@code 1} disables retries
+ * @param baseDelay        backoff ceiling of the first retry, doubled for every further one
+ * @param maxDelay         longest wait before a retry; a longer {@code Retry-After} fails the call instead
+ * @param retryBudgetRatio retries an endpoint may add per call on top of a small reserve (0.2 = 20%), so an
+ *                         outage does not multiply the load on ORS
+ * @param failureThreshold consecutive server or connection errors that open an endpoint's circuit; {@code 0}
+ *                         disables the breaker
+ * @param openDuration     how long an open circuit fails calls immediately before letting a trial call through
+ */
+public record ResilienceSettings(int maxAttempts, Duration baseDelay, Duration maxDelay, double retryBudgetRatio,
+                                 int failureThreshold, Duration openDuration) {
+
+    public static final ResilienceSettings DEFAULTS = new ResilienceSettings(
+            4, Duration.ofMillis(250), Duration.ofSeconds(30), 0.2, 5, Duration.ofSeconds(30));
+
+    /**
+     * Single attempt per call and no circuit breaker.
+     */
+    public static final ResilienceSettings NONE = new ResilienceSettings(
+            1, Duration.ZERO, Duration.ZERO, 0, 0, Duration.ZERO);
+
+    public ResilienceSettings {
+        requireNonNull(baseDelay, "baseDelay");
+        requireNonNull(maxDelay, "maxDelay");
+        requireNonNull(openDuration, "openDuration");
+        if (maxAttempts < 1 || failureThreshold < 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive and failureThreshold not negative");
+        }
+        if (baseDelay.isNegative() || maxDelay.isNegative() || openDuration.isNegative()) {
+            throw new IllegalArgumentException("Delays must not be negative");
+        }
+        if (!(retryBudgetRatio >= 0 && retryBudgetRatio <= 1)) {
+            throw new IllegalArgumentException("retryBudgetRatio must be between 0 and 1");
+        }
+    }
+
+    /**
+     * Reads overrides of the {@link #DEFAULTS} from {@code ORS_RETRY_MAX_ATTEMPTS}, {@code ORS_RETRY_BASE_DELAY_MS},
+     * {@code ORS_RETRY_MAX_DELAY_MS}, {@code ORS_RETRY_BUDGET_PERCENT}, {@code ORS_CIRCUIT_FAILURE_THRESHOLD} and
+     * {@code ORS_CIRCUIT_OPEN_SECONDS}.
+     */
+    public static ResilienceSettings fromEnvironment(Map<String, String> env) {
+        return new ResilienceSettings(
+                HttpClientSettings.intValue(env, "ORS_RETRY_MAX_ATTEMPTS", DEFAULTS.maxAttempts),
+                Duration.ofMillis(HttpClientSettings.intValue(env, "ORS_RETRY_BASE_DELAY_MS", (int) DEFAULTS.baseDelay.toMillis())),
+                Duration.ofMillis(HttpClientSettings.intValue(env, "ORS_RETRY_MAX_DELAY_MS", (int) DEFAULTS.maxDelay.toMillis())),
+                HttpClientSettings.intValue(env, "ORS_RETRY_BUDGET_PERCENT", (int) Math.round(DEFAULTS.retryBudgetRatio * 100)) / 100.0,
+                HttpClientSettings.intValue(env, "ORS_CIRCUIT_FAILURE_THRESHOLD", DEFAULTS.failureThreshold),
+                Duration.ofSeconds(HttpClientSettings.intValue(env, "ORS_CIRCUIT_OPEN_SECONDS", (int) DEFAULTS.openDuration.toSeconds())));
+    }
+}
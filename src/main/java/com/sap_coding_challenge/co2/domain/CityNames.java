@@ -0,0 +1,50 @@
+package com.sap_coding_challenge.co2.domain;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of city names as users type them, so {@code "Berlin"}, {@code "berlin"} and {@code " Berlin "} are
+ * recognized as the same city by the caches and by request coalescing.
+ */
+public final class CityNames {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private CityNames() {
+    }
+
+    /**
+     * @return {@code city} stripped, with whitespace runs collapsed to one space and in lower case; names that are
+     * already normalized are returned as is, without allocating.
+     */
+    public static String normalize(String city) {
+        if (isNormalized(city)) {
+            return city;
+        }
+        return WHITESPACE.matcher(city.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    public static boolean sameCity(String city, String other) {
+        return city.equals(other) || normalize(city).equals(normalize(other));
+    }
+
+    private static boolean isNormalized(String city) {
+        var length = city.length();
+        if (length > 0 && (Character.isWhitespace(city.charAt(0)) || Character.isWhitespace(city.charAt(length - 1)))) {
+            return false;
+        }
+        var afterSpace = false;
+        for (int i = 0; i < length; i++) {
+            var c = city.charAt(i);
+            if (Character.isSurrogate(c) || Character.toLowerCase(c) != c) {
+                return false;
+            }
+            var space = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+            if (space && (c != ' ' || afterSpace)) {
+                return false;
+            }
+            afterSpace = space;
+        }
+        return true;
+    }
+}
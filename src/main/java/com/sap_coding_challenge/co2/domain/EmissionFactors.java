@@ -0,0 +1,106 @@
+package com.sap_coding_challenge.co2.domain;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable index of emission factors (g CO2e per km) by transport method key: the {@link TransportMethod} defaults,
+ * optionally extended and overridden from a file. Keys are stored in lower case, so lookups of keys written in
+ * lower case, as in most trip files, are a single hash probe without case folding.
+ */
+public final class EmissionFactors {
+    public static final EmissionFactors DEFAULTS = new EmissionFactors(defaults());
+
+    private final Map<String, Integer> gramsPerKmByKey;
+
+    private EmissionFactors(Map<String, Integer> gramsPerKmByKey) {
+        this.gramsPerKmByKey = Map.copyOf(gramsPerKmByKey);
+    }
+
+    /**
+     * Reads the defaults plus the factors in {@code file}, one {@code key = grams-per-km} per line. Keys are
+     * case-insensitive and may name fleet or year specific variants such as {@code acme.diesel-van.2024}; a key
+     * that matches a built-in method replaces its factor. Blank lines and lines starting with {@code #} are
+     * ignored.
+     */
+    public static EmissionFactors load(Path file) throws IOException {
+        var gramsPerKmByKey = defaults();
+        var overridden = new HashMap<String, Long>();
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                var content = line.strip();
+                if (content.isEmpty() || content.startsWith("#")) {
+                    continue;
+                }
+                var separator = content.indexOf('=');
+                var key = separator < 0 ? "" : content.substring(0, separator).strip().toLowerCase(Locale.ROOT);
+                if (key.isEmpty() || key.chars().anyMatch(Character::isWhitespace)) {
+                    throw malformed(file, lineNumber);
+                }
+                int gramsPerKm;
+                try {
+                    gramsPerKm = Integer.parseInt(content.substring(separator + 1).strip());
+                } catch (NumberFormatException e) {
+                    throw malformed(file, lineNumber);
+                }
+                if (gramsPerKm < 0) {
+                    throw malformed(file, lineNumber);
+                }
+                var previous = overridden.put(key, lineNumber);
+                if (previous != null) {
+                    throw new IOException("Emission factor '" + key + "' is defined on lines " + previous
+                            + " and " + lineNumber + " of " + file + ".");
+                }
+                gramsPerKmByKey.put(key, gramsPerKm);
+            }
+        }
+        return new EmissionFactors(gramsPerKmByKey);
+    }
+
+    /**
+     * @throws IllegalArgumentException for keys without a factor
+     */
+    public int gramsPerKm(String key) {
+        var gramsPerKm = key == null ? null : gramsPerKmByKey.get(key);
+        if (gramsPerKm == null && key != null) {
+            gramsPerKm = gramsPerKmByKey.get(key.toLowerCase(Locale.ROOT));
+        }
+        if (gramsPerKm == null) {
+            throw new IllegalArgumentException("Unknown transportation-method: " + key);
+        }
+        return gramsPerKm;
+    }
+
+    public int size() {
+        return gramsPerKmByKey.size();
+    }
+
+    /**
+     * @return all keys with a factor, in lower case and sorted
+     */
+    public List<String> keys() {
+        return gramsPerKmByKey.keySet().stream().sorted().toList();
+    }
+
+    private static Map<String, Integer> defaults() {
+        var gramsPerKmByKey = new HashMap<String, Integer>();
+        for (var method : TransportMethod.values()) {
+            gramsPerKmByKey.put(method.getKey(), method.getGramsPerKm());
+        }
+        return gramsPerKmByKey;
+    }
+
+    private static IOException malformed(Path file, long lineNumber) {
+        return new IOException("Malformed emission factor on line " + lineNumber + " of " + file
+                + " (expected <key> = <grams-per-km>).");
+    }
+}
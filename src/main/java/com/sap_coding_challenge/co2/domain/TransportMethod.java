@@ -1,6 +1,8 @@
 package com.sap_coding_challenge.co2.domain;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public enum TransportMethod {
     DIESEL_CAR_SMALL("diesel-car-small", 142),
@@ -21,6 +23,16 @@ public enum TransportMethod {
     BUS_DEFAULT("bus-default", 27),
     TRAIN_DEFAULT("train-default", 6);
 
+    private static final Map<String, TransportMethod> BY_KEY;
+
+    static {
+        var byKey = new HashMap<String, TransportMethod>();
+        for (var method : values()) {
+            byKey.put(method.key, method);
+        }
+        BY_KEY = Map.copyOf(byKey);
+    }
+
     private final String key;
     private final int gramsPerKm;
 
@@ -29,15 +41,25 @@ public enum TransportMethod {
         this.gramsPerKm = gramsPerKm;
     }
 
+    public String getKey() {
+        return key;
+    }
+
     public int getGramsPerKm() {
         return gramsPerKm;
     }
 
+    /**
+     * Case-insensitive lookup. Keys are declared in lower case, so only keys that miss the table are lower-cased.
+     */
     public static TransportMethod fromKey(String k) {
-        return Arrays.stream(values())
-                .filter(m -> m.key.equalsIgnoreCase(k))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Unknown transportation-method: " + k));
+        var method = k == null ? null : BY_KEY.get(k);
+        if (method == null && k != null) {
+            method = BY_KEY.get(k.toLowerCase(Locale.ROOT));
+        }
+        if (method == null) {
+            throw new IllegalArgumentException("Unknown transportation-method: " + k);
+        }
+        return method;
     }
 }
@@ -0,0 +1,34 @@
+package com.sap_coding_challenge.co2.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count, cheap to increment from many threads.
+ */
+public final class Counter {
+    static final Counter NOOP = new Counter(null);
+
+    private final LongAdder count;
+
+    private Counter(LongAdder count) {
+        this.count = count;
+    }
+
+    static Counter create() {
+        return new Counter(new LongAdder());
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        if (count != null) {
+            count.add(amount);
+        }
+    }
+
+    public long count() {
+        return count == null ? 0 : count.sum();
+    }
+}
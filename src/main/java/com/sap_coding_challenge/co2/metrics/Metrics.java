@@ -0,0 +1,210 @@
+package com.sap_coding_challenge.co2.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registry of the counters, gauges and latency {@link Timer timers} of one process, exported as Prometheus text or
+ * as a JSON summary. Instruments are identified by name plus label pairs and created on first use; callers on hot
+ * paths keep the instrument instead of looking it up every time.
+ */
+public final class Metrics {
+    /**
+     * Registry that records nothing, for components used without metrics.
+     */
+    public static final Metrics DISABLED = new Metrics(false);
+
+    private final boolean enabled;
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        if (!enabled) {
+            return Counter.NOOP;
+        }
+        return (Counter) family(name, help, Type.COUNTER).instruments
+                .computeIfAbsent(labels(labels), key -> Counter.create());
+    }
+
+    public Timer timer(String name, String help, String... labels) {
+        if (!enabled) {
+            return Timer.NOOP;
+        }
+        return (Timer) family(name, help, Type.HISTOGRAM).instruments
+                .computeIfAbsent(labels(labels), key -> Timer.create());
+    }
+
+    /**
+     * Registers a value read at export time, replacing an earlier gauge with the same name and labels.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        requireNonNull(value, "value");
+        if (enabled) {
+            family(name, help, Type.GAUGE).instruments.put(labels(labels), value);
+        }
+    }
+
+    /**
+     * @return all instruments in the Prometheus text exposition format, sorted by name
+     */
+    public String toPrometheus() {
+        var text = new StringBuilder();
+        for (var family : new TreeMap<>(families).entrySet()) {
+            var name = family.getKey();
+            text.append("# HELP ").append(name).append(' ').append(family.getValue().help).append('\n');
+            text.append("# TYPE ").append(name).append(' ')
+                    .append(family.getValue().type.name().toLowerCase(Locale.ROOT)).append('\n');
+            for (var instrument : new TreeMap<>(family.getValue().instruments).entrySet()) {
+                var labels = instrument.getKey();
+                switch (instrument.getValue()) {
+                    case Counter counter -> sample(text, name, labels, counter.count());
+                    case DoubleSupplier gauge -> sample(text, name, labels, gauge.getAsDouble());
+                    case Timer timer -> {
+                        var counts = timer.bucketCounts();
+                        long cumulative = 0;
+                        for (int i = 0; i < counts.length; i++) {
+                            cumulative += counts[i];
+                            var bound = i < Timer.BUCKET_SECONDS.length ? format(Timer.BUCKET_SECONDS[i]) : "+Inf";
+                            var bucketLabels = labels.isEmpty()
+                                    ? "le=\"" + bound + "\""
+                                    : labels + ",le=\"" + bound + "\"";
+                            sample(text, name + "_bucket", bucketLabels, cumulative);
+                        }
+                        sample(text, name + "_sum", labels, timer.sumSeconds());
+                        sample(text, name + "_count", labels, cumulative);
+                    }
+                    default -> throw new IllegalStateException("Unknown instrument " + instrument.getValue());
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return a JSON object with one member per instrument ({@code name{labels}}): counters and gauges as numbers,
+     * timers as their count, total and mean seconds and the 50th, 95th and 99th percentile bucket.
+     */
+    public String toJson() {
+        var mapper = new ObjectMapper();
+        var json = mapper.createObjectNode();
+        for (var family : new TreeMap<>(families).entrySet()) {
+            for (var instrument : new TreeMap<>(family.getValue().instruments).entrySet()) {
+                var key = instrument.getKey().isEmpty()
+                        ? family.getKey()
+                        : family.getKey() + "{" + instrument.getKey() + "}";
+                switch (instrument.getValue()) {
+                    case Counter counter -> json.put(key, counter.count());
+                    case DoubleSupplier gauge -> json.put(key, gauge.getAsDouble());
+                    case Timer timer -> {
+                        var node = json.putObject(key);
+                        node.put("count", timer.count());
+                        node.put("sum_seconds", timer.sumSeconds());
+                        node.put("mean_seconds", timer.count() == 0 ? 0 : timer.sumSeconds() / timer.count());
+                        putQuantile(node, "p50_seconds", timer.quantileSeconds(0.50));
+                        putQuantile(node, "p95_seconds", timer.quantileSeconds(0.95));
+                        putQuantile(node, "p99_seconds", timer.quantileSeconds(0.99));
+                    }
+                    default -> throw new IllegalStateException("Unknown instrument " + instrument.getValue());
+                }
+            }
+        }
+        return json.toPrettyString();
+    }
+
+    /**
+     * Writes {@link #toJson()} to files ending in {@code .json} and {@link #toPrometheus()} to all others.
+     */
+    public void write(Path file) throws IOException {
+        var json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        Files.writeString(file, json ? toJson() + "\n" : toPrometheus(), StandardCharsets.UTF_8);
+    }
+
+    private Family family(String name, String help, Type type) {
+        var family = families.computeIfAbsent(name, key -> new Family(type, help));
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        var rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(labels[i + 1]
+                    .replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return rendered.toString();
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void putQuantile(ObjectNode node, String field, double seconds) {
+        if (Double.isFinite(seconds)) {
+            node.put(field, seconds);
+        } else {
+            node.putNull(field);
+        }
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private static final class Family {
+        private final Type type;
+        private final String help;
+        private final Map<String, Object> instruments = new ConcurrentHashMap<>();
+
+        private Family(Type type, String help) {
+            this.type = type;
+            this.help = requireNonNull(help, "help");
+        }
+    }
+}
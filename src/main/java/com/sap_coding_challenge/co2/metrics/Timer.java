@@ -0,0 +1,118 @@
+package com.sap_coding_challenge.co2.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets from 1 ms to 60 s, exported like a Prometheus histogram. Recording is a
+ * short scan over the bucket bounds and two adder increments, without locking.
+ */
+public final class Timer {
+    static final Timer NOOP = new Timer(false);
+    static final double[] BUCKET_SECONDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKET_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos;
+
+    private Timer(boolean enabled) {
+        if (enabled) {
+            buckets = new LongAdder[BUCKET_SECONDS.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+            sumNanos = new LongAdder();
+        } else {
+            buckets = null;
+            sumNanos = null;
+        }
+    }
+
+    static Timer create() {
+        return new Timer(true);
+    }
+
+    /**
+     * @return a start time to pass to {@link #recordSince}
+     */
+    public long start() {
+        return buckets == null ? 0 : System.nanoTime();
+    }
+
+    public void recordSince(long startNanos) {
+        if (buckets != null) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void record(long nanos) {
+        if (buckets == null) {
+            return;
+        }
+        int bucket = 0;
+        while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    public long count() {
+        if (buckets == null) {
+            return 0;
+        }
+        long count = 0;
+        for (var bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double sumSeconds() {
+        return sumNanos == null ? 0 : sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * @return observations per bucket (not cumulative); the last bucket holds everything above 60 s
+     */
+    long[] bucketCounts() {
+        var counts = new long[BUCKET_SECONDS.length + 1];
+        if (buckets != null) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the {@code quantile}, an estimate accurate to the bucket
+     * width; {@code +Inf} when it lies above the largest bucket and {@code NaN} without observations.
+     */
+    public double quantileSeconds(double quantile) {
+        var counts = bucketCounts();
+        long total = 0;
+        for (var count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        var rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_SECONDS[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
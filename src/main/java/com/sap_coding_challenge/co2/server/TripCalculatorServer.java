@@ -0,0 +1,311 @@
+package com.sap_coding_challenge.co2.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sap_coding_challenge.co2.application.CityPair;
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.batch.TripRow;
+import com.sap_coding_challenge.co2.batch.TripRowWriter;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Embedded HTTP front end for the calculator, so a long-running process keeps its caches, connection pool and JIT
+ * warm across requests. Every exchange is handled on its own virtual thread.
+ * <ul>
+ *     <li>{@code POST /trips} takes one trip object ({@code start}, {@code end}, {@code transportation-method}) and
+ *     answers it with {@code co2-kg} added.</li>
+ *     <li>{@code POST /trips/batch} takes an array of trip objects and answers each one with {@code co2-kg} or
+ *     {@code error}, in request order.</li>
+ *     <li>{@code GET /health} answers {@code 200} while the server is up.</li>
+ *     <li>{@code GET /metrics} answers the process {@link Metrics} in the Prometheus text format.</li>
+ * </ul>
+ * Invalid trips (unknown city or transport method, missing fields) are answered with {@code 400}, request bodies
+ * over {@value #MAX_BODY_BYTES} bytes with {@code 413} before they are parsed, failures of the ORS API with
+ * {@code 502}.
+ */
+public final class TripCalculatorServer implements Closeable {
+    public static final int DEFAULT_PORT = 8080;
+    static final int MAX_BATCH_TRIPS = 10_000;
+    static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+    private static final long MAX_DISCARDED_BYTES = 16L * MAX_BODY_BYTES;
+
+    private static final Logger log = LoggerFactory.getLogger(TripCalculatorServer.class);
+
+    private final OpenRouteServiceTripCalculator tripCalculator;
+    private final Metrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private TripCalculatorServer(OpenRouteServiceTripCalculator tripCalculator, Metrics metrics, HttpServer server,
+                                 ExecutorService executor) {
+        this.tripCalculator = requireNonNull(tripCalculator, "tripCalculator");
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Binds to {@code address} (port {@code 0} picks a free one) and starts serving.
+     */
+    public static TripCalculatorServer start(OpenRouteServiceTripCalculator tripCalculator,
+                                             InetSocketAddress address) throws IOException {
+        return start(tripCalculator, address, Metrics.DISABLED);
+    }
+
+    /**
+     * Like {@link #start(OpenRouteServiceTripCalculator, InetSocketAddress)}, recording requests into and exposing
+     * {@code metrics}.
+     */
+    public static TripCalculatorServer start(OpenRouteServiceTripCalculator tripCalculator,
+                                             InetSocketAddress address, Metrics metrics) throws IOException {
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        var server = new TripCalculatorServer(tripCalculator, metrics, HttpServer.create(address, 0), executor);
+        server.server.createContext("/trips", exchange -> server.handle(exchange, "POST", server::trip));
+        server.server.createContext("/trips/batch", exchange -> server.handle(exchange, "POST", server::batch));
+        server.server.createContext("/health", exchange -> server.handle(exchange, "GET", body -> null));
+        server.server.createContext("/metrics", server::metrics);
+        server.server.setExecutor(executor);
+        server.server.start();
+        return server;
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits for the ones in flight.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private JsonNode trip(JsonNode body) throws IOException {
+        var row = row(body, 1);
+        var co2Kg = tripCalculator.compute(row.startCity(), row.endCity(), row.transportMethodKey());
+        return result(row, co2Kg.setScale(1, RoundingMode.HALF_UP));
+    }
+
+    private JsonNode batch(JsonNode body) throws IOException {
+        if (!body.isArray()) {
+            throw new IllegalArgumentException("Expected a JSON array of trips.");
+        }
+        if (body.size() > MAX_BATCH_TRIPS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_TRIPS + " trips per batch, got " + body.size() + ".");
+        }
+        var rows = new ArrayList<TripRow>(body.size());
+        var cityPairs = new LinkedHashSet<CityPair>();
+        for (var element : body) {
+            var row = row(element, rows.size() + 1);
+            rows.add(row);
+            try {
+                cityPairs.add(new CityPair(row.startCity(), row.endCity()));
+            } catch (IllegalArgumentException e) {
+                // reported with the row's result
+            }
+        }
+        tripCalculator.prefetchDistances(cityPairs);
+        var results = new ArrayList<CompletableFuture<BigDecimal>>(rows.size());
+        for (var row : rows) {
+            results.add(computeAsync(row));
+        }
+        var response = objectMapper.createArrayNode();
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                response.add(result(rows.get(i), results.get(i).get().setScale(1, RoundingMode.HALF_UP)));
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof IllegalArgumentException)) {
+                    throw rethrow(e.getCause());
+                }
+                var failure = fields(rows.get(i));
+                failure.put(TripRowWriter.ERROR, e.getCause().getMessage());
+                response.add(failure);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while computing batch");
+            }
+        }
+        return response;
+    }
+
+    private CompletableFuture<BigDecimal> computeAsync(TripRow row) {
+        try {
+            return tripCalculator.computeAsync(row.startCity(), row.endCity(), row.transportMethodKey());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                respond(exchange, 404, error("Not found."));
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, error("Use GET."));
+                return;
+            }
+            var bytes = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        var path = exchange.getHttpContext().getPath();
+        var duration = metrics.timer("co2_http_request_duration_seconds", "Time to answer HTTP requests", "path", path);
+        var startedAt = duration.start();
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                respond(exchange, 404, error("Not found."));
+                return;
+            }
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                respond(exchange, 405, error("Use " + method + "."));
+                return;
+            }
+            var bytes = method.equals("POST") ? requestBody(exchange) : null;
+            if (method.equals("POST") && bytes == null) {
+                respond(exchange, 413, error("Request body exceeds " + MAX_BODY_BYTES + " bytes."));
+                return;
+            }
+            JsonNode response;
+            try {
+                var body = bytes == null ? null : objectMapper.readTree(bytes);
+                if (method.equals("POST") && (body == null || body.isMissingNode())) {
+                    throw new IllegalArgumentException("Expected a JSON request body.");
+                }
+                response = endpoint.handle(body);
+            } catch (JsonProcessingException e) {
+                respond(exchange, 400, error("Malformed JSON: " + e.getOriginalMessage()));
+                return;
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            } catch (IOException e) {
+                log.warn("{} {} failed: {}", method, exchange.getRequestURI(), e.getMessage());
+                respond(exchange, 502, error(e.getMessage()));
+                return;
+            } catch (RuntimeException e) {
+                log.error("{} {} failed", method, exchange.getRequestURI(), e);
+                respond(exchange, 500, error("Internal error."));
+                return;
+            }
+            respond(exchange, 200, response == null ? objectMapper.createObjectNode().put("status", "up") : response);
+        } finally {
+            duration.recordSince(startedAt);
+        }
+    }
+
+    /**
+     * @return the request body, or {@code null} if it is larger than {@value #MAX_BODY_BYTES} bytes, which is known
+     * from {@code Content-Length} or after reading one byte more than allowed. The rest of an oversized body is
+     * read and dropped, up to a limit, so the client gets to see the answer instead of a reset connection.
+     */
+    private static byte[] requestBody(HttpExchange exchange) throws IOException {
+        var body = exchange.getRequestBody();
+        var contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && contentLength.strip().matches("\\d{1,18}")
+                && Long.parseLong(contentLength.strip()) > MAX_BODY_BYTES) {
+            discard(body);
+            return null;
+        }
+        var bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            discard(body);
+            return null;
+        }
+        return bytes;
+    }
+
+    private static void discard(InputStream body) throws IOException {
+        var buffer = new byte[8192];
+        long discarded = 0;
+        int read;
+        while (discarded < MAX_DISCARDED_BYTES && (read = body.read(buffer)) >= 0) {
+            discarded += read;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        metrics.counter("co2_http_responses_total", "HTTP responses by path and status",
+                "path", exchange.getHttpContext().getPath(), "status", String.valueOf(status)).increment();
+        var bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private TripRow row(JsonNode node, long number) {
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object for trip " + number + ".");
+        }
+        var fields = new LinkedHashMap<String, String>();
+        node.fields().forEachRemaining(field ->
+                fields.put(field.getKey(), field.getValue().isNull() ? "" : field.getValue().asText()));
+        return new TripRow(number, fields);
+    }
+
+    private ObjectNode result(TripRow row, BigDecimal co2Kg) {
+        return fields(row).put(TripRowWriter.CO2_KG, co2Kg);
+    }
+
+    private ObjectNode fields(TripRow row) {
+        var node = objectMapper.createObjectNode();
+        row.fields().forEach(node::put);
+        return node;
+    }
+
+    private ObjectNode error(String message) {
+        return objectMapper.createObjectNode().put(TripRowWriter.ERROR, message);
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        JsonNode handle(JsonNode body) throws IOException;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class DistanceCacheTest {
+
+    private static final String PROFILE = "driving-car";
+    private static final Coordinates HAMBURG = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.5"));
+    private static final Coordinates BERLIN = new Coordinates(new BigDecimal("13.4"), new BigDecimal("52.5"));
+    private static final Coordinates MUNICH = new Coordinates(new BigDecimal("11.5"), new BigDecimal("48.1"));
+
+    @Test
+    void getCountsHitsAndMisses() {
+        var cache = new DistanceCache(10, false);
+        cache.put(HAMBURG, BERLIN, PROFILE, new BigDecimal("289.9"));
+
+        assertThat(cache.get(HAMBURG, BERLIN, PROFILE)).contains(new BigDecimal("289.9"));
+        assertThat(cache.get(BERLIN, HAMBURG, PROFILE)).isEmpty();
+        assertThat(cache.get(HAMBURG, BERLIN, "cycling-regular")).isEmpty();
+        assertThat(cache.stats()).isEqualTo(new DistanceCache.Stats(1, 2, 0, 1));
+    }
+
+    @Test
+    void symmetricCacheSharesEntriesForBothDirections() {
+        var cache = new DistanceCache(10, true);
+        cache.put(BERLIN, HAMBURG, PROFILE, new BigDecimal("289.9"));
+
+        assertThat(cache.get(HAMBURG, BERLIN, PROFILE)).contains(new BigDecimal("289.9"));
+        assertThat(cache.contains(BERLIN, HAMBURG, PROFILE)).isTrue();
+        assertThat(cache.stats().size()).isEqualTo(1);
+    }
+
+    @Test
+    void putEvictsLeastRecentlyUsedEntry() {
+        var cache = new DistanceCache(2, false);
+        cache.put(HAMBURG, BERLIN, PROFILE, BigDecimal.ONE);
+        cache.put(HAMBURG, MUNICH, PROFILE, BigDecimal.TWO);
+        cache.get(HAMBURG, BERLIN, PROFILE);
+        cache.put(BERLIN, MUNICH, PROFILE, BigDecimal.TEN);
+
+        assertThat(cache.contains(HAMBURG, BERLIN, PROFILE)).isTrue();
+        assertThat(cache.contains(HAMBURG, MUNICH, PROFILE)).isFalse();
+        assertThat(cache.contains(BERLIN, MUNICH, PROFILE)).isTrue();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void constructorRejectsNonPositiveSize() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new DistanceCache(0, false))
+                .withMessage("maxEntries must be positive");
+    }
+}
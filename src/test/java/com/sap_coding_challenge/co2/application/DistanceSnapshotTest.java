@@ -0,0 +1,101 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class DistanceSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void distanceKmLooksUpBothCitiesByNormalizedName() throws IOException {
+        var path = tempDir.resolve("snapshots/distances.snapshot");
+        var matrix = new DistanceMatrix(3, 3);
+        double[][] meters = {{0, 289_103.47, 612_000}, {289_500, 0, 584_220.1}, {611_900, 584_300, 0}};
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrix.setMeters(i, j, meters[i][j]);
+            }
+        }
+        DistanceSnapshot.write(List.of("münchen", "hamburg", "berlin"), matrix, "driving-car", path);
+
+        var snapshot = DistanceSnapshot.open(path);
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.profile()).isEqualTo("driving-car");
+        assertThat(snapshot.distanceKm("MÜNCHEN", " Hamburg")).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isEqualByComparingTo("289.10347"));
+        assertThat(snapshot.distanceKm("Hamburg", "München")).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isEqualByComparingTo("289.5"));
+        assertThat(snapshot.distanceKm("Hamburg", "Berlin")).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isEqualByComparingTo("584.2201"));
+        assertThat(snapshot.distanceKm("Berlin", "Berlin")).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isZero());
+        assertThat(snapshot.contains("berlin")).isTrue();
+        assertThat(snapshot.contains("Paris")).isFalse();
+        assertThat(snapshot.distanceKm("Paris", "Berlin")).isEmpty();
+        assertThat(snapshot.millimeters("Berlin", "Paris")).isEqualTo(FixedPointEmissions.INEXACT);
+    }
+
+    @Test
+    void pairsWithoutRouteAreStoredAsSuch() throws IOException {
+        var path = tempDir.resolve("distances.snapshot");
+        var matrix = new DistanceMatrix(2, 2);
+        matrix.setMeters(0, 0, 0);
+        matrix.setMeters(1, 1, 0);
+        DistanceSnapshot.write(List.of("hamburg", "reykjavik"), matrix, "driving-car", path);
+
+        var snapshot = DistanceSnapshot.open(path);
+
+        assertThat(snapshot.millimeters("Hamburg", "Reykjavik")).isEqualTo(DistanceSnapshot.NO_ROUTE);
+        assertThat(snapshot.distanceKm("Hamburg", "Reykjavik")).isEmpty();
+        assertThat(snapshot.millimeters("Hamburg", "Hamburg")).isZero();
+    }
+
+    @Test
+    void writeReplacesAnOpenSnapshot() throws IOException {
+        var path = tempDir.resolve("distances.snapshot");
+        var matrix = new DistanceMatrix(1, 1);
+        matrix.setMeters(0, 0, 0);
+        DistanceSnapshot.write(List.of("hamburg"), matrix, "driving-car", path);
+        var previous = DistanceSnapshot.open(path);
+
+        DistanceSnapshot.write(List.of("berlin"), matrix, "driving-car", path);
+
+        assertThat(previous.contains("hamburg")).isTrue();
+        assertThat(DistanceSnapshot.open(path).contains("berlin")).isTrue();
+        assertThat(Files.exists(tempDir.resolve("distances.snapshot.tmp"))).isFalse();
+    }
+
+    @Test
+    void noneHasNoCities() {
+        assertThat(DistanceSnapshot.NONE.size()).isZero();
+        assertThat(DistanceSnapshot.NONE.distanceKm("Hamburg", "Berlin")).isEmpty();
+    }
+
+    @Test
+    void openRejectsOtherAndTruncatedFiles() throws IOException {
+        var other = Files.writeString(tempDir.resolve("cities.txt"), "Hamburg\nBerlin\n");
+        assertThatIOException().isThrownBy(() -> DistanceSnapshot.open(other))
+                .withMessageContaining("is not a distance snapshot");
+
+        var path = tempDir.resolve("distances.snapshot");
+        var matrix = new DistanceMatrix(2, 2);
+        DistanceSnapshot.write(List.of("hamburg", "berlin"), matrix, "driving-car", path);
+        var bytes = Files.readAllBytes(path);
+        var truncated = Files.write(tempDir.resolve("truncated.snapshot"), Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatIOException().isThrownBy(() -> DistanceSnapshot.open(truncated))
+                .withMessageContaining("is truncated");
+    }
+}
@@ -0,0 +1,63 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.domain.TransportMethod;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedPointEmissionsTest {
+
+    @Test
+    void millimetersConvertsExactKilometers() {
+        assertThat(FixedPointEmissions.millimeters(new BigDecimal("289.8764"))).isEqualTo(289_876_400L);
+        assertThat(FixedPointEmissions.millimeters(new BigDecimal("0.000001"))).isEqualTo(1L);
+        assertThat(FixedPointEmissions.millimeters(BigDecimal.ZERO)).isZero();
+    }
+
+    @Test
+    void millimetersRejectsValuesWithoutExactRepresentation() {
+        assertThat(FixedPointEmissions.millimeters(new BigDecimal("0.0000001"))).isEqualTo(FixedPointEmissions.INEXACT);
+        assertThat(FixedPointEmissions.millimeters(new BigDecimal("-1"))).isEqualTo(FixedPointEmissions.INEXACT);
+        assertThat(FixedPointEmissions.millimeters(new BigDecimal("1e20"))).isEqualTo(FixedPointEmissions.INEXACT);
+    }
+
+    @Test
+    void roundedTenthsOfKgRoundsHalfUp() {
+        // 171 g/km * 289.8764 km = 49.5688644 kg
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(171, 289_876_400L)).isEqualTo(496);
+        // 100 g/km * 0.25 km = 0.025 kg; 100 g/km * 0.5 km = 0.05 kg is exactly half a tenth
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(100, 250_000L)).isZero();
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(100, 500_000L)).isEqualTo(1);
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(100, 499_999L)).isZero();
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(0, 500_000L)).isZero();
+    }
+
+    @Test
+    void roundedTenthsOfKgReportsOverflow() {
+        assertThat(FixedPointEmissions.roundedTenthsOfKg(Integer.MAX_VALUE, Long.MAX_VALUE / 2))
+                .isEqualTo(FixedPointEmissions.INEXACT);
+    }
+
+    @Test
+    void roundedTenthsOfKgMatchesBigDecimalArithmetic() {
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            var method = TransportMethod.values()[random.nextInt(TransportMethod.values().length)];
+            // ORS reports meters with up to two decimals, which are parsed as doubles and cached in kilometers
+            var centimeters = random.nextLong(i % 2 == 0 ? 100_000 : 400_000_000);
+            var meters = Double.parseDouble(BigDecimal.valueOf(centimeters, 2).toPlainString());
+            var distanceKm = BigDecimal.valueOf(meters).movePointLeft(3);
+            var expected = BigDecimal.valueOf(method.getGramsPerKm()).multiply(distanceKm).movePointLeft(3)
+                    .setScale(1, RoundingMode.HALF_UP);
+
+            var tenths = FixedPointEmissions.roundedTenthsOfKg(method.getGramsPerKm(),
+                    FixedPointEmissions.millimeters(distanceKm));
+
+            assertThat(BigDecimal.valueOf(tenths, 1)).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sap_coding_challenge.co2.application;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
+
+class HaversineDistanceProviderTest {
+
+    private static final Coordinates HAMBURG = new Coordinates(new BigDecimal("9.99"), new BigDecimal("53.55"));
+    private static final Coordinates BERLIN = new Coordinates(new BigDecimal("13.40"), new BigDecimal("52.52"));
+    private static final Coordinates MUNICH = new Coordinates(new BigDecimal("11.58"), new BigDecimal("48.14"));
+
+    @Test
+    void distanceKmIsTheGreatCircleDistanceTimesTheRoadFactor() {
+        var greatCircle = new HaversineDistanceProvider(1.0).distanceKm(HAMBURG, BERLIN, "Hamburg", "Berlin");
+        var road = new HaversineDistanceProvider(1.3).distanceKm(HAMBURG, BERLIN, "Hamburg", "Berlin");
+
+        assertThat(greatCircle.doubleValue()).isCloseTo(255.3, within(1.0));
+        assertThat(road.doubleValue()).isCloseTo(greatCircle.doubleValue() * 1.3, within(0.002));
+        assertThat(road.scale()).isEqualTo(3);
+    }
+
+    @Test
+    void distanceMatrixIsComputedLocally() {
+        var provider = new HaversineDistanceProvider(HaversineDistanceProvider.DEFAULT_ROAD_FACTOR);
+
+        var matrix = provider.distanceMatrix(List.of(HAMBURG, BERLIN), List.of(MUNICH, HAMBURG));
+
+        assertThat(matrix.distanceKm(0, 0)).hasValueSatisfying(km ->
+                assertThat(km).isEqualByComparingTo(provider.distanceKm(HAMBURG, MUNICH, "Hamburg", "Munich")));
+        assertThat(matrix.distanceKm(0, 1)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("0"));
+        assertThat(matrix.distanceKm(1, 1)).hasValueSatisfying(km ->
+                assertThat(km).isEqualByComparingTo(provider.distanceKm(BERLIN, HAMBURG, "Berlin", "Hamburg")));
+        assertThat(provider.isLocal()).isTrue();
+        assertThat(provider.profile()).isEqualTo("haversine-1.3");
+    }
+
+    @Test
+    void constructorRejectsRoadFactorsBelowOne() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new HaversineDistanceProvider(0.9))
+                .withMessage("Road factor must be at least 1.0 but was 0.9");
+        assertThatIllegalArgumentException().isThrownBy(() -> new HaversineDistanceProvider(Double.NaN));
+    }
+}
@@ -1,14 +1,28 @@
 package com.sap_coding_challenge.co2.application;
 
+import com.sap_coding_challenge.co2.client.DistanceMatrix;
 import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
 import com.sap_coding_challenge.co2.domain.Coordinates;
+import com.sap_coding_challenge.co2.domain.EmissionFactors;
+import com.sap_coding_challenge.co2.metrics.Metrics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -32,24 +46,203 @@ class OpenRouteServiceTripCalculatorTest {
         var startCoords = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
         var endCoords = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
         var distanceBetweenCities = new BigDecimal("150.5");
-        when(client.fetchCityCoordinates(anyString())).thenReturn(startCoords).thenReturn(endCoords);
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(startCoords);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(endCoords);
         when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(distanceBetweenCities);
 
         var totalKg = calculator.compute(HAMBURG, BERLIN, "diesel-car-medium");
 
         assertThat(totalKg).isEqualByComparingTo("25.7355");
+        // both cities are geocoded concurrently, so only the distance lookup has a defined order
+        verify(client).fetchCityCoordinates(HAMBURG);
+        verify(client).fetchCityCoordinates(BERLIN);
         var inOrder = inOrder(client);
-        inOrder.verify(client).fetchCityCoordinates(HAMBURG);
-        inOrder.verify(client).fetchCityCoordinates(BERLIN);
         inOrder.verify(client).fetchDistanceBetweenLocalities(startCoords, endCoords, HAMBURG, BERLIN);
         verifyNoMoreInteractions(client);
     }
 
+    @Test
+    void computeRecordsTripOutcomesAndDistanceCacheStatistics() throws IOException {
+        var metrics = new Metrics();
+        var calculator = new OpenRouteServiceTripCalculator(client,
+                new DistanceCache(DistanceCache.DEFAULT_MAX_ENTRIES, false), metrics);
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(new Coordinates(BigDecimal.TEN, BigDecimal.ONE));
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(new Coordinates(BigDecimal.ONE, BigDecimal.TEN));
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString()))
+                .thenReturn(new BigDecimal("100"));
+
+        calculator.compute(HAMBURG, BERLIN, "bus-default");
+        calculator.computeRounded(HAMBURG, BERLIN, "bus-default");
+        assertThatThrownBy(() -> calculator.compute(HAMBURG, BERLIN, "hovercraft"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(metrics.toPrometheus())
+                .contains("co2_trips_total{result=\"computed\"} 2\n")
+                .contains("co2_trips_total{result=\"rejected\"} 1\n")
+                .contains("co2_trip_duration_seconds_count 3\n")
+                .contains("co2_distance_cache_misses 1\n")
+                .contains("co2_distance_cache_size 1\n");
+    }
+
+    @Test
+    void computeTreatsCityNamesDifferingInCaseAndWhitespaceAsTheSameCity() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString()))
+                .thenReturn(new BigDecimal("100"));
+
+        assertThat(calculator.compute("berlin", " Berlin ", "bus-default")).isZero();
+        assertThat(calculator.computeRounded("BERLIN", "berlin", "bus-default")).isEqualByComparingTo("0.0");
+        verifyNoInteractions(client);
+
+        calculator.compute(HAMBURG, BERLIN, "bus-default");
+        var emissions = calculator.computeRounded(" hamburg", "berlin", "bus-default");
+
+        assertThat(emissions).isEqualByComparingTo("2.7");
+        assertThat(calculator.knownCoordinates("HAMBURG")).contains(hamburg);
+        verify(client).fetchCityCoordinates(HAMBURG);
+        verify(client).fetchCityCoordinates(BERLIN);
+        verify(client).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void computeReusesResolvedCoordinatesAndDistances() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        var munich = new Coordinates(new BigDecimal("11.5"), new BigDecimal("48.1"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchCityCoordinates("Munich")).thenReturn(munich);
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(new BigDecimal("100"));
+
+        calculator.compute(HAMBURG, BERLIN, "diesel-car-medium");
+        calculator.compute(HAMBURG, BERLIN, "train-default");
+        var totalKg = calculator.compute(HAMBURG, "Munich", "bus-default");
+
+        assertThat(totalKg).isEqualByComparingTo("2.7");
+        verify(client, times(1)).fetchCityCoordinates(HAMBURG);
+        verify(client, times(1)).fetchCityCoordinates(BERLIN);
+        verify(client, times(1)).fetchCityCoordinates("Munich");
+        verify(client, times(1)).fetchDistanceBetweenLocalities(hamburg, berlin, HAMBURG, BERLIN);
+        verify(client, times(1)).fetchDistanceBetweenLocalities(hamburg, munich, HAMBURG, "Munich");
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void prefetchDistancesResolvesPendingPairsWithOneMatrixRequest() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        var munich = new Coordinates(new BigDecimal("11.5"), new BigDecimal("48.1"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchCityCoordinates("Munich")).thenReturn(munich);
+        when(client.fetchCityCoordinates("Atlantis")).thenThrow(new IllegalArgumentException("unknown"));
+        var matrix = mock(DistanceMatrix.class);
+        when(matrix.distanceKm(0, 0)).thenReturn(Optional.of(new BigDecimal("289")));
+        when(matrix.distanceKm(0, 1)).thenReturn(Optional.of(new BigDecimal("775")));
+        when(matrix.distanceKm(1, 1)).thenReturn(Optional.empty());
+        when(client.fetchDistanceMatrix(List.of(hamburg, berlin), List.of(berlin, munich))).thenReturn(matrix);
+
+        calculator.prefetchDistances(List.of(
+                new CityPair(HAMBURG, BERLIN),
+                new CityPair(HAMBURG, "Munich"),
+                new CityPair(BERLIN, "Munich"),
+                new CityPair(HAMBURG, HAMBURG),
+                new CityPair(HAMBURG, "Atlantis")));
+
+        assertThat(calculator.compute(HAMBURG, BERLIN, "diesel-car-medium")).isEqualByComparingTo("49.419");
+        assertThat(calculator.compute(HAMBURG, "Munich", "train-default")).isEqualByComparingTo("4.65");
+        verify(client).fetchDistanceMatrix(anyList(), anyList());
+        verify(client, never()).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+    }
+
+    @Test
+    void computeItineraryResolvesAllLegsWithOneMatrixRequest() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        var munich = new Coordinates(new BigDecimal("11.5"), new BigDecimal("48.1"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchCityCoordinates("Munich")).thenReturn(munich);
+        var matrix = mock(DistanceMatrix.class);
+        when(matrix.distanceKm(0, 0)).thenReturn(Optional.of(new BigDecimal("289")));
+        when(matrix.distanceKm(1, 1)).thenReturn(Optional.of(new BigDecimal("585")));
+        when(matrix.distanceKm(2, 2)).thenReturn(Optional.of(new BigDecimal("775")));
+        when(client.fetchDistanceMatrix(List.of(hamburg, berlin, munich), List.of(berlin, munich, hamburg)))
+                .thenReturn(matrix);
+
+        var legs = calculator.computeItinerary(List.of(HAMBURG, BERLIN, "Munich", HAMBURG), "bus-default");
+
+        assertThat(legs).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("7.803"), new BigDecimal("15.795"), new BigDecimal("20.925"));
+        verify(client).fetchDistanceMatrix(anyList(), anyList());
+        verify(client, never()).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+    }
+
+    @Test
+    void computeItineraryRejectsTooFewStopsAndUnknownMethods() {
+        assertThatThrownBy(() -> calculator.computeItinerary(List.of(HAMBURG), "bus-default"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("An itinerary needs at least two stops, got 1.");
+        assertThatThrownBy(() -> calculator.computeItinerary(List.of(HAMBURG, BERLIN), "rocket"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown transportation-method: rocket");
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void compareTransportMethodsResolvesTheDistanceOnceAndRanksMethods() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString()))
+                .thenReturn(new BigDecimal("100"));
+
+        var ranked = calculator.compareTransportMethods(List.of(HAMBURG, BERLIN), calculator.transportMethodKeys());
+
+        assertThat(ranked).hasSize(14);
+        assertThat(ranked.keySet()).startsWith("train-default", "bus-default", "electric-car-small");
+        assertThat(ranked.get("train-default")).isEqualByComparingTo("0.6");
+        assertThat(ranked.get("petrol-car-large")).isEqualByComparingTo("28.2");
+        verify(client, times(1)).fetchDistanceBetweenLocalities(hamburg, berlin, HAMBURG, BERLIN);
+    }
+
+    @Test
+    void compareTransportMethodsRejectsUnknownMethodsBeforeAnyLookup() {
+        assertThatThrownBy(() -> calculator.compareTransportMethods(List.of(HAMBURG, BERLIN),
+                List.of("bus-default", "rocket")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown transportation-method: rocket");
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void computeReusesDistancesOfTheReverseDirectionWithSymmetricCache() throws IOException {
+        var symmetricCalculator = new OpenRouteServiceTripCalculator(client, new DistanceCache(10, true));
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(hamburg);
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(berlin);
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(new BigDecimal("100"));
+
+        symmetricCalculator.compute(HAMBURG, BERLIN, "diesel-car-medium");
+        var totalKg = symmetricCalculator.compute(BERLIN, HAMBURG, "diesel-car-medium");
+
+        assertThat(totalKg).isEqualByComparingTo("17.1");
+        verify(client, times(1)).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+        assertThat(symmetricCalculator.distanceCacheStats()).isEqualTo(new DistanceCache.Stats(1, 1, 0, 1));
+    }
+
     @Test
     void computePropagatesClientExceptions() throws IOException {
         var startCoords = new Coordinates(BigDecimal.ONE, BigDecimal.ONE);
         var endCoords = new Coordinates(BigDecimal.TEN, BigDecimal.TEN);
-        when(client.fetchCityCoordinates(anyString())).thenReturn(startCoords, endCoords);
+        when(client.fetchCityCoordinates("Start")).thenReturn(startCoords);
+        when(client.fetchCityCoordinates("End")).thenReturn(endCoords);
         var failure = new IOException("boom");
         when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenThrow(failure);
 
@@ -57,6 +250,185 @@ class OpenRouteServiceTripCalculatorTest {
                 .isSameAs(failure);
     }
 
+    @Test
+    void computeGeocodesBothCitiesConcurrently() throws Exception {
+        var bothLookupsStarted = new CountDownLatch(2);
+        when(client.fetchCityCoordinates(anyString())).thenAnswer(invocation -> {
+            bothLookupsStarted.countDown();
+            if (!bothLookupsStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("lookups ran sequentially");
+            }
+            return new Coordinates(BigDecimal.ONE, BigDecimal.ONE);
+        });
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(BigDecimal.TEN);
+
+        var totalKg = calculator.compute(HAMBURG, BERLIN, "train-default");
+
+        assertThat(totalKg).isEqualByComparingTo("0.06");
+    }
+
+    @Test
+    void computePropagatesGeocodingFailuresOfTheStartCityFirst() throws IOException {
+        when(client.fetchCityCoordinates(HAMBURG)).thenThrow(new IllegalArgumentException("start"));
+        when(client.fetchCityCoordinates(BERLIN)).thenThrow(new IllegalArgumentException("end"));
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> calculator.compute(HAMBURG, BERLIN, "diesel-car-medium"))
+                .withMessage("start");
+    }
+
+    @Test
+    void computeAsyncComposesAsyncClientCalls() throws Exception {
+        var startCoords = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var endCoords = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        when(client.fetchCityCoordinatesAsync(HAMBURG)).thenReturn(CompletableFuture.completedFuture(startCoords));
+        when(client.fetchCityCoordinatesAsync(BERLIN)).thenReturn(CompletableFuture.completedFuture(endCoords));
+        when(client.fetchDistanceBetweenLocalitiesAsync(startCoords, endCoords, HAMBURG, BERLIN))
+                .thenReturn(CompletableFuture.completedFuture(new BigDecimal("150.5")));
+
+        var totalKg = calculator.computeAsync(HAMBURG, BERLIN, "diesel-car-medium").get(5, TimeUnit.SECONDS);
+        var cachedTotalKg = calculator.computeAsync(HAMBURG, BERLIN, "diesel-car-medium").get(5, TimeUnit.SECONDS);
+
+        assertThat(totalKg).isEqualByComparingTo("25.7355");
+        assertThat(cachedTotalKg).isEqualByComparingTo("25.7355");
+        verify(client).fetchCityCoordinatesAsync(HAMBURG);
+        verify(client).fetchCityCoordinatesAsync(BERLIN);
+        verify(client).fetchDistanceBetweenLocalitiesAsync(startCoords, endCoords, HAMBURG, BERLIN);
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void computeAsyncFailsForUnknownTransportMethodWithoutCallingTheClient() {
+        assertThat(calculator.computeAsync(HAMBURG, BERLIN, "rocket"))
+                .isCompletedExceptionally()
+                .failsWithin(0, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void computeRoundedUsesCachedDistancesAndMatchesRoundedCompute() throws IOException {
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0")));
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0")));
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(new BigDecimal("289.8764"));
+
+        var first = calculator.computeRounded(HAMBURG, BERLIN, "diesel-car-medium");
+        var cached = calculator.computeRounded(HAMBURG, BERLIN, "diesel-car-medium");
+        var sameCity = calculator.computeRounded(HAMBURG, HAMBURG, "diesel-car-medium");
+
+        assertThat(first).isEqualTo(new BigDecimal("49.6"));
+        assertThat(cached).isEqualTo(first)
+                .isEqualTo(calculator.compute(HAMBURG, BERLIN, "diesel-car-medium").setScale(1, RoundingMode.HALF_UP));
+        assertThat(sameCity).isEqualTo(new BigDecimal("0.0"));
+        verify(client, times(1)).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+        assertThat(calculator.distanceCacheStats().hits()).isEqualTo(2);
+        assertThat(calculator.distanceCacheStats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void computeRoundedMatchesComputeForTheSameCityInAnyCaseAndWhitespace() throws IOException {
+        assertThat(calculator.computeRounded("Berlin", "berlin ", "diesel-car-medium")).isEqualTo("0.0");
+        assertThat(calculator.computeRounded(" BERLIN", "Berlin", "rocket"))
+                .isEqualTo(calculator.compute(" BERLIN", "Berlin", "rocket").setScale(1, RoundingMode.HALF_UP));
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void computeRoundedRejectsUnknownTransportMethods() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> calculator.computeRounded(HAMBURG, BERLIN, "rocket"));
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void withEmissionFactorsUsesTheGivenFactorsAndSharesCaches(@TempDir Path tempDir) throws IOException {
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0")));
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0")));
+        when(client.fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString())).thenReturn(new BigDecimal("100"));
+        var factors = EmissionFactors.load(Files.writeString(tempDir.resolve("factors.properties"), "acme-van = 250\n"));
+        var fleet = calculator.withEmissionFactors(factors);
+
+        calculator.compute(HAMBURG, BERLIN, "bus-default");
+
+        assertThat(fleet.compute(HAMBURG, BERLIN, "ACME-VAN")).isEqualByComparingTo("25");
+        assertThat(fleet.computeRounded(HAMBURG, BERLIN, "acme-van")).isEqualTo("25.0");
+        assertThatIllegalArgumentException().isThrownBy(() -> calculator.compute(HAMBURG, BERLIN, "acme-van"));
+        verify(client, times(1)).fetchDistanceBetweenLocalities(any(), any(), anyString(), anyString());
+    }
+
+    @Test
+    void computeWithLocalDistanceProviderOnlyGeocodes() throws IOException {
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(new Coordinates(new BigDecimal("9.99"), new BigDecimal("53.55")));
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(new Coordinates(new BigDecimal("13.40"), new BigDecimal("52.52")));
+        var offline = calculator.withDistanceProvider(new HaversineDistanceProvider(1.0));
+
+        offline.prefetchDistances(List.of(new CityPair(HAMBURG, BERLIN)));
+        var totalKg = offline.compute(HAMBURG, BERLIN, "train-default");
+
+        // roughly 255 km great-circle distance at 6 g/km
+        assertThat(totalKg).isBetween(new BigDecimal("1.50"), new BigDecimal("1.56"));
+        verify(client).fetchCityCoordinates(HAMBURG);
+        verify(client).fetchCityCoordinates(BERLIN);
+        verifyNoMoreInteractions(client);
+        assertThat(offline.distanceCacheStats().size()).isZero();
+    }
+
+    @Test
+    void writeDistanceSnapshotStoresTheMatrixBetweenAllGeocodedCities(@TempDir Path tempDir) throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.0"));
+        var berlin = new Coordinates(new BigDecimal("13.0"), new BigDecimal("52.0"));
+        when(client.fetchCityCoordinates("hamburg")).thenReturn(hamburg);
+        when(client.fetchCityCoordinates("berlin")).thenReturn(berlin);
+        when(client.fetchCityCoordinates("atlantis")).thenThrow(new IllegalArgumentException("unknown"));
+        var matrix = new DistanceMatrix(2, 2);
+        matrix.setMeters(0, 0, 0);
+        matrix.setMeters(0, 1, 289_103.5);
+        matrix.setMeters(1, 0, 289_600);
+        matrix.setMeters(1, 1, 0);
+        when(client.fetchDistanceMatrix(List.of(hamburg, berlin), List.of(hamburg, berlin))).thenReturn(matrix);
+        var path = tempDir.resolve("distances.snapshot");
+
+        var written = calculator.writeDistanceSnapshot(List.of("Hamburg", "Berlin", " HAMBURG", "Atlantis"), path);
+
+        assertThat(written).containsExactly("hamburg", "berlin");
+        var snapshot = DistanceSnapshot.open(path);
+        assertThat(snapshot.profile()).isEqualTo(OpenRouteServiceClient.ROUTING_PROFILE);
+        assertThat(snapshot.distanceKm(HAMBURG, BERLIN)).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isEqualByComparingTo("289.1035"));
+        verify(client).fetchDistanceMatrix(anyList(), anyList());
+    }
+
+    @Test
+    void withDistanceSnapshotAnswersKnownPairsWithoutRequests(@TempDir Path tempDir) throws Exception {
+        var matrix = new DistanceMatrix(3, 3);
+        matrix.setMeters(0, 1, 289_876.4);
+        matrix.setMeters(1, 0, 289_876.4);
+        var path = tempDir.resolve("distances.snapshot");
+        DistanceSnapshot.write(List.of("hamburg", "berlin", "reykjavik"), matrix,
+                OpenRouteServiceClient.ROUTING_PROFILE, path);
+        var snapshotted = calculator.withDistanceSnapshot(DistanceSnapshot.open(path));
+
+        assertThat(snapshotted.compute(HAMBURG, BERLIN, "diesel-car-medium")).isEqualByComparingTo("49.5688644");
+        assertThat(snapshotted.computeRounded(BERLIN, "hamburg", "diesel-car-medium")).isEqualTo("49.6");
+        assertThat(snapshotted.computeAsync(HAMBURG, BERLIN, "diesel-car-medium").get())
+                .isEqualByComparingTo("49.5688644");
+        assertThat(snapshotted.knownDistanceKm(HAMBURG, BERLIN)).hasValueSatisfying(
+                distanceKm -> assertThat(distanceKm).isEqualByComparingTo("289.8764"));
+        snapshotted.prefetchDistances(List.of(new CityPair(HAMBURG, BERLIN)));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> snapshotted.compute(HAMBURG, "Reykjavik", "diesel-car-medium"))
+                .withMessageContaining("might not be reachable by car");
+        verifyNoInteractions(client);
+
+        var offline = snapshotted.withDistanceProvider(new HaversineDistanceProvider(1.0));
+        when(client.fetchCityCoordinates(HAMBURG)).thenReturn(new Coordinates(new BigDecimal("9.99"), new BigDecimal("53.55")));
+        when(client.fetchCityCoordinates(BERLIN)).thenReturn(new Coordinates(new BigDecimal("13.40"), new BigDecimal("52.52")));
+        // the snapshot holds driving distances, so it does not answer for other profiles
+        assertThat(offline.compute(HAMBURG, BERLIN, "diesel-car-medium")).isLessThan(new BigDecimal("49"));
+    }
+
     @Test
     void constructorRejectsNullClient() {
         assertThatNullPointerException()
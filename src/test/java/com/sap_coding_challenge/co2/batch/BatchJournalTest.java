@@ -0,0 +1,96 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class BatchJournalTest {
+
+    private static final Coordinates HAMBURG = new Coordinates(new BigDecimal("9.99"), new BigDecimal("53.55"));
+    private static final Coordinates TAB_CITY = new Coordinates(new BigDecimal("1.5"), new BigDecimal("2.5"));
+
+    private final OpenRouteServiceClient client = mock(OpenRouteServiceClient.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resumeRestoresCoordinatesDistancesAndTheLastCheckpoint() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), "start,end,transportation-method\n");
+        var journalPath = tempDir.resolve("results.csv.journal");
+        var calculator = new OpenRouteServiceTripCalculator(client);
+        calculator.restoreCoordinates("Hamburg", HAMBURG);
+        calculator.restoreCoordinates("Tab\tCity", TAB_CITY);
+        calculator.restoreDistanceKm(HAMBURG, TAB_CITY, calculator.distanceProfile(), new BigDecimal("12.5"));
+        var window = List.of(new TripRow(1, Map.of(TripRow.START, "Hamburg", TripRow.END, "Tab\tCity")),
+                new TripRow(2, Map.of(TripRow.START, "Hamburg", TripRow.END, "Nowhere")));
+        try (var journal = BatchJournal.start(journalPath, input)) {
+            journal.checkpoint(window, 1, 120, calculator);
+            journal.checkpoint(window, 0, 180, calculator);
+        }
+        Files.writeString(journalPath, Files.readString(journalPath) + "C\tBer");
+
+        var resumed = new OpenRouteServiceTripCalculator(client);
+        try (var journal = BatchJournal.resume(journalPath, input, resumed)) {
+            assertThat(journal.rowsDone()).isEqualTo(4);
+            assertThat(journal.rowsFailed()).isEqualTo(1);
+            assertThat(journal.outputBytes()).isEqualTo(180);
+        }
+
+        assertThat(resumed.knownCoordinates("Hamburg")).contains(HAMBURG);
+        assertThat(resumed.knownCoordinates("Tab\tCity")).contains(TAB_CITY);
+        assertThat(resumed.knownCoordinates("Ber")).isEmpty();
+        assertThat(resumed.knownDistanceKm(HAMBURG, TAB_CITY)).contains(new BigDecimal("12.5"));
+        assertThat(Files.readAllLines(journalPath)).hasSize(5).doesNotContain("C\tBer");
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void resumeRejectsAJournalOfAnotherInput() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), "start,end,transportation-method\n");
+        var journalPath = tempDir.resolve("results.csv.journal");
+        BatchJournal.start(journalPath, input).close();
+        Files.writeString(input, "start,end,transportation-method\nHamburg,Berlin,bus-default\n");
+
+        assertThatThrownBy(() -> BatchJournal.resume(journalPath, input, new OpenRouteServiceTripCalculator(client)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("run without --resume to start over");
+    }
+
+    @Test
+    void resumeRejectsAJournalOfAnInputEditedWithoutChangingItsSize() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), "Berlin,Hamburg,bus-default\n");
+        var journalPath = tempDir.resolve("results.csv.journal");
+        BatchJournal.start(journalPath, input).close();
+        var modified = Files.getLastModifiedTime(input);
+        Files.writeString(input, "Munich,Hamburg,bus-default\n");
+        Files.setLastModifiedTime(input, modified);
+
+        assertThatThrownBy(() -> BatchJournal.resume(journalPath, input, new OpenRouteServiceTripCalculator(client)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("run without --resume to start over");
+    }
+
+    @Test
+    void escapeRoundTripsSeparators() {
+        var value = "a\tb\\c\nd\re";
+
+        assertThat(BatchJournal.escape(value)).doesNotContain("\t", "\n", "\r");
+        assertThat(BatchJournal.unescape(BatchJournal.escape(value))).isEqualTo(value);
+        assertThat(BatchJournal.escape("Hamburg")).isSameAs("Hamburg");
+    }
+}
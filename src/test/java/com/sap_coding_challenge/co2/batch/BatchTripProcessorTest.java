@@ -0,0 +1,232 @@
+package com.sap_coding_challenge.co2.batch;
+
+import com.sap_coding_challenge.co2.application.CityPair;
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class BatchTripProcessorTest {
+
+    private final OpenRouteServiceTripCalculator tripCalculator = mock(OpenRouteServiceTripCalculator.class);
+    private final BatchTripProcessor processor = new BatchTripProcessor(tripCalculator);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void processStreamsCsvRowsAndEchoesInputColumns() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                id,start,end,transportation-method
+                1,Hamburg,Berlin,diesel-car-medium
+
+                2,"Frankfurt, Main",Munich,train-default
+                """);
+        var output = tempDir.resolve("results.csv");
+        when(tripCalculator.computeRounded("Hamburg", "Berlin", "diesel-car-medium")).thenReturn(new BigDecimal("49.6"));
+        when(tripCalculator.computeRounded("Frankfurt, Main", "Munich", "train-default")).thenReturn(new BigDecimal("2.4"));
+
+        var summary = processor.process(input, output);
+
+        assertThat(summary.trips()).isEqualTo(2);
+        assertThat(summary.failedTrips()).isZero();
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "id,start,end,transportation-method,co2-kg,error",
+                "1,Hamburg,Berlin,diesel-car-medium,49.6,",
+                "2,\"Frankfurt, Main\",Munich,train-default,2.4,");
+        var inOrder = inOrder(tripCalculator);
+        inOrder.verify(tripCalculator).prefetchDistances(
+                Set.of(new CityPair("Hamburg", "Berlin"), new CityPair("Frankfurt, Main", "Munich")));
+        inOrder.verify(tripCalculator, times(2)).computeRounded(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void processWritesJsonLinesAndRecordsInvalidRows() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.jsonl"), """
+                {"start":"Hamburg","end":"Berlin","transportation-method":"bus-default"}
+                {"start":"Hamburg","end":"Atlantis","transportation-method":"bus-default"}
+                {"start":"Hamburg","transportation-method":"bus-default"}
+                """);
+        var output = tempDir.resolve("results.jsonl");
+        when(tripCalculator.computeRounded("Hamburg", "Berlin", "bus-default")).thenReturn(new BigDecimal("7.8"));
+        when(tripCalculator.computeRounded("Hamburg", "Atlantis", "bus-default"))
+                .thenThrow(new IllegalArgumentException("Could not fetch coordinates for city \"Atlantis\"."));
+
+        var summary = processor.process(input, output);
+
+        assertThat(summary.trips()).isEqualTo(3);
+        assertThat(summary.failedTrips()).isEqualTo(2);
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "{\"start\":\"Hamburg\",\"end\":\"Berlin\",\"transportation-method\":\"bus-default\",\"co2-kg\":7.8}",
+                "{\"start\":\"Hamburg\",\"end\":\"Atlantis\",\"transportation-method\":\"bus-default\",\"error\":\"Could not fetch coordinates for city \\\"Atlantis\\\".\"}",
+                "{\"start\":\"Hamburg\",\"transportation-method\":\"bus-default\",\"error\":\"Missing \\\"end\\\" in row 3.\"}");
+    }
+
+    @Test
+    void processAbortsOnIoFailures() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus-default
+                """);
+        var failure = new IOException("boom");
+        when(tripCalculator.computeRounded(anyString(), anyString(), anyString())).thenThrow(failure);
+
+        assertThatThrownBy(() -> processor.process(input, tempDir.resolve("results.csv")))
+                .isSameAs(failure);
+    }
+
+    @Test
+    void processComputesRowsConcurrentlyAndKeepsInputOrder() throws Exception {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus-default
+                Berlin,Munich,bus-default
+                """);
+        var output = tempDir.resolve("results.csv");
+        var bothRowsStarted = new CountDownLatch(2);
+        when(tripCalculator.computeRounded(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            bothRowsStarted.countDown();
+            if (!bothRowsStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("rows ran sequentially");
+            }
+            return invocation.getArgument(0).equals("Hamburg") ? new BigDecimal("1.0") : new BigDecimal("2.0");
+        });
+
+        new BatchTripProcessor(tripCalculator, 2).process(input, output);
+
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "start,end,transportation-method,co2-kg,error",
+                "Hamburg,Berlin,bus-default,1.0,",
+                "Berlin,Munich,bus-default,2.0,");
+    }
+
+    @Test
+    void processRemovesTheJournalOfACompletedRun() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus-default
+                """);
+        var output = tempDir.resolve("results.csv");
+        when(tripCalculator.computeRounded(anyString(), anyString(), anyString())).thenReturn(new BigDecimal("7.8"));
+
+        processor.process(input, output);
+
+        assertThat(BatchJournal.pathFor(output)).doesNotExist();
+    }
+
+    @Test
+    void processResumesAnInterruptedRunFromItsJournal() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus-default
+                Berlin,Hamburg,bus-default
+                Hamburg,Munich,bus-default
+                Munich,Hamburg,bus-default
+                """);
+        var output = tempDir.resolve("results.csv");
+        var hamburg = new Coordinates(new BigDecimal("9.99"), new BigDecimal("53.55"));
+        var berlin = new Coordinates(new BigDecimal("13.40"), new BigDecimal("52.52"));
+        when(tripCalculator.distanceProfile()).thenReturn("driving-car");
+        when(tripCalculator.knownCoordinates("Hamburg")).thenReturn(Optional.of(hamburg));
+        when(tripCalculator.knownCoordinates("Berlin")).thenReturn(Optional.of(berlin));
+        when(tripCalculator.knownDistanceKm(hamburg, berlin)).thenReturn(Optional.of(new BigDecimal("289.1")));
+        when(tripCalculator.computeRounded("Hamburg", "Berlin", "bus-default")).thenReturn(new BigDecimal("7.8"));
+        when(tripCalculator.computeRounded("Berlin", "Hamburg", "bus-default"))
+                .thenThrow(new IllegalArgumentException("No route."));
+        when(tripCalculator.computeRounded("Hamburg", "Munich", "bus-default")).thenThrow(new IOException("quota exhausted"));
+        var interrupted = new BatchTripProcessor(tripCalculator, 2, 2);
+
+        assertThatThrownBy(() -> interrupted.process(input, output)).hasMessage("quota exhausted");
+        assertThat(BatchJournal.pathFor(output)).exists();
+
+        var resumed = mock(OpenRouteServiceTripCalculator.class);
+        when(resumed.distanceProfile()).thenReturn("driving-car");
+        when(resumed.computeRounded("Hamburg", "Munich", "bus-default")).thenReturn(new BigDecimal("16.7"));
+        when(resumed.computeRounded("Munich", "Hamburg", "bus-default")).thenReturn(new BigDecimal("16.8"));
+
+        var summary = new BatchTripProcessor(resumed, 2, 2).process(input, output, true);
+
+        assertThat(summary.trips()).isEqualTo(4);
+        assertThat(summary.failedTrips()).isEqualTo(1);
+        assertThat(summary.resumedTrips()).isEqualTo(2);
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "start,end,transportation-method,co2-kg,error",
+                "Hamburg,Berlin,bus-default,7.8,",
+                "Berlin,Hamburg,bus-default,,No route.",
+                "Hamburg,Munich,bus-default,16.7,",
+                "Munich,Hamburg,bus-default,16.8,");
+        assertThat(BatchJournal.pathFor(output)).doesNotExist();
+        verify(resumed).restoreCoordinates("Hamburg", hamburg);
+        verify(resumed).restoreCoordinates("Berlin", berlin);
+        verify(resumed).restoreDistanceKm(hamburg, berlin, "driving-car", new BigDecimal("289.1"));
+        verify(resumed, never()).computeRounded("Hamburg", "Berlin", "bus-default");
+        verify(resumed, never()).computeRounded("Berlin", "Hamburg", "bus-default");
+    }
+
+    @Test
+    void processAggregatesAllTripsOfAResumedRun() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                department,date,start,end,transportation-method
+                sales,2024-03-04,Hamburg,Berlin,bus-default
+                sales,2024-03-18,Berlin,Atlantis,bus-default
+                sales,2024-03-20,Hamburg,Munich,bus-default
+                hr,2024-04-02,Munich,Hamburg,bus-default
+                """);
+        var output = tempDir.resolve("results.csv");
+        when(tripCalculator.computeRounded("Hamburg", "Berlin", "bus-default")).thenReturn(new BigDecimal("7.8"));
+        when(tripCalculator.computeRounded("Berlin", "Atlantis", "bus-default"))
+                .thenThrow(new IllegalArgumentException("Could not find city Atlantis."));
+        when(tripCalculator.computeRounded("Hamburg", "Munich", "bus-default")).thenThrow(new IOException("quota exhausted"));
+        var interrupted = new BatchTripProcessor(tripCalculator, 2, 2);
+        assertThatThrownBy(() -> interrupted.process(input, output, false, new TripAggregator(List.of("department"))))
+                .hasMessage("quota exhausted");
+
+        var resumed = mock(OpenRouteServiceTripCalculator.class);
+        when(resumed.computeRounded("Hamburg", "Munich", "bus-default")).thenReturn(new BigDecimal("16.7"));
+        when(resumed.computeRounded("Munich", "Hamburg", "bus-default")).thenReturn(new BigDecimal("16.8"));
+        when(resumed.knownDistanceKm("Hamburg", "Berlin")).thenReturn(Optional.of(new BigDecimal("289.1")));
+        when(resumed.knownDistanceKm("Hamburg", "Munich")).thenReturn(Optional.of(new BigDecimal("775.4")));
+        when(resumed.knownDistanceKm("Munich", "Hamburg")).thenReturn(Optional.of(new BigDecimal("776")));
+        var aggregator = new TripAggregator(List.of("department", "month"));
+
+        new BatchTripProcessor(resumed, 2, 2).process(input, output, true, aggregator);
+
+        assertThat(aggregator.groups()).containsExactly(
+                new TripAggregator.Group(List.of("hr", "2024-04"), 1, 0, new BigDecimal("16.8"), new BigDecimal("776.000")),
+                new TripAggregator.Group(List.of("sales", "2024-03"), 2, 1, new BigDecimal("24.5"), new BigDecimal("1064.500")));
+    }
+
+    @Test
+    void processWithResumeStartsOverWithoutAJournal() throws IOException {
+        var input = Files.writeString(tempDir.resolve("trips.jsonl"), """
+                {"start":"Hamburg","end":"Berlin","transportation-method":"bus-default"}
+                """);
+        var output = Files.writeString(tempDir.resolve("results.jsonl"), "stale\n");
+        when(tripCalculator.computeRounded("Hamburg", "Berlin", "bus-default")).thenReturn(new BigDecimal("7.8"));
+
+        var summary = processor.process(input, output, true);
+
+        assertThat(summary.resumedTrips()).isZero();
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "{\"start\":\"Hamburg\",\"end\":\"Berlin\",\"transportation-method\":\"bus-default\",\"co2-kg\":7.8}");
+    }
+
+    @Test
+    void parseLineHandlesQuotedFields() {
+        assertThat(CsvTripFile.parseLine("a,\"b,c\",\"say \"\"hi\"\"\",")).containsExactly("a", "b,c", "say \"hi\"", "");
+    }
+}
@@ -0,0 +1,91 @@
+package com.sap_coding_challenge.co2.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TripAggregatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void groupsTripsByColumnsAndDerivesTheMonthFromTheDate() {
+        var aggregator = new TripAggregator(List.of("department", "month", "transportation-method"));
+
+        aggregator.add(row(1, "sales", "2024-03-04", "bus-default"), new BigDecimal("7.8"),
+                Optional.of(new BigDecimal("289.1")));
+        aggregator.add(row(2, "sales", "2024-03-28", "bus-default"), new BigDecimal("16.7"),
+                Optional.of(new BigDecimal("775.35")));
+        aggregator.add(row(3, "sales", "2024-04-01", "bus-default"), new BigDecimal("1.2"), Optional.empty());
+        aggregator.addFailure(row(4, " hr ", "2024-03-04", "rocket"));
+
+        assertThat(aggregator.groups()).containsExactly(
+                new TripAggregator.Group(List.of("hr", "2024-03", "rocket"), 0, 1,
+                        new BigDecimal("0.0"), new BigDecimal("0.000")),
+                new TripAggregator.Group(List.of("sales", "2024-03", "bus-default"), 2, 0,
+                        new BigDecimal("24.5"), new BigDecimal("1064.450")),
+                new TripAggregator.Group(List.of("sales", "2024-04", "bus-default"), 1, 0,
+                        new BigDecimal("1.2"), new BigDecimal("0.000")));
+    }
+
+    @Test
+    void sumsTripsAddedConcurrently() {
+        var aggregator = new TripAggregator(List.of());
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 10_000; i++) {
+                var number = i;
+                executor.submit(() -> aggregator.add(row(number, "sales", "2024-03-04", "bus-default"),
+                        new BigDecimal("0.1"), Optional.of(new BigDecimal("1.001"))));
+            }
+        }
+
+        assertThat(aggregator.groups()).containsExactly(new TripAggregator.Group(
+                List.of(), 10_000, 0, new BigDecimal("1000.0"), new BigDecimal("10010.000")));
+    }
+
+    @Test
+    void writesCsvAndJsonLinesReports() throws IOException {
+        var aggregator = new TripAggregator(List.of("department"));
+        aggregator.add(row(1, "sales, north", "2024-03-04", "bus-default"), new BigDecimal("7.8"),
+                Optional.of(new BigDecimal("289.1")));
+        var csv = tempDir.resolve("report.csv");
+        var jsonLines = tempDir.resolve("report.jsonl");
+
+        aggregator.write(csv);
+        aggregator.write(jsonLines);
+
+        assertThat(Files.readAllLines(csv)).containsExactly(
+                "department,trips,failed-trips,co2-kg,distance-km",
+                "\"sales, north\",1,0,7.8,289.100");
+        assertThat(Files.readAllLines(jsonLines)).containsExactly(
+                "{\"department\":\"sales, north\",\"trips\":1,\"failed-trips\":0,\"co2-kg\":7.8,\"distance-km\":289.100}");
+    }
+
+    @Test
+    void noneIgnoresTripsAndReservedColumnsCannotBeGroupedBy() {
+        TripAggregator.NONE.add(row(1, "sales", "2024-03-04", "bus-default"), BigDecimal.ONE, Optional.empty());
+
+        assertThat(TripAggregator.NONE.groups()).isEmpty();
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new TripAggregator(List.of("department", "co2-kg")))
+                .withMessage("Cannot group by 'co2-kg'.");
+    }
+
+    private static TripRow row(long number, String department, String date, String transportMethod) {
+        return new TripRow(number, Map.of("department", department, "date", date,
+                TripRow.START, "Hamburg", TripRow.END, "Berlin", TripRow.TRANSPORTATION_METHOD, transportMethod));
+    }
+}
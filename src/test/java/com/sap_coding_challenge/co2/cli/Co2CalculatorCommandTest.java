@@ -1,13 +1,33 @@
 package com.sap_coding_challenge.co2.cli;
 
+import com.sap_coding_challenge.co2.application.HaversineDistanceProvider;
 import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.client.GazetteerIndex;
+import com.sap_coding_challenge.co2.client.GeocodeCache;
+import com.sap_coding_challenge.co2.client.HttpClientSettings;
+import com.sap_coding_challenge.co2.client.OpenRouteServiceClient;
+import com.sap_coding_challenge.co2.client.OrsClientSettings;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import com.sap_coding_challenge.co2.domain.EmissionFactors;
+import com.sap_coding_challenge.co2.metrics.Metrics;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class Co2CalculatorCommandTest {
@@ -57,4 +77,253 @@ class Co2CalculatorCommandTest {
         verify(tripCalculator).compute(HAMBURG, BERLIN, TRANSPORTATION_METHOD);
         verifyNoMoreInteractions(tripCalculator);
     }
+
+    @Test
+    void callRunsBatchModeWhenInputAndOutputAreGiven(@TempDir Path tempDir) throws Exception {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus
+                """);
+        var output = tempDir.resolve("results.csv");
+        when(tripCalculator.computeRounded(HAMBURG, BERLIN, TRANSPORTATION_METHOD)).thenReturn(new BigDecimal("12.3"));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--input", input.toString(), "--output", output.toString());
+
+        assertThat(exitCode).isZero();
+        assertThat(Files.readAllLines(output)).containsExactly(
+                "start,end,transportation-method,co2-kg,error",
+                "Hamburg,Berlin,bus,12.3,");
+    }
+
+    @Test
+    void executeWritesBatchMetricsWhenRequested(@TempDir Path tempDir) throws Exception {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                start,end,transportation-method
+                Hamburg,Berlin,bus
+                Hamburg,Atlantis,bus
+                """);
+        var metrics = tempDir.resolve("metrics.json");
+        when(tripCalculator.computeRounded(HAMBURG, BERLIN, TRANSPORTATION_METHOD)).thenReturn(new BigDecimal("12.3"));
+        when(tripCalculator.computeRounded(HAMBURG, "Atlantis", TRANSPORTATION_METHOD))
+                .thenThrow(new IllegalArgumentException("Could not find city Atlantis."));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator)).execute(
+                "--input", input.toString(), "--output", tempDir.resolve("results.csv").toString(),
+                "--metrics", metrics.toString());
+
+        assertThat(exitCode).isZero();
+        assertThat(Files.readString(metrics))
+                .contains("\"co2_batch_trips\" : 2.0")
+                .contains("\"co2_batch_failed_trips\" : 1.0")
+                .contains("\"co2_batch_trips_per_second\"");
+    }
+
+    @Test
+    void executeComputesItineraryThroughViaStops() throws IOException {
+        var stops = List.of(HAMBURG, BERLIN, "Munich", "Cologne", HAMBURG);
+        when(tripCalculator.computeItinerary(stops, TRANSPORTATION_METHOD)).thenReturn(List.of(
+                new BigDecimal("7.8"), new BigDecimal("15.8"), new BigDecimal("15.4"), new BigDecimal("11.6")));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator)).execute(
+                "--start", HAMBURG, "--via", BERLIN, "--via", "Munich,Cologne", "--end", HAMBURG,
+                "--transportation-method", TRANSPORTATION_METHOD);
+
+        assertThat(exitCode).isZero();
+        verify(tripCalculator).computeItinerary(stops, TRANSPORTATION_METHOD);
+        verify(tripCalculator, never()).compute(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void executeComparesAllTransportMethods() throws IOException {
+        var methods = List.of("bus-default", "train-default");
+        when(tripCalculator.transportMethodKeys()).thenReturn(methods);
+        when(tripCalculator.compareTransportMethods(List.of(HAMBURG, BERLIN), methods)).thenReturn(
+                new LinkedHashMap<>(Map.of("train-default", new BigDecimal("1.7"))));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator)).execute(
+                "--start", HAMBURG, "--end", BERLIN, "--transportation-method=all");
+
+        assertThat(exitCode).isZero();
+        verify(tripCalculator).compareTransportMethods(List.of(HAMBURG, BERLIN), methods);
+        verify(tripCalculator, never()).compute(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void executeComparesListedTransportMethods() throws IOException {
+        when(tripCalculator.compareTransportMethods(any(), any())).thenReturn(new LinkedHashMap<>());
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator)).execute(
+                "--start", HAMBURG, "--end", BERLIN, "--transportation-method", "bus-default, train-default");
+
+        assertThat(exitCode).isZero();
+        verify(tripCalculator).compareTransportMethods(List.of(HAMBURG, BERLIN), List.of("bus-default", "train-default"));
+    }
+
+    @Test
+    void executeWritesReportGroupedByColumns(@TempDir Path tempDir) throws Exception {
+        var input = Files.writeString(tempDir.resolve("trips.csv"), """
+                department,start,end,transportation-method
+                sales,Hamburg,Berlin,bus
+                sales,Hamburg,Berlin,bus
+                """);
+        var report = tempDir.resolve("report.csv");
+        when(tripCalculator.computeRounded(HAMBURG, BERLIN, TRANSPORTATION_METHOD)).thenReturn(new BigDecimal("12.3"));
+        when(tripCalculator.knownDistanceKm(HAMBURG, BERLIN)).thenReturn(Optional.of(new BigDecimal("289")));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator)).execute(
+                "--input", input.toString(), "--output", tempDir.resolve("results.csv").toString(),
+                "--report", report.toString(), "--group-by", "department,transportation-method");
+
+        assertThat(exitCode).isZero();
+        assertThat(Files.readAllLines(report)).containsExactly(
+                "department,transportation-method,trips,failed-trips,co2-kg,distance-km",
+                "sales,bus,2,0,24.6,578.000");
+    }
+
+    @Test
+    void executeRejectsMissingSingleTripOptions() {
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--transportation-method", TRANSPORTATION_METHOD);
+
+        assertThat(exitCode).isEqualTo(CommandLine.ExitCode.USAGE);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void executeRejectsMixingBatchAndSingleTripOptions(@TempDir Path tempDir) {
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--input", tempDir.resolve("in.csv").toString(),
+                        "--output", tempDir.resolve("out.csv").toString(),
+                        "--start", HAMBURG);
+
+        assertThat(exitCode).isEqualTo(CommandLine.ExitCode.USAGE);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void executeRejectsResumeWithoutBatchFiles() {
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", TRANSPORTATION_METHOD,
+                        "--resume");
+
+        assertThat(exitCode).isEqualTo(CommandLine.ExitCode.USAGE);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void executeUsesHaversineDistancesWhenRequested() throws IOException {
+        var offlineCalculator = mock(OpenRouteServiceTripCalculator.class);
+        when(tripCalculator.withDistanceProvider(any(HaversineDistanceProvider.class))).thenReturn(offlineCalculator);
+        when(offlineCalculator.compute(HAMBURG, BERLIN, TRANSPORTATION_METHOD)).thenReturn(new BigDecimal("12.34"));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", TRANSPORTATION_METHOD,
+                        "--distance-mode", "haversine");
+
+        assertThat(exitCode).isZero();
+        verify(offlineCalculator).compute(HAMBURG, BERLIN, TRANSPORTATION_METHOD);
+        verify(tripCalculator, never()).compute(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void executeRejectsUnknownDistanceMode() {
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", TRANSPORTATION_METHOD,
+                        "--distance-mode", "teleport");
+
+        assertThat(exitCode).isEqualTo(CommandLine.ExitCode.USAGE);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void executeRunsHaversineModeWithoutTokenWhenAllCitiesAreCached() throws IOException {
+        var geocodeCache = mock(GeocodeCache.class);
+        when(geocodeCache.get(HAMBURG)).thenReturn(Optional.of(
+                new Coordinates(new BigDecimal("9.99302"), new BigDecimal("53.55073"))));
+        when(geocodeCache.get(BERLIN)).thenReturn(Optional.of(
+                new Coordinates(new BigDecimal("13.41053"), new BigDecimal("52.52437"))));
+        var tokenless = new OpenRouteServiceTripCalculator(
+                new OpenRouteServiceClient(null, OrsClientSettings.DEFAULTS, geocodeCache, Metrics.DISABLED));
+
+        int haversineExit = new CommandLine(new Co2CalculatorCommand(tokenless))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", "diesel-car-medium",
+                        "--distance-mode", "haversine");
+        int orsExit = new CommandLine(new Co2CalculatorCommand(tokenless))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", "diesel-car-medium");
+
+        assertThat(haversineExit).isZero();
+        assertThat(orsExit).isEqualTo(CommandLine.ExitCode.USAGE);
+    }
+
+    @Test
+    void httpOptionsOverrideOnlyTheGivenSettings() {
+        var command = new Co2CalculatorCommand(tripCalculator);
+        new CommandLine(command).parseArgs("--http-max-requests", "8", "--http-read-timeout-ms", "5000", "--no-http2");
+
+        var settings = command.httpOptions.applyTo(HttpClientSettings.DEFAULTS);
+
+        assertThat(settings).isEqualTo(new HttpClientSettings(HttpClientSettings.DEFAULTS.maxIdleConnections(),
+                HttpClientSettings.DEFAULTS.keepAlive(), 8, HttpClientSettings.DEFAULTS.maxRequestsPerHost(),
+                HttpClientSettings.DEFAULTS.connectTimeout(), Duration.ofSeconds(5), false));
+        assertThat(new HttpOptions().applyTo(HttpClientSettings.DEFAULTS)).isEqualTo(HttpClientSettings.DEFAULTS);
+    }
+
+    @Test
+    void executeAppliesEmissionFactorsFile(@TempDir Path tempDir) throws IOException {
+        var factors = Files.writeString(tempDir.resolve("factors.properties"), "acme-van = 250\n");
+        var fleetCalculator = mock(OpenRouteServiceTripCalculator.class);
+        when(tripCalculator.withEmissionFactors(any(EmissionFactors.class))).thenReturn(fleetCalculator);
+        when(fleetCalculator.compute(HAMBURG, BERLIN, "acme-van")).thenReturn(new BigDecimal("25"));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", "acme-van",
+                        "--emission-factors", factors.toString());
+
+        assertThat(exitCode).isZero();
+        verify(fleetCalculator).compute(HAMBURG, BERLIN, "acme-van");
+    }
+
+    @Test
+    void executeRejectsMissingEmissionFactorsFile(@TempDir Path tempDir) {
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("--start", HAMBURG, "--end", BERLIN, "--transportation-method", TRANSPORTATION_METHOD,
+                        "--emission-factors", tempDir.resolve("missing.properties").toString());
+
+        assertThat(exitCode).isEqualTo(CommandLine.ExitCode.USAGE);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void importGazetteerSubcommandBuildsTheIndex(@TempDir Path tempDir) throws IOException {
+        var dump = Files.writeString(tempDir.resolve("cities500.txt"),
+                "2911298\tHamburg\tHamburg\t\t53.55073\t9.99302\tP\tPPLA\tDE\t\t04\t00\t\t\t1739117\n");
+        var index = tempDir.resolve("gazetteer.idx");
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("import-gazetteer", dump.toString(), "--output", index.toString());
+
+        assertThat(exitCode).isZero();
+        assertThat(GazetteerIndex.open(index).get("hamburg")).isPresent();
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void buildDistanceSnapshotWritesTheListedCities(@TempDir Path tempDir) throws IOException {
+        var cities = Files.writeString(tempDir.resolve("offices.txt"), """
+                # offices
+                Hamburg
+
+                Berlin
+                """);
+        var snapshot = tempDir.resolve("distances.snapshot");
+        when(tripCalculator.writeDistanceSnapshot(List.of(HAMBURG, BERLIN), snapshot))
+                .thenReturn(List.of("hamburg", "berlin"));
+
+        int exitCode = new CommandLine(new Co2CalculatorCommand(tripCalculator))
+                .execute("build-distance-snapshot", cities.toString(), "--output", snapshot.toString());
+
+        assertThat(exitCode).isZero();
+        verify(tripCalculator).writeDistanceSnapshot(List.of(HAMBURG, BERLIN), snapshot);
+    }
 }
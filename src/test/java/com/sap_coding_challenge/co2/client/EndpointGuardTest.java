@@ -0,0 +1,110 @@
+package com.sap_coding_challenge.co2.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+class EndpointGuardTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final ResilienceSettings SETTINGS = new ResilienceSettings(
+            4, Duration.ofSeconds(1), Duration.ofSeconds(10), 0.5, 3, Duration.ofSeconds(30));
+    private final AtomicLong now = new AtomicLong(1_000 * ONE_SECOND);
+
+    @Test
+    void retryDelayGrowsExponentiallyWithFullJitter() {
+        var guard = new EndpointGuard("matrix", SETTINGS, now::get, () -> 0.5);
+
+        assertThat(guard.retryDelayNanos(1, 0)).isEqualTo(ONE_SECOND / 2);
+        assertThat(guard.retryDelayNanos(2, 0)).isEqualTo(ONE_SECOND);
+        assertThat(guard.retryDelayNanos(3, 0)).isEqualTo(2 * ONE_SECOND);
+        assertThat(guard.retryDelayNanos(4, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void retryDelayIsCappedAtMaxDelay() {
+        var settings = new ResilienceSettings(20, Duration.ofSeconds(1), Duration.ofSeconds(10), 1, 0, Duration.ZERO);
+        var guard = new EndpointGuard("matrix", settings, now::get, () -> 0.99);
+
+        assertThat(guard.retryDelayNanos(10, 0)).isLessThan(10 * ONE_SECOND).isGreaterThan(9 * ONE_SECOND);
+    }
+
+    @Test
+    void retryDelayHonoursRetryAfterUpToMaxDelay() {
+        var guard = new EndpointGuard("geocode", SETTINGS, now::get, () -> 0.0);
+
+        assertThat(guard.retryDelayNanos(1, 5 * ONE_SECOND)).isEqualTo(5 * ONE_SECOND);
+        assertThat(guard.retryDelayNanos(1, 11 * ONE_SECOND)).isEqualTo(-1);
+    }
+
+    @Test
+    void retriesStopWhenTheBudgetIsSpentAndResumeWithNewCalls() {
+        var guard = new EndpointGuard("geocode", SETTINGS, now::get, () -> 0.0);
+
+        for (int i = 0; i < EndpointGuard.RETRY_RESERVE; i++) {
+            assertThat(guard.retryDelayNanos(1, 0)).isZero();
+        }
+        assertThat(guard.retryDelayNanos(1, 0)).isEqualTo(-1);
+
+        guard.onCall();
+        guard.onCall();
+        assertThat(guard.retryDelayNanos(1, 0)).isZero();
+        assertThat(guard.retryDelayNanos(1, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailuresAndClosesAfterASuccessfulTrial() throws CircuitOpenException {
+        var guard = new EndpointGuard("matrix", SETTINGS, now::get, () -> 0.0);
+        guard.onFailure();
+        guard.onFailure();
+        guard.onSuccess();
+        guard.onFailure();
+        guard.onFailure();
+        guard.acquire();
+        guard.onFailure();
+
+        assertThatThrownBy(guard::acquire)
+                .isInstanceOf(CircuitOpenException.class)
+                .hasMessage("ORS matrix API unavailable after 3 consecutive failures; next attempt in 30s.");
+
+        now.addAndGet(30 * ONE_SECOND);
+        guard.acquire();
+        assertThatThrownBy(guard::acquire).isInstanceOf(CircuitOpenException.class);
+
+        guard.onSuccess();
+        assertThatNoException().isThrownBy(guard::acquire);
+    }
+
+    @Test
+    void failedTrialKeepsTheCircuitOpen() throws CircuitOpenException {
+        var guard = new EndpointGuard("matrix", SETTINGS, now::get, () -> 0.0);
+        for (int i = 0; i < 3; i++) {
+            guard.onFailure();
+        }
+        now.addAndGet(30 * ONE_SECOND);
+        guard.acquire();
+        guard.onFailure();
+
+        now.addAndGet(29 * ONE_SECOND);
+        assertThatThrownBy(guard::acquire).isInstanceOf(CircuitOpenException.class);
+        now.addAndGet(ONE_SECOND);
+        assertThatNoException().isThrownBy(guard::acquire);
+    }
+
+    @Test
+    void disabledBreakerNeverOpens() {
+        var guard = new EndpointGuard("matrix", ResilienceSettings.NONE, now::get, () -> 0.0);
+        for (int i = 0; i < 100; i++) {
+            guard.onFailure();
+        }
+
+        assertThatNoException().isThrownBy(guard::acquire);
+        assertThat(guard.retryDelayNanos(1, 0)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,162 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointSchedulerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-10-17T23:00:00Z"));
+
+    @Test
+    void withoutLimitsRequestsAreGrantedImmediately() {
+        var scheduler = new EndpointScheduler("geocode", 0, 0, false, Metrics.DISABLED);
+
+        assertThat(scheduler.reserve(1)).isCompleted();
+    }
+
+    @Test
+    void pacedRequestsAreReleasedByValueThenInArrivalOrder() throws Exception {
+        var scheduler = new EndpointScheduler("matrix", 1200, 0, false, Metrics.DISABLED);
+        var released = Collections.synchronizedList(new ArrayList<String>());
+
+        assertThat(scheduler.reserve(1)).isCompleted();
+        var single = scheduler.reserve(1).thenRun(() -> released.add("single"));
+        var chunk = scheduler.reserve(2500).thenRun(() -> released.add("chunk"));
+        var small = scheduler.reserve(12).thenRun(() -> released.add("small"));
+        var secondChunk = scheduler.reserve(2500).thenRun(() -> released.add("second chunk"));
+        CompletableFuture.allOf(single, chunk, small, secondChunk).get(5, TimeUnit.SECONDS);
+
+        assertThat(released).containsExactly("chunk", "second chunk", "small", "single");
+    }
+
+    @Test
+    void usedUpDailyBudgetFailsRequestsUntilMidnightUtc() {
+        var scheduler = new EndpointScheduler("matrix", 0, 2, false, Metrics.DISABLED, clock);
+
+        assertThat(scheduler.reserve(1)).isCompleted();
+        assertThat(scheduler.reserve(1)).isCompleted();
+        assertThatThrownBy(() -> scheduler.reserve(1).get())
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(QuotaExhaustedException.class)
+                .hasMessage("ORS matrix quota of 2 requests per day is used up until 2026-10-18T00:00:00Z.");
+
+        clock.advance(Duration.ofHours(1));
+
+        assertThat(scheduler.reserve(1)).isCompleted();
+        assertThat(scheduler.remaining()).isEqualTo(1);
+    }
+
+    @Test
+    void waitForResetKeepsRequestsQueuedForTheNextDay() {
+        var scheduler = new EndpointScheduler("geocode", 0, 1, true, Metrics.DISABLED, clock);
+
+        assertThat(scheduler.reserve(1)).isCompleted();
+        var spilled = scheduler.reserve(1);
+        assertThat(spilled).isNotDone();
+
+        clock.advance(Duration.ofHours(1));
+        var next = scheduler.reserve(1);
+
+        assertThat(spilled).isCompleted();
+        assertThat(next).isNotDone();
+    }
+
+    @Test
+    void cancelledRequestsGiveUpTheirPlace() {
+        var scheduler = new EndpointScheduler("geocode", 0, 1, true, Metrics.DISABLED, clock);
+        scheduler.reserve(1);
+        var cancelled = scheduler.reserve(1);
+        var waiting = scheduler.reserve(1);
+
+        cancelled.cancel(false);
+        clock.advance(Duration.ofHours(1));
+        scheduler.reserve(1);
+
+        assertThat(waiting).isCompleted();
+    }
+
+    @Test
+    void budgetReportedByOrsLowersTheLocalCountAndMovesTheReset() {
+        var scheduler = new EndpointScheduler("matrix", 0, 500, false, Metrics.DISABLED, clock);
+        var reset = Instant.parse("2026-10-18T06:00:00Z");
+
+        scheduler.onResponse(response("0", String.valueOf(reset.getEpochSecond())));
+
+        assertThat(scheduler.remaining()).isZero();
+        assertThatThrownBy(() -> scheduler.reserve(1).get())
+                .cause()
+                .isInstanceOf(QuotaExhaustedException.class)
+                .satisfies(failure -> assertThat(((QuotaExhaustedException) failure).resetAt()).isEqualTo(reset));
+        scheduler.onResponse(response("450", "not a number"));
+        assertThat(scheduler.remaining()).isZero();
+    }
+
+    @Test
+    void reportsRemainingBudgetAndWaitingRequests() {
+        var metrics = new Metrics();
+        var scheduler = new EndpointScheduler("geocode", 0, 1, true, metrics, clock);
+
+        scheduler.reserve(1);
+        scheduler.reserve(1);
+
+        assertThat(metrics.toPrometheus())
+                .contains("co2_ors_quota_remaining{endpoint=\"geocode\"} 0\n")
+                .contains("co2_ors_quota_waiting{endpoint=\"geocode\"} 1\n");
+    }
+
+    private static Response response(String remaining, String reset) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/v2/matrix/driving-car").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header(EndpointScheduler.REMAINING_HEADER, remaining)
+                .header(EndpointScheduler.RESET_HEADER, reset)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileGeocodeCacheTest {
+
+    private static final Coordinates HAMBURG = new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341"));
+    private static final Coordinates BERLIN = new Coordinates(new BigDecimal("13.404954"), new BigDecimal("52.520008"));
+    private static final Coordinates MUNICH = new Coordinates(new BigDecimal("11.5755"), new BigDecimal("48.1374"));
+
+    @TempDir
+    Path tempDir;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void getReturnsEntriesByNormalizedNameAfterReopening() throws IOException {
+        var path = tempDir.resolve("cache/geocode.tsv");
+        try (var cache = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock)) {
+            cache.put("Hamburg", HAMBURG);
+            cache.put("  Frankfurt   am Main ", BERLIN);
+        }
+
+        try (var cache = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock)) {
+            assertThat(cache.get("hamburg ")).contains(HAMBURG);
+            assertThat(cache.get("FRANKFURT AM MAIN")).contains(BERLIN);
+            assertThat(cache.get("Berlin")).isEmpty();
+        }
+    }
+
+    @Test
+    void getIgnoresExpiredEntries() throws IOException {
+        try (var cache = FileGeocodeCache.open(tempDir.resolve("geocode.tsv"), Duration.ofHours(1), 10, clock)) {
+            cache.put("Hamburg", HAMBURG);
+            clock.advance(Duration.ofMinutes(61));
+
+            assertThat(cache.get("Hamburg")).isEmpty();
+        }
+    }
+
+    @Test
+    void putReplacesPreviousEntryOfTheSameCity() throws IOException {
+        try (var cache = FileGeocodeCache.open(tempDir.resolve("geocode.tsv"), Duration.ofDays(1), 10, clock)) {
+            cache.put("Hamburg", BERLIN);
+            cache.put("Hamburg", HAMBURG);
+
+            assertThat(cache.get("Hamburg")).contains(HAMBURG);
+        }
+    }
+
+    @Test
+    void putEvictsOldestEntriesWhenFull() throws IOException {
+        var path = tempDir.resolve("geocode.tsv");
+        try (var cache = FileGeocodeCache.open(path, Duration.ofDays(1), 2, clock)) {
+            cache.put("Hamburg", HAMBURG);
+            clock.advance(Duration.ofSeconds(1));
+            cache.put("Berlin", BERLIN);
+            clock.advance(Duration.ofSeconds(1));
+            cache.put("Munich", MUNICH);
+
+            assertThat(cache.get("Hamburg")).isEmpty();
+            assertThat(cache.get("Berlin")).contains(BERLIN);
+            assertThat(cache.get("Munich")).contains(MUNICH);
+        }
+        assertThat(Files.readAllLines(path)).hasSize(2);
+    }
+
+    @Test
+    void instancesSharingAFileSeeEachOthersEntries() throws IOException {
+        var path = tempDir.resolve("geocode.tsv");
+        try (var first = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock);
+             var second = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock)) {
+            first.put("Hamburg", HAMBURG);
+            second.put("Berlin", BERLIN);
+            first.put("Munich", MUNICH);
+
+            assertThat(second.get("Hamburg")).contains(HAMBURG);
+            assertThat(second.get("Munich")).contains(MUNICH);
+            assertThat(first.get("Berlin")).contains(BERLIN);
+        }
+        assertThat(Files.readAllLines(path)).hasSize(3);
+    }
+
+    @Test
+    void putKeepsEntriesWhenAnotherInstanceCompactedTheFile() throws IOException {
+        var path = tempDir.resolve("geocode.tsv");
+        try (var compacting = FileGeocodeCache.open(path, Duration.ofDays(1), 2, clock);
+             var other = FileGeocodeCache.open(path, Duration.ofDays(1), 2, clock)) {
+            compacting.put("Hamburg", HAMBURG);
+            clock.advance(Duration.ofSeconds(1));
+            compacting.put("Berlin", BERLIN);
+            clock.advance(Duration.ofSeconds(1));
+            compacting.put("Munich", MUNICH);
+
+            clock.advance(Duration.ofSeconds(1));
+            other.put("Hamburg", HAMBURG);
+
+            assertThat(other.get("Munich")).contains(MUNICH);
+        }
+        try (var reopened = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock)) {
+            assertThat(reopened.get("Hamburg")).contains(HAMBURG);
+            assertThat(reopened.get("Munich")).contains(MUNICH);
+        }
+    }
+
+    @Test
+    void concurrentWritersSharingAFileDoNotOverwriteEachOther() throws Exception {
+        var path = tempDir.resolve("geocode.tsv");
+        try (var first = FileGeocodeCache.open(path, Duration.ofDays(1), 1000, clock);
+             var second = FileGeocodeCache.open(path, Duration.ofDays(1), 1000, clock);
+             var executor = Executors.newFixedThreadPool(2)) {
+            var writes = List.of(first, second).stream()
+                    .map(cache -> executor.submit(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            cache.put((cache == first ? "first " : "second ") + i, HAMBURG);
+                        }
+                        return null;
+                    }))
+                    .toList();
+            for (var write : writes) {
+                write.get();
+            }
+        }
+        try (var reopened = FileGeocodeCache.open(path, Duration.ofDays(1), 1000, clock)) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(reopened.get("first " + i)).contains(HAMBURG);
+                assertThat(reopened.get("second " + i)).contains(HAMBURG);
+            }
+        }
+    }
+
+    @Test
+    void openSkipsCorruptLines() throws IOException {
+        var path = Files.writeString(tempDir.resolve("geocode.tsv"),
+                "garbage\n" + clock.millis() + "\thamburg\t10.000654\t53.550341\n" + "1\tberlin\tx\ty\n");
+
+        try (var cache = FileGeocodeCache.open(path, Duration.ofDays(1), 10, clock)) {
+            assertThat(cache.get("Hamburg")).contains(HAMBURG);
+            assertThat(cache.get("Berlin")).isEmpty();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class GazetteerIndexTest {
+
+    private static final Coordinates HAMBURG = new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341"));
+    private static final Coordinates MUNICH = new Coordinates(new BigDecimal("11.575500"), new BigDecimal("48.137400"));
+    private static final Coordinates ZURICH = new Coordinates(new BigDecimal("8.550000"), new BigDecimal("47.366670"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void getFindsEntriesByNormalizedName() throws IOException {
+        var path = tempDir.resolve("index/gazetteer.idx");
+        var written = GazetteerIndex.write(List.of(
+                new GazetteerIndex.Entry("Hamburg", HAMBURG),
+                new GazetteerIndex.Entry("München", MUNICH),
+                new GazetteerIndex.Entry("Zürich", ZURICH),
+                new GazetteerIndex.Entry("HAMBURG", MUNICH)), path);
+
+        var index = GazetteerIndex.open(path);
+
+        assertThat(written).isEqualTo(3);
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.get(" hamburg")).contains(HAMBURG);
+        assertThat(index.get("MÜNCHEN")).contains(MUNICH);
+        assertThat(index.get("zürich")).contains(ZURICH);
+        assertThat(index.get("Ham")).isEmpty();
+        assertThat(index.get("Hamburger")).isEmpty();
+        assertThat(index.get("Berlin")).isEmpty();
+    }
+
+    @Test
+    void putDoesNotChangeTheIndex() throws IOException {
+        var path = tempDir.resolve("gazetteer.idx");
+        GazetteerIndex.write(List.of(), path);
+        var index = GazetteerIndex.open(path);
+
+        index.put("Hamburg", HAMBURG);
+
+        assertThat(index.get("Hamburg")).isEmpty();
+    }
+
+    @Test
+    void openRejectsFilesThatAreNoIndex() throws IOException {
+        var path = Files.writeString(tempDir.resolve("cities.txt"), "Hamburg\t10.0\t53.5\n");
+
+        assertThatIOException()
+                .isThrownBy(() -> GazetteerIndex.open(path))
+                .withMessage(path + " is not a gazetteer index.");
+    }
+
+    @Test
+    void tieredCacheOnlyAsksTheSecondCacheOnMisses() throws IOException {
+        var path = tempDir.resolve("gazetteer.idx");
+        GazetteerIndex.write(List.of(new GazetteerIndex.Entry("Hamburg", HAMBURG)), path);
+        try (var fileCache = FileGeocodeCache.open(tempDir.resolve("geocode.tsv"),
+                FileGeocodeCache.DEFAULT_TTL, 10)) {
+            var cache = GeocodeCache.tiered(GazetteerIndex.open(path), fileCache);
+
+            cache.put("Munich", MUNICH);
+
+            assertThat(cache.get("Hamburg")).contains(HAMBURG);
+            assertThat(cache.get("Munich")).contains(MUNICH);
+            assertThat(fileCache.get("Hamburg")).isEmpty();
+        }
+    }
+}
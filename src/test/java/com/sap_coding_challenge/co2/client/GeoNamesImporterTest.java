@@ -0,0 +1,69 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+class GeoNamesImporterTest {
+
+    // geonameid, name, asciiname, alternatenames, latitude, longitude, feature class, feature code, country code,
+    // cc2, admin1-4, population, elevation, dem, timezone, modification date
+    private static final String DUMP = String.join("\n",
+            "2911298\tHamburg\tHamburg\tHamborg,Hambourg\t53.55073\t9.99302\tP\tPPLA\tDE\t\t04\t00\t\t\t1739117\t\t8\tEurope/Berlin\t2023-01-01",
+            "2867714\tMünchen\tMuenchen\tMunich,Monaco di Baviera\t48.13743\t11.57549\tP\tPPLA\tDE\t\t02\t091\t\t\t1260391\t\t524\tEurope/Berlin\t2023-01-01",
+            "2867713\tMünchen\tMuenchen\t\t50.0\t12.0\tP\tPPL\tDE\t\t\t\t\t\t120\t\t\tEurope/Berlin\t2023-01-01",
+            "2911297\tHamburg Airport\tHamburg Airport\t\t53.63\t9.99\tS\tAIRP\tDE\t\t\t\t\t\t0\t\t\tEurope/Berlin\t2023-01-01",
+            "");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importDumpIndexesPopulatedPlacesPreferringTheLargest() throws IOException {
+        var dump = Files.writeString(tempDir.resolve("cities500.txt"), DUMP);
+        var indexPath = tempDir.resolve("gazetteer.idx");
+
+        var names = GeoNamesImporter.importDump(dump, indexPath, false);
+
+        var index = GazetteerIndex.open(indexPath);
+        assertThat(names).isEqualTo(3);
+        assertThat(index.get("Hamburg")).contains(coordinates("9.99302", "53.55073"));
+        assertThat(index.get("münchen")).contains(coordinates("11.57549", "48.13743"));
+        assertThat(index.get("Muenchen")).contains(coordinates("11.57549", "48.13743"));
+        assertThat(index.get("Hamburg Airport")).isEmpty();
+        assertThat(index.get("Munich")).isEmpty();
+    }
+
+    @Test
+    void importDumpIndexesAlternateNamesOnRequest() throws IOException {
+        var dump = Files.writeString(tempDir.resolve("cities500.txt"), DUMP);
+        var indexPath = tempDir.resolve("gazetteer.idx");
+
+        GeoNamesImporter.importDump(dump, indexPath, true);
+
+        var index = GazetteerIndex.open(indexPath);
+        assertThat(index.get("munich")).contains(coordinates("11.57549", "48.13743"));
+        assertThat(index.get("Monaco di  Baviera")).contains(coordinates("11.57549", "48.13743"));
+    }
+
+    @Test
+    void importDumpRejectsMalformedRecords() throws IOException {
+        var dump = Files.writeString(tempDir.resolve("cities500.txt"), "1\tHamburg\tHamburg\t\tnorth\t9.99\tP\n");
+
+        assertThatIOException()
+                .isThrownBy(() -> GeoNamesImporter.importDump(dump, tempDir.resolve("gazetteer.idx"), false))
+                .withMessage("Malformed GeoNames record on line 1 of " + dump + ".");
+    }
+
+    private static Coordinates coordinates(String longitude, String latitude) {
+        return new Coordinates(new BigDecimal(longitude).setScale(6), new BigDecimal(latitude).setScale(6));
+    }
+}
@@ -0,0 +1,63 @@
+package com.sap_coding_challenge.co2.client;
+
+import okhttp3.Protocol;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class HttpClientSettingsTest {
+
+    @Test
+    void fromEnvironmentFallsBackToDefaults() {
+        assertThat(HttpClientSettings.fromEnvironment(Map.of())).isEqualTo(HttpClientSettings.DEFAULTS);
+    }
+
+    @Test
+    void fromEnvironmentReadsOverrides() {
+        var settings = HttpClientSettings.fromEnvironment(Map.of(
+                "ORS_HTTP_MAX_IDLE_CONNECTIONS", "4",
+                "ORS_HTTP_KEEP_ALIVE_SECONDS", "60",
+                "ORS_HTTP_MAX_REQUESTS", "32",
+                "ORS_HTTP_MAX_REQUESTS_PER_HOST", " 8 ",
+                "ORS_HTTP_CONNECT_TIMEOUT_MS", "2000",
+                "ORS_HTTP_READ_TIMEOUT_MS", "5000",
+                "ORS_HTTP2", "false"));
+
+        assertThat(settings).isEqualTo(new HttpClientSettings(
+                4, Duration.ofSeconds(60), 32, 8, Duration.ofSeconds(2), Duration.ofSeconds(5), false));
+    }
+
+    @Test
+    void fromEnvironmentRejectsInvalidNumbers() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> HttpClientSettings.fromEnvironment(Map.of("ORS_HTTP_READ_TIMEOUT_MS", "soon")))
+                .withMessage("Invalid ORS_HTTP_READ_TIMEOUT_MS: soon");
+    }
+
+    @Test
+    void rejectsNegativeTimeouts() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> HttpClientSettings.fromEnvironment(Map.of("ORS_HTTP_CONNECT_TIMEOUT_MS", "-1")))
+                .withMessage("Keep-alive and timeouts must not be negative");
+    }
+
+    @Test
+    void createHttpClientAppliesSettings() {
+        var settings = new HttpClientSettings(
+                4, Duration.ofSeconds(60), 32, 8, Duration.ofSeconds(2), Duration.ofSeconds(5), false);
+
+        var httpClient = settings.createHttpClient();
+
+        assertThat(httpClient.dispatcher().getMaxRequests()).isEqualTo(32);
+        assertThat(httpClient.dispatcher().getMaxRequestsPerHost()).isEqualTo(8);
+        assertThat(httpClient.connectTimeoutMillis()).isEqualTo(2000);
+        assertThat(httpClient.readTimeoutMillis()).isEqualTo(5000);
+        assertThat(httpClient.protocols()).containsExactly(Protocol.HTTP_1_1);
+        assertThat(HttpClientSettings.DEFAULTS.createHttpClient().protocols())
+                .containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    }
+}
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -11,18 +14,39 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import com.sap_coding_challenge.co2.domain.Coordinates;
+import com.sap_coding_challenge.co2.metrics.Metrics;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class OpenRouteServiceClientTest {
     private static final String API_KEY = "test-key";
+    private static final String HAMBURG_FEATURES = """
+            {"features":[{"geometry":{"coordinates":[10.000654,53.550341]}}]}
+            """;
+    private static final ResilienceSettings RETRIES = new ResilienceSettings(
+            4, Duration.ofMillis(10), Duration.ofSeconds(5), 0.2, 0, Duration.ZERO);
 
     @RegisterExtension
     static WireMockExtension wireMock = WireMockExtension.newInstance()
@@ -61,6 +85,84 @@ class OpenRouteServiceClientTest {
                 .withQueryParam("layers", equalTo("locality")));
     }
 
+    @Test
+    void fetchCityCoordinatesConsultsGeocodeCacheBeforeCallingTheApi() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341"));
+        var geocodeCache = mock(GeocodeCache.class);
+        when(geocodeCache.get("Hamburg")).thenReturn(Optional.of(hamburg));
+
+        var coordinates = newClient(geocodeCache).fetchCityCoordinates("Hamburg");
+
+        assertThat(coordinates).isEqualTo(hamburg);
+        verify(geocodeCache, never()).put(anyString(), any());
+        wireMock.verify(0, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void clientWithoutTokenAnswersFromGeocodeCacheAndSendsNoRequests() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341"));
+        var geocodeCache = mock(GeocodeCache.class);
+        when(geocodeCache.get("Hamburg")).thenReturn(Optional.of(hamburg));
+        var client = new OpenRouteServiceClient(" ", httpClient, mapper, HttpUrl.parse(wireMock.baseUrl()),
+                OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES, OrsClientSettings.DEFAULTS, geocodeCache,
+                Metrics.DISABLED);
+
+        assertThat(client.fetchCityCoordinates("Hamburg")).isEqualTo(hamburg);
+        assertThatThrownBy(() -> client.fetchCityCoordinates("Berlin"))
+                .isInstanceOf(MissingTokenException.class)
+                .hasMessageContaining("ORS_TOKEN");
+        assertThatThrownBy(() -> client.fetchDistanceBetweenLocalitiesAsync(hamburg, hamburg, "Hamburg", "Hamburg").get())
+                .hasCauseInstanceOf(MissingTokenException.class);
+        wireMock.verify(0, anyRequestedFor(anyUrl()));
+    }
+
+    @Test
+    void fetchCityCoordinatesStoresApiResultsInGeocodeCache() throws IOException {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search"))
+                .willReturn(okJson("""
+                        {"features":[{"geometry":{"coordinates":[13.404954,52.520008]}}]}
+                        """)));
+        var geocodeCache = mock(GeocodeCache.class);
+        when(geocodeCache.get("Berlin")).thenReturn(Optional.empty());
+
+        var coordinates = newClient(geocodeCache).fetchCityCoordinates("Berlin");
+
+        verify(geocodeCache).put("Berlin", coordinates);
+    }
+
+    @Test
+    void fetchCityCoordinatesAsyncCoalescesConcurrentLookupsOfTheSameCity() throws Exception {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search"))
+                .willReturn(okJson("""
+                        {"features":[{"geometry":{"coordinates":[10.000654,53.550341]}}]}
+                        """).withFixedDelay(300)));
+        var client = newClient();
+
+        var first = client.fetchCityCoordinatesAsync("Hamburg");
+        var second = client.fetchCityCoordinatesAsync("Hamburg");
+        second.cancel(false);
+
+        var coordinates = first.get(5, TimeUnit.SECONDS);
+        assertThat(coordinates.longitude()).isEqualByComparingTo("10.000654");
+        assertThat(coordinates.latitude()).isEqualByComparingTo("53.550341");
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo("/geocode/search"))
+                .withHeader("Authorization", equalTo(API_KEY))
+                .withQueryParam("text", equalTo("Hamburg")));
+    }
+
+    @Test
+    void fetchCityCoordinatesAsyncCompletesExceptionallyOnHttpErrors() {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search"))
+                .willReturn(aResponse().withStatus(503)));
+
+        assertThat(newClient().fetchCityCoordinatesAsync("Hamburg"))
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isInstanceOf(IOException.class)
+                .withMessage("Could not fetch coordinates for city \"Hamburg\": HTTP 503");
+    }
+
     @Test
     void fetchCityCoordinatesPropagatesHttpErrors() {
         wireMock.stubFor(get(urlPathEqualTo("/geocode/search"))
@@ -122,6 +224,21 @@ class OpenRouteServiceClientTest {
                         """)));
     }
 
+    @Test
+    void fetchDistanceBetweenLocalitiesAsyncReturnsKilometers() throws Exception {
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car"))
+                .willReturn(okJson("""
+                        {"distances":[[0.0,289876.4],[289876.4,0.0]]}
+                        """)));
+
+        var kilometers = newClient().fetchDistanceBetweenLocalitiesAsync(
+                new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341")),
+                new Coordinates(new BigDecimal("13.404954"), new BigDecimal("52.520008")),
+                "Hamburg", "Berlin").get(5, TimeUnit.SECONDS);
+
+        assertThat(kilometers).isEqualByComparingTo("289.8764");
+    }
+
     @Test
     void fetchDistanceBetweenLocalitiesPropagatesHttpErrors() {
         wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car"))
@@ -151,6 +268,258 @@ class OpenRouteServiceClientTest {
                 .hasMessage("Could not fetch distance between \"Hamburg\" and \"Berlin\". Cities might not be reachable by car.");
     }
 
+    @Test
+    void fetchDistanceMatrixSplitsRequestsByRouteLimitAndFillsAllCells() throws IOException {
+        var hamburg = new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.5"));
+        var berlin = new Coordinates(new BigDecimal("13.4"), new BigDecimal("52.5"));
+        var munich = new Coordinates(new BigDecimal("11.5"), new BigDecimal("48.1"));
+        var cologne = new Coordinates(new BigDecimal("6.9"), new BigDecimal("50.9"));
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car"))
+                .withRequestBody(equalToJson("""
+                        {"locations":[[10.0,53.5],[13.4,52.5],[11.5,48.1]],
+                         "sources":[0,1],"destinations":[2,0],"metrics":["distance"]}
+                        """))
+                .willReturn(okJson("""
+                        {"distances":[[775000.0,0.0],[585000.5,289000.0]]}
+                        """)));
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car"))
+                .withRequestBody(equalToJson("""
+                        {"locations":[[6.9,50.9],[11.5,48.1],[10.0,53.5]],
+                         "sources":[0],"destinations":[1,2],"metrics":["distance"]}
+                        """))
+                .willReturn(okJson("""
+                        {"distances":[[575000.0,null]]}
+                        """)));
+
+        var matrix = newClient(4).fetchDistanceMatrix(List.of(hamburg, berlin, cologne), List.of(munich, hamburg));
+
+        assertThat(matrix.sources()).isEqualTo(3);
+        assertThat(matrix.destinations()).isEqualTo(2);
+        assertThat(matrix.distanceKm(0, 0)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("775"));
+        assertThat(matrix.distanceKm(1, 0)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("585.0005"));
+        assertThat(matrix.distanceKm(1, 1)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("289"));
+        assertThat(matrix.distanceKm(2, 0)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("575"));
+        assertThat(matrix.distanceKm(2, 1)).isEmpty();
+        wireMock.verify(2, postRequestedFor(urlPathEqualTo("/v2/matrix/driving-car"))
+                .withHeader("Authorization", equalTo(API_KEY)));
+    }
+
+    @Test
+    void fetchDistanceMatrixPropagatesHttpErrors() {
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car"))
+                .willReturn(aResponse().withStatus(429)));
+
+        assertThatThrownBy(() -> newClient().fetchDistanceMatrix(
+                List.of(new Coordinates(BigDecimal.ONE, BigDecimal.ONE)),
+                List.of(new Coordinates(BigDecimal.TEN, BigDecimal.TEN))))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Could not fetch 1x1 distance matrix: HTTP 429");
+    }
+
+    @Test
+    void fetchCityCoordinatesRetriesTransientErrorsHonouringRetryAfter() throws IOException {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky")
+                .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "1"))
+                .willSetStateTo("throttled"));
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky").whenScenarioStateIs("throttled")
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky").whenScenarioStateIs("recovered")
+                .willReturn(okJson(HAMBURG_FEATURES)));
+        var startedAt = System.nanoTime();
+
+        var coordinates = newResilientClient(RETRIES).fetchCityCoordinates("Hamburg");
+
+        assertThat(coordinates.longitude()).isEqualByComparingTo("10.000654");
+        assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+        wireMock.verify(3, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void fetchCityCoordinatesAsyncRetriesTransientErrors() {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky")
+                .willReturn(aResponse().withStatus(502))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky").whenScenarioStateIs("recovered")
+                .willReturn(okJson(HAMBURG_FEATURES)));
+
+        assertThat(newResilientClient(RETRIES).fetchCityCoordinatesAsync("Hamburg"))
+                .succeedsWithin(5, TimeUnit.SECONDS)
+                .satisfies(coordinates -> assertThat(coordinates.latitude()).isEqualByComparingTo("53.550341"));
+        wireMock.verify(2, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void fetchCityCoordinatesDoesNotRetryClientErrors() {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).willReturn(aResponse().withStatus(403)));
+
+        assertThatThrownBy(() -> newResilientClient(RETRIES).fetchCityCoordinates("Hamburg"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Could not fetch coordinates for city \"Hamburg\": HTTP 403");
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void fetchDistanceMatrixFailsFastOnceTheCircuitIsOpen() {
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car")).willReturn(aResponse().withStatus(503)));
+        var client = newResilientClient(new ResilienceSettings(
+                2, Duration.ofMillis(1), Duration.ofMillis(10), 1, 2, Duration.ofMinutes(1)));
+        var sources = List.of(new Coordinates(BigDecimal.ONE, BigDecimal.ONE));
+        var destinations = List.of(new Coordinates(BigDecimal.TEN, BigDecimal.TEN));
+
+        assertThatThrownBy(() -> client.fetchDistanceMatrix(sources, destinations))
+                .hasMessage("Could not fetch 1x1 distance matrix: HTTP 503");
+        assertThatThrownBy(() -> client.fetchDistanceMatrix(sources, destinations))
+                .isInstanceOf(CircuitOpenException.class);
+        assertThat(client.fetchDistanceBetweenLocalitiesAsync(sources.get(0), destinations.get(0), "A", "B"))
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isInstanceOf(CircuitOpenException.class);
+        wireMock.verify(2, postRequestedFor(urlPathEqualTo("/v2/matrix/driving-car")));
+    }
+
+    @Test
+    void recordsAttemptsRetriesAndGeocodeCacheMissesIntoMetrics() throws IOException {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky")
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).inScenario("flaky").whenScenarioStateIs("recovered")
+                .willReturn(okJson(HAMBURG_FEATURES)));
+        var metrics = new Metrics();
+
+        newResilientClient(RETRIES, metrics).fetchCityCoordinates("Hamburg");
+
+        var text = metrics.toPrometheus();
+        assertThat(text)
+                .contains("co2_ors_responses_total{endpoint=\"geocode\",status=\"503\"} 1\n")
+                .contains("co2_ors_responses_total{endpoint=\"geocode\",status=\"200\"} 1\n")
+                .contains("co2_ors_retries_total{endpoint=\"geocode\"} 1\n")
+                .contains("co2_ors_request_duration_seconds_count{endpoint=\"geocode\"} 2\n")
+                .contains("co2_geocode_cache_requests_total{result=\"miss\"} 1\n")
+                .contains("co2_geocode_cache_requests_total{result=\"hit\"} 0\n");
+        assertThat(metrics.counter("co2_ors_response_bytes_total", "", "endpoint", "geocode").count())
+                .isGreaterThanOrEqualTo(HAMBURG_FEATURES.length());
+    }
+
+    @Test
+    void concurrentLookupsOfTheSameNormalizedCityShareOneRequest() throws Exception {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search"))
+                .willReturn(okJson(HAMBURG_FEATURES).withFixedDelay(300)));
+        var client = newClient();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var blocking = executor.submit(() -> client.fetchCityCoordinates("Hamburg"));
+            Thread.sleep(100);
+            var repeated = executor.submit(() -> client.fetchCityCoordinates(" hamburg"));
+            var async = client.fetchCityCoordinatesAsync("HAMBURG");
+
+            assertThat(repeated.get(5, TimeUnit.SECONDS)).isEqualTo(blocking.get(5, TimeUnit.SECONDS));
+            assertThat(async).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(blocking.get());
+        }
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void fetchCityCoordinatesFailsWithoutRequestOnceTheDailyQuotaIsUsedUp() throws IOException {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).willReturn(okJson(HAMBURG_FEATURES)));
+        var client = newQuotaClient(new QuotaSettings(0, 1, 0, 0, false));
+
+        client.fetchCityCoordinates("Hamburg");
+
+        assertThatThrownBy(() -> client.fetchCityCoordinates("Berlin"))
+                .isInstanceOf(QuotaExhaustedException.class)
+                .hasMessageStartingWith("ORS geocode quota of 1 requests per day is used up until ");
+        assertThat(client.fetchCityCoordinatesAsync("Munich"))
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat()
+                .havingCause()
+                .isInstanceOf(QuotaExhaustedException.class);
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo("/geocode/search")));
+    }
+
+    @Test
+    void fetchDistanceMatrixHonoursTheQuotaReportedByOrs() throws IOException {
+        wireMock.stubFor(post(urlPathEqualTo("/v2/matrix/driving-car")).willReturn(okJson("""
+                {"distances":[[0.0,289.9],[289.9,0.0]]}
+                """).withHeader("x-ratelimit-remaining", "0")));
+        var client = newQuotaClient(new QuotaSettings(0, 0, 0, 500, false));
+        var cities = List.of(new Coordinates(new BigDecimal("10.0"), new BigDecimal("53.5")),
+                new Coordinates(new BigDecimal("13.4"), new BigDecimal("52.5")));
+
+        client.fetchDistanceMatrix(cities, cities);
+
+        assertThatThrownBy(() -> client.fetchDistanceMatrix(cities, cities))
+                .isInstanceOf(QuotaExhaustedException.class);
+        wireMock.verify(1, postRequestedFor(urlPathEqualTo("/v2/matrix/driving-car")));
+    }
+
+    @Test
+    void endpointQuotaPerMinuteReplacesTheSharedRateLimiter() throws IOException {
+        wireMock.stubFor(get(urlPathEqualTo("/geocode/search")).willReturn(okJson(HAMBURG_FEATURES)));
+        var sharedLimit = new RateLimiter(6, 1);
+        var client = newClient(OrsClientSettings.DEFAULTS.withResilience(ResilienceSettings.NONE)
+                .withRateLimiter(sharedLimit)
+                .withQuota(new QuotaSettings(6000, 0, 0, 0, false)));
+        var startedAt = System.nanoTime();
+
+        client.fetchCityCoordinates("Hamburg");
+        client.fetchCityCoordinates("Berlin");
+
+        // the shared limiter alone would space the two requests 10 s apart
+        assertThat(System.nanoTime() - startedAt).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(sharedLimit.reserve()).isZero();
+    }
+
+    @Test
+    void retryAfterAcceptsSecondsAndHttpDates() {
+        var request = new Request.Builder().url(wireMock.baseUrl()).build();
+        var response = new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(429).message("")
+                .header("Retry-After", "7").build();
+        var inOneMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(1));
+        var dated = response.newBuilder().header("Retry-After", inOneMinute).build();
+
+        assertThat(OpenRouteServiceClient.retryAfterNanos(response)).isEqualTo(TimeUnit.SECONDS.toNanos(7));
+        assertThat(OpenRouteServiceClient.retryAfterNanos(dated))
+                .isBetween(TimeUnit.SECONDS.toNanos(50), TimeUnit.SECONDS.toNanos(60));
+        assertThat(OpenRouteServiceClient.retryAfterNanos(response.newBuilder().removeHeader("Retry-After").build()))
+                .isZero();
+    }
+
+    private OpenRouteServiceClient newResilientClient(ResilienceSettings resilienceSettings) {
+        return newResilientClient(resilienceSettings, Metrics.DISABLED);
+    }
+
+    private OpenRouteServiceClient newResilientClient(ResilienceSettings resilienceSettings, Metrics metrics) {
+        var baseUrl = HttpUrl.parse(wireMock.baseUrl());
+        return new OpenRouteServiceClient(API_KEY, httpClient, mapper, baseUrl,
+                OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES,
+                OrsClientSettings.DEFAULTS.withResilience(resilienceSettings), GeocodeCache.NONE, metrics);
+    }
+
+    private OpenRouteServiceClient newQuotaClient(QuotaSettings quotaSettings) {
+        var baseUrl = HttpUrl.parse(wireMock.baseUrl());
+        return newClient(OrsClientSettings.DEFAULTS.withResilience(ResilienceSettings.NONE).withQuota(quotaSettings));
+    }
+
+    private OpenRouteServiceClient newClient(OrsClientSettings settings) {
+        var baseUrl = HttpUrl.parse(wireMock.baseUrl());
+        return new OpenRouteServiceClient(API_KEY, httpClient, mapper, baseUrl,
+                OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES, settings, GeocodeCache.NONE, Metrics.DISABLED);
+    }
+
+    private OpenRouteServiceClient newClient(GeocodeCache geocodeCache) {
+        var baseUrl = HttpUrl.parse(wireMock.baseUrl());
+        return new OpenRouteServiceClient(API_KEY, httpClient, mapper, baseUrl,
+                OpenRouteServiceClient.DEFAULT_MAX_MATRIX_ROUTES,
+                OrsClientSettings.DEFAULTS.withResilience(ResilienceSettings.NONE), geocodeCache, Metrics.DISABLED);
+    }
+
+    private OpenRouteServiceClient newClient(int maxMatrixRoutes) {
+        var baseUrl = HttpUrl.parse(wireMock.baseUrl());
+        return new OpenRouteServiceClient(API_KEY, httpClient, mapper, baseUrl, maxMatrixRoutes);
+    }
+
     private OpenRouteServiceClient newClient() {
         var baseUrl = HttpUrl.parse(wireMock.baseUrl());
         return new OpenRouteServiceClient(API_KEY, httpClient, mapper, baseUrl);
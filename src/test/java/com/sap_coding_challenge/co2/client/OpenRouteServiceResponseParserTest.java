@@ -0,0 +1,72 @@
+package com.sap_coding_challenge.co2.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.sap_coding_challenge.co2.domain.Coordinates;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenRouteServiceResponseParserTest {
+
+    private final OpenRouteServiceResponseParser parser = new OpenRouteServiceResponseParser(new JsonFactory());
+
+    @Test
+    void firstFeatureCoordinatesSkipsUnrelatedMembersAndStopsAfterTheTarget() throws IOException {
+        // everything after the first coordinates is deliberately malformed: it must never be read
+        var coordinates = parser.firstFeatureCoordinates(json("""
+                {"type":"FeatureCollection","geocoding":{"query":{"text":"Hamburg","size":10}},
+                 "features":[{"type":"Feature","properties":{"name":"Hamburg","bbox":[1,2,3,4]},
+                   "geometry":{"type":"Point","coordinates":[10.000654,53.550341]} ,,, not json
+                """));
+
+        assertThat(coordinates).contains(new Coordinates(new BigDecimal("10.000654"), new BigDecimal("53.550341")));
+    }
+
+    @Test
+    void firstFeatureCoordinatesIsEmptyWithoutNumericPair() throws IOException {
+        assertThat(parser.firstFeatureCoordinates(json("{\"features\":[{\"geometry\":{\"coordinates\":[10.0]}}]}")))
+                .isEmpty();
+        assertThat(parser.firstFeatureCoordinates(json("[]"))).isEmpty();
+    }
+
+    @Test
+    void firstDistanceReadsSecondCellOfFirstRow() throws IOException {
+        var distance = parser.firstDistance(json("""
+                {"metadata":{"service":"matrix"},"distances":[[0.0,289876.4],[289876.4,0.0]],"destinations":[]}
+                """));
+
+        assertThat(distance).contains(new BigDecimal("289876.4"));
+    }
+
+    @Test
+    void readDistancesCopiesRowsIntoTheMatrixBlock() throws IOException {
+        var matrix = new DistanceMatrix(3, 3);
+
+        var rows = parser.readDistances(json("""
+                {"sources":[{"location":[1,2]}],"distances":[[1000.0,null],[3000,4000.5]]}
+                """), matrix, 1, 2, 1, 2);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(matrix.distanceKm(1, 1)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("1.0"));
+        assertThat(matrix.distanceKm(1, 2)).isEmpty();
+        assertThat(matrix.distanceKm(2, 1)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("3.0"));
+        assertThat(matrix.distanceKm(2, 2)).hasValueSatisfying(km -> assertThat(km).isEqualByComparingTo("4.0005"));
+        assertThat(matrix.distanceKm(0, 0)).isEmpty();
+    }
+
+    @Test
+    void readDistancesReportsMissingTable() throws IOException {
+        assertThat(parser.readDistances(json("{\"distances\":null}"), new DistanceMatrix(1, 1), 0, 1, 0, 1))
+                .isEqualTo(-1);
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package com.sap_coding_challenge.co2.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OrsClientSettingsTest {
+
+    @Test
+    void fromEnvironmentUsesDefaultsWhenNothingIsSet() {
+        var settings = OrsClientSettings.fromEnvironment(Map.of());
+
+        assertThat(settings.baseUrl()).isEqualTo(OrsClientSettings.DEFAULT_BASE_URL);
+        assertThat(settings.http()).isEqualTo(HttpClientSettings.DEFAULTS);
+        assertThat(settings.rateLimiter()).isSameAs(RateLimiter.UNLIMITED);
+        assertThat(settings.resilience()).isEqualTo(ResilienceSettings.DEFAULTS);
+        assertThat(settings.quota()).isEqualTo(QuotaSettings.NONE);
+    }
+
+    @Test
+    void fromEnvironmentReadsEveryPart() {
+        var settings = OrsClientSettings.fromEnvironment(Map.of(
+                "ORS_BASE_URL", "http://localhost:8081/",
+                "ORS_REQUESTS_PER_MINUTE", "40",
+                "ORS_RETRY_MAX_ATTEMPTS", "2",
+                "ORS_MATRIX_PER_DAY", "500"));
+
+        assertThat(settings.baseUrl()).hasToString("http://localhost:8081/");
+        assertThat(settings.rateLimiter()).isNotSameAs(RateLimiter.UNLIMITED);
+        assertThat(settings.resilience().maxAttempts()).isEqualTo(2);
+        assertThat(settings.quota().matrixPerDay()).isEqualTo(500);
+    }
+
+    @Test
+    void fromEnvironmentRejectsInvalidBaseUrls() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> OrsClientSettings.fromEnvironment(Map.of("ORS_BASE_URL", "localhost:8081")))
+                .withMessage("Invalid ORS_BASE_URL: localhost:8081");
+    }
+}
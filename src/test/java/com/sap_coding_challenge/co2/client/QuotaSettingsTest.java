@@ -0,0 +1,34 @@
+package com.sap_coding_challenge.co2.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class QuotaSettingsTest {
+
+    @Test
+    void fromEnvironmentEnforcesNoLimitsByDefault() {
+        assertThat(QuotaSettings.fromEnvironment(Map.of())).isEqualTo(QuotaSettings.NONE);
+    }
+
+    @Test
+    void fromEnvironmentReadsLimits() {
+        var settings = QuotaSettings.fromEnvironment(Map.of(
+                "ORS_GEOCODE_PER_MINUTE", "100",
+                "ORS_GEOCODE_PER_DAY", "1000",
+                "ORS_MATRIX_PER_MINUTE", "40",
+                "ORS_MATRIX_PER_DAY", "500",
+                "ORS_QUOTA_WAIT_FOR_RESET", "true"));
+
+        assertThat(settings).isEqualTo(new QuotaSettings(100, 1000, 40, 500, true));
+    }
+
+    @Test
+    void rejectsNegativeLimits() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> QuotaSettings.fromEnvironment(Map.of("ORS_MATRIX_PER_DAY", "-1")));
+    }
+}
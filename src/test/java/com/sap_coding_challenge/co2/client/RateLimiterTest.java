@@ -0,0 +1,73 @@
+package com.sap_coding_challenge.co2.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class RateLimiterTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final AtomicLong now = new AtomicLong(1_000 * ONE_SECOND);
+
+    @Test
+    void reserveSpacesRequestsEvenlyWithoutBurst() {
+        var limiter = new RateLimiter(60, 1, now::get);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(ONE_SECOND);
+        assertThat(limiter.reserve()).isEqualTo(2 * ONE_SECOND);
+    }
+
+    @Test
+    void reserveAllowsBurstAndRefillsOverTime() {
+        var limiter = new RateLimiter(60, 3, now::get);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(ONE_SECOND);
+
+        now.addAndGet(10 * ONE_SECOND);
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isEqualTo(ONE_SECOND);
+    }
+
+    @Test
+    void unlimitedNeverWaits() {
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(RateLimiter.UNLIMITED.reserve()).isZero();
+        }
+    }
+
+    @Test
+    void fromEnvironmentPacesToTheConfiguredRate() {
+        assertThat(RateLimiter.fromEnvironment(Map.of())).isSameAs(RateLimiter.UNLIMITED);
+        assertThat(RateLimiter.fromEnvironment(Map.of("ORS_REQUESTS_PER_MINUTE", "0"))).isSameAs(RateLimiter.UNLIMITED);
+        assertThat(RateLimiter.fromEnvironment(Map.of("ORS_REQUESTS_PER_MINUTE", " 40 ")))
+                .isNotSameAs(RateLimiter.UNLIMITED);
+    }
+
+    @Test
+    void fromEnvironmentRejectsInvalidRates() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> RateLimiter.fromEnvironment(Map.of("ORS_REQUESTS_PER_MINUTE", "60/min")))
+                .withMessage("Invalid ORS_REQUESTS_PER_MINUTE: 60/min");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> RateLimiter.fromEnvironment(Map.of("ORS_REQUESTS_PER_MINUTE", "-5")))
+                .withMessage("Invalid ORS_REQUESTS_PER_MINUTE: -5");
+    }
+
+    @Test
+    void constructorRejectsNonPositiveRates() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new RateLimiter(0, 1))
+                .withMessage("permitsPerMinute and burst must be positive");
+    }
+}
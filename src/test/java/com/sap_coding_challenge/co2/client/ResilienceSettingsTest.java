@@ -0,0 +1,41 @@
+package com.sap_coding_challenge.co2.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ResilienceSettingsTest {
+
+    @Test
+    void fromEnvironmentFallsBackToDefaults() {
+        assertThat(ResilienceSettings.fromEnvironment(Map.of())).isEqualTo(ResilienceSettings.DEFAULTS);
+    }
+
+    @Test
+    void fromEnvironmentReadsOverrides() {
+        var settings = ResilienceSettings.fromEnvironment(Map.of(
+                "ORS_RETRY_MAX_ATTEMPTS", "6",
+                "ORS_RETRY_BASE_DELAY_MS", "100",
+                "ORS_RETRY_MAX_DELAY_MS", "60000",
+                "ORS_RETRY_BUDGET_PERCENT", "50",
+                "ORS_CIRCUIT_FAILURE_THRESHOLD", "0",
+                "ORS_CIRCUIT_OPEN_SECONDS", "10"));
+
+        assertThat(settings).isEqualTo(new ResilienceSettings(
+                6, Duration.ofMillis(100), Duration.ofMinutes(1), 0.5, 0, Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> ResilienceSettings.fromEnvironment(Map.of("ORS_RETRY_MAX_ATTEMPTS", "0")));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> ResilienceSettings.fromEnvironment(Map.of("ORS_RETRY_BUDGET_PERCENT", "150")));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> ResilienceSettings.fromEnvironment(Map.of("ORS_RETRY_BASE_DELAY_MS", "-1")));
+    }
+}
@@ -0,0 +1,32 @@
+package com.sap_coding_challenge.co2.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CityNamesTest {
+
+    @Test
+    void normalizeStripsCollapsesWhitespaceAndLowerCases() {
+        assertThat(CityNames.normalize("  Frankfurt \t am\n Main ")).isEqualTo("frankfurt am main");
+        assertThat(CityNames.normalize("MÜNCHEN")).isEqualTo("münchen");
+        assertThat(CityNames.normalize("İzmir")).isEqualTo("İzmir".toLowerCase(Locale.ROOT));
+        assertThat(CityNames.normalize("")).isEmpty();
+    }
+
+    @Test
+    void normalizeReturnsNormalizedNamesAsIs() {
+        var name = "frankfurt am main";
+
+        assertThat(CityNames.normalize(name)).isSameAs(name);
+    }
+
+    @Test
+    void sameCityIgnoresCaseAndWhitespace() {
+        assertThat(CityNames.sameCity("Berlin", "berlin ")).isTrue();
+        assertThat(CityNames.sameCity("Frankfurt am Main", "frankfurt  am main")).isTrue();
+        assertThat(CityNames.sameCity("Berlin", "Bern")).isFalse();
+    }
+}
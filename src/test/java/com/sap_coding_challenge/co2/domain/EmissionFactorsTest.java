@@ -0,0 +1,83 @@
+package com.sap_coding_challenge.co2.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmissionFactorsTest {
+
+    @Test
+    void defaultsMatchTheTransportMethods() {
+        for (var method : TransportMethod.values()) {
+            assertThat(EmissionFactors.DEFAULTS.gramsPerKm(method.getKey())).isEqualTo(method.getGramsPerKm());
+        }
+        assertThat(EmissionFactors.DEFAULTS.size()).isEqualTo(TransportMethod.values().length);
+    }
+
+    @Test
+    void lookupIgnoresCase() {
+        assertThat(EmissionFactors.DEFAULTS.gramsPerKm("Diesel-Car-Medium")).isEqualTo(171);
+    }
+
+    @Test
+    void lookupRejectsUnknownKeys() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> EmissionFactors.DEFAULTS.gramsPerKm("rocket"))
+                .withMessage("Unknown transportation-method: rocket");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> EmissionFactors.DEFAULTS.gramsPerKm(null));
+    }
+
+    @Test
+    void loadAddsAndOverridesFactors(@TempDir Path tempDir) throws IOException {
+        var file = Files.writeString(tempDir.resolve("factors.properties"), """
+                # fleet specific factors
+                Acme.Diesel-Van.2024 = 231
+
+                diesel-car-medium=160
+                """);
+
+        var factors = EmissionFactors.load(file);
+
+        assertThat(factors.gramsPerKm("acme.diesel-van.2024")).isEqualTo(231);
+        assertThat(factors.gramsPerKm("diesel-car-medium")).isEqualTo(160);
+        assertThat(factors.gramsPerKm("train-default")).isEqualTo(6);
+        assertThat(factors.size()).isEqualTo(TransportMethod.values().length + 1);
+        assertThat(factors.keys()).hasSize(factors.size()).isSorted().startsWith("acme.diesel-van.2024", "bus-default");
+        assertThat(EmissionFactors.DEFAULTS.gramsPerKm("diesel-car-medium")).isEqualTo(171);
+    }
+
+    @Test
+    void loadRejectsMalformedLines(@TempDir Path tempDir) throws IOException {
+        var file = Files.writeString(tempDir.resolve("factors.properties"), "bus-default = 27\nvan 200\n");
+
+        assertThatThrownBy(() -> EmissionFactors.load(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Malformed emission factor on line 2 of ");
+    }
+
+    @Test
+    void loadRejectsNegativeAndFractionalFactors(@TempDir Path tempDir) throws IOException {
+        var negative = Files.writeString(tempDir.resolve("negative.properties"), "van = -1\n");
+        var fractional = Files.writeString(tempDir.resolve("fractional.properties"), "van = 1.5\n");
+
+        assertThatThrownBy(() -> EmissionFactors.load(negative)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> EmissionFactors.load(fractional)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void loadRejectsDuplicateKeys(@TempDir Path tempDir) throws IOException {
+        var file = Files.writeString(tempDir.resolve("factors.properties"), "van = 200\nVAN = 210\n");
+
+        assertThatThrownBy(() -> EmissionFactors.load(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Emission factor 'van' is defined on lines 1 and 2 of ");
+    }
+}
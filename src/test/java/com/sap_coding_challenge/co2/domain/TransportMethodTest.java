@@ -0,0 +1,31 @@
+package com.sap_coding_challenge.co2.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TransportMethodTest {
+
+    @Test
+    void fromKeyFindsEveryMethodByItsKey() {
+        for (var method : TransportMethod.values()) {
+            assertThat(TransportMethod.fromKey(method.getKey())).isSameAs(method);
+        }
+    }
+
+    @Test
+    void fromKeyIgnoresCase() {
+        assertThat(TransportMethod.fromKey("Train-DEFAULT")).isSameAs(TransportMethod.TRAIN_DEFAULT);
+    }
+
+    @Test
+    void fromKeyRejectsUnknownKeys() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> TransportMethod.fromKey("rocket"))
+                .withMessage("Unknown transportation-method: rocket");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> TransportMethod.fromKey(null))
+                .withMessage("Unknown transportation-method: null");
+    }
+}
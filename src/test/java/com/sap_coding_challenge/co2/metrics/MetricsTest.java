@@ -0,0 +1,107 @@
+package com.sap_coding_challenge.co2.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    void rendersCountersAndGaugesInPrometheusFormat() {
+        metrics.counter("requests_total", "Requests", "status", "200").add(3);
+        metrics.counter("requests_total", "Requests", "status", "503").increment();
+        metrics.gauge("cache_hit_ratio", "Hit ratio", () -> 0.25);
+
+        assertThat(metrics.toPrometheus()).isEqualTo("""
+                # HELP cache_hit_ratio Hit ratio
+                # TYPE cache_hit_ratio gauge
+                cache_hit_ratio 0.25
+                # HELP requests_total Requests
+                # TYPE requests_total counter
+                requests_total{status="200"} 3
+                requests_total{status="503"} 1
+                """);
+    }
+
+    @Test
+    void rendersTimersAsCumulativeHistograms() {
+        var timer = metrics.timer("latency_seconds", "Latency", "endpoint", "matrix");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(40));
+        timer.record(TimeUnit.SECONDS.toNanos(90));
+
+        assertThat(metrics.toPrometheus())
+                .contains("# TYPE latency_seconds histogram\n")
+                .contains("latency_seconds_bucket{endpoint=\"matrix\",le=\"0.001\"} 0\n")
+                .contains("latency_seconds_bucket{endpoint=\"matrix\",le=\"0.005\"} 1\n")
+                .contains("latency_seconds_bucket{endpoint=\"matrix\",le=\"0.05\"} 2\n")
+                .contains("latency_seconds_bucket{endpoint=\"matrix\",le=\"60\"} 2\n")
+                .contains("latency_seconds_bucket{endpoint=\"matrix\",le=\"+Inf\"} 3\n")
+                .contains("latency_seconds_sum{endpoint=\"matrix\"} 90.043\n")
+                .contains("latency_seconds_count{endpoint=\"matrix\"} 3\n");
+    }
+
+    @Test
+    void timerQuantilesAreBucketUpperBounds() {
+        var timer = metrics.timer("latency_seconds", "Latency");
+        assertThat(timer.quantileSeconds(0.5)).isNaN();
+
+        for (int i = 0; i < 99; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        timer.record(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(timer.quantileSeconds(0.50)).isEqualTo(0.025);
+        assertThat(timer.quantileSeconds(0.99)).isEqualTo(0.025);
+        assertThat(timer.quantileSeconds(1.0)).isEqualTo(2.5);
+    }
+
+    @Test
+    void writesJsonSummaryForJsonFilesAndPrometheusTextOtherwise(@TempDir Path tempDir) throws IOException {
+        metrics.counter("trips_total", "Trips", "result", "computed").add(2);
+        metrics.timer("trip_duration_seconds", "Trip latency").record(TimeUnit.MILLISECONDS.toNanos(2));
+        var json = tempDir.resolve("metrics.json");
+        var text = tempDir.resolve("metrics.prom");
+
+        metrics.write(json);
+        metrics.write(text);
+
+        var summary = new ObjectMapper().readTree(json.toFile());
+        assertThat(summary.get("trips_total{result=\"computed\"}").asLong()).isEqualTo(2);
+        assertThat(summary.get("trip_duration_seconds").get("count").asLong()).isEqualTo(1);
+        assertThat(summary.get("trip_duration_seconds").get("p99_seconds").asDouble()).isEqualTo(0.0025);
+        assertThat(Files.readString(text)).startsWith("# HELP trip_duration_seconds Trip latency\n");
+    }
+
+    @Test
+    void disabledRegistryRecordsNothing() {
+        Metrics.DISABLED.counter("requests_total", "Requests").increment();
+        Metrics.DISABLED.timer("latency_seconds", "Latency").record(1);
+        Metrics.DISABLED.gauge("size", "Size", () -> 1);
+
+        assertThat(Metrics.DISABLED.counter("requests_total", "Requests").count()).isZero();
+        assertThat(Metrics.DISABLED.toPrometheus()).isEmpty();
+        assertThat(Metrics.DISABLED.toJson()).isEqualTo("{ }");
+    }
+
+    @Test
+    void rejectsReusingANameForAnotherType() {
+        metrics.counter("requests_total", "Requests");
+
+        assertThatThrownBy(() -> metrics.timer("requests_total", "Requests"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("requests_total is already registered as a COUNTER");
+        assertThatThrownBy(() -> metrics.counter("requests_total", "Requests", "status"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
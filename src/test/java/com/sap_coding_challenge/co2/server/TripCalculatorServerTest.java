@@ -0,0 +1,161 @@
+package com.sap_coding_challenge.co2.server;
+
+import com.sap_coding_challenge.co2.application.OpenRouteServiceTripCalculator;
+import com.sap_coding_challenge.co2.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class TripCalculatorServerTest {
+
+    private final OpenRouteServiceTripCalculator tripCalculator = mock(OpenRouteServiceTripCalculator.class);
+    private final Metrics metrics = new Metrics();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private TripCalculatorServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = TripCalculatorServer.start(tripCalculator, new InetSocketAddress("localhost", 0), metrics);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void postTripReturnsTheRoundedFootprint() throws Exception {
+        when(tripCalculator.compute("Hamburg", "Berlin", "bus-default")).thenReturn(new BigDecimal("7.6539"));
+
+        var response = post("/trips", """
+                {"start": "Hamburg", "end": "Berlin", "transportation-method": "bus-default"}""");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).contains("application/json");
+        assertThat(response.body()).isEqualTo(
+                "{\"start\":\"Hamburg\",\"end\":\"Berlin\",\"transportation-method\":\"bus-default\",\"co2-kg\":7.7}");
+    }
+
+    @Test
+    void postTripAnswersInvalidTripsWithBadRequest() throws Exception {
+        when(tripCalculator.compute("Hamburg", "Atlantis", "bus-default"))
+                .thenThrow(new IllegalArgumentException("Could not find city Atlantis."));
+
+        var unknownCity = post("/trips", """
+                {"start": "Hamburg", "end": "Atlantis", "transportation-method": "bus-default"}""");
+        var missingField = post("/trips", """
+                {"start": "Hamburg", "transportation-method": "bus-default"}""");
+        var malformed = post("/trips", "{\"start\": ");
+
+        assertThat(unknownCity.statusCode()).isEqualTo(400);
+        assertThat(unknownCity.body()).isEqualTo("{\"error\":\"Could not find city Atlantis.\"}");
+        assertThat(missingField.statusCode()).isEqualTo(400);
+        assertThat(missingField.body()).isEqualTo("{\"error\":\"Missing \\\"end\\\" in row 1.\"}");
+        assertThat(malformed.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void postTripAnswersApiFailuresWithBadGateway() throws Exception {
+        when(tripCalculator.compute("Hamburg", "Berlin", "bus-default"))
+                .thenThrow(new IOException("Could not fetch distance: HTTP 503"));
+
+        var response = post("/trips", """
+                {"start": "Hamburg", "end": "Berlin", "transportation-method": "bus-default"}""");
+
+        assertThat(response.statusCode()).isEqualTo(502);
+        assertThat(response.body()).isEqualTo("{\"error\":\"Could not fetch distance: HTTP 503\"}");
+    }
+
+    @Test
+    void postBatchPrefetchesDistancesAndAnswersEveryTripInOrder() throws Exception {
+        when(tripCalculator.computeAsync("Hamburg", "Berlin", "bus-default"))
+                .thenReturn(CompletableFuture.completedFuture(new BigDecimal("7.65")));
+        when(tripCalculator.computeAsync("Hamburg", "Berlin", "rocket"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Unknown transport method: rocket")));
+
+        var response = post("/trips/batch", """
+                [{"start": "Hamburg", "end": "Berlin", "transportation-method": "bus-default"},
+                 {"start": "Hamburg", "end": "Berlin", "transportation-method": "rocket"},
+                 {"start": "Hamburg"}]""");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("["
+                + "{\"start\":\"Hamburg\",\"end\":\"Berlin\",\"transportation-method\":\"bus-default\",\"co2-kg\":7.7},"
+                + "{\"start\":\"Hamburg\",\"end\":\"Berlin\",\"transportation-method\":\"rocket\",\"error\":\"Unknown transport method: rocket\"},"
+                + "{\"start\":\"Hamburg\",\"error\":\"Missing \\\"end\\\" in row 3.\"}]");
+        verify(tripCalculator).prefetchDistances(anyCollection());
+    }
+
+    @Test
+    void oversizedRequestBodiesAreRejectedBeforeParsing() throws Exception {
+        var oversized = "[" + " ".repeat(TripCalculatorServer.MAX_BODY_BYTES) + "]";
+
+        var declared = post("/trips/batch", oversized);
+        var chunked = httpClient.send(request("/trips/batch")
+                        .POST(HttpRequest.BodyPublishers.ofInputStream(
+                                () -> new ByteArrayInputStream(oversized.getBytes(StandardCharsets.UTF_8))))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(declared.statusCode()).isEqualTo(413);
+        assertThat(chunked.statusCode()).isEqualTo(413);
+        assertThat(chunked.body()).isEqualTo("{\"error\":\"Request body exceeds 4194304 bytes.\"}");
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void healthAndRoutingErrors() throws Exception {
+        var health = httpClient.send(request("/health").GET().build(), HttpResponse.BodyHandlers.ofString());
+        var wrongMethod = httpClient.send(request("/trips").GET().build(), HttpResponse.BodyHandlers.ofString());
+        var unknownPath = post("/trips/unknown", "{}");
+
+        assertThat(health.statusCode()).isEqualTo(200);
+        assertThat(wrongMethod.statusCode()).isEqualTo(405);
+        assertThat(wrongMethod.headers().firstValue("Allow")).contains("POST");
+        assertThat(unknownPath.statusCode()).isEqualTo(404);
+        verifyNoInteractions(tripCalculator);
+    }
+
+    @Test
+    void metricsAreServedAsPrometheusText() throws Exception {
+        post("/trips", "{\"start\": ");
+        httpClient.send(request("/health").GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        var response = httpClient.send(request("/metrics").GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).contains("text/plain; version=0.0.4; charset=utf-8");
+        assertThat(response.body())
+                .contains("# TYPE co2_http_responses_total counter\n")
+                .contains("co2_http_responses_total{path=\"/trips\",status=\"400\"} 1\n")
+                .contains("co2_http_responses_total{path=\"/health\",status=\"200\"} 1\n")
+                .contains("co2_http_request_duration_seconds_count{path=\"/trips\"} 1\n");
+        assertThat(httpClient.send(request("/metrics").DELETE().build(), HttpResponse.BodyHandlers.ofString())
+                .statusCode()).isEqualTo(405);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return httpClient.send(request(path).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        var address = server.address();
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + address.getPort() + path));
+    }
+}